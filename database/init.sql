@@ -48,15 +48,45 @@ CREATE TABLE IF NOT EXISTS test_reports (
     prediction_result INT NOT NULL,
     probability DOUBLE,
     input_data TEXT,
+    -- input_data packed in schema order; set instead of input_data
+    input_packed VARBINARY(255),
     prediction_message TEXT,
+    -- id of the stock message template; set instead of prediction_message
+    message_template SMALLINT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
+-- Report counts per user, disease and outcome, kept in step with test_reports
+CREATE TABLE IF NOT EXISTS report_counts (
+    user_id BIGINT NOT NULL,
+    disease_type VARCHAR(20) NOT NULL,
+    prediction_result INT NOT NULL,
+    report_count BIGINT NOT NULL,
+    PRIMARY KEY (user_id, disease_type, prediction_result)
+);
+
+-- Report counts and probability sums per user, disease and day/week/month
+-- bucket, kept alongside test_reports for /api/reports/trends
+CREATE TABLE IF NOT EXISTS report_trends (
+    user_id BIGINT NOT NULL,
+    resolution VARCHAR(5) NOT NULL,
+    disease_type VARCHAR(20) NOT NULL,
+    bucket_start DATE NOT NULL,
+    report_count BIGINT NOT NULL,
+    positive_count BIGINT NOT NULL,
+    probability_sum DOUBLE NOT NULL,
+    probability_count BIGINT NOT NULL,
+    PRIMARY KEY (user_id, resolution, disease_type, bucket_start)
+);
+
 -- Indexes for better performance
 CREATE INDEX idx_users_username ON users(username);
 CREATE INDEX idx_users_email ON users(email);
 CREATE INDEX idx_test_reports_user_id ON test_reports(user_id);
 CREATE INDEX idx_test_reports_disease_type ON test_reports(disease_type);
 CREATE INDEX idx_test_reports_created_at ON test_reports(created_at);
+-- Newest-first keyset listings per user, optionally per disease
+CREATE INDEX idx_test_reports_user_created ON test_reports(user_id, created_at, id);
+CREATE INDEX idx_test_reports_user_disease_created ON test_reports(user_id, disease_type, created_at, id);
 */
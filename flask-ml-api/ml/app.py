@@ -1,22 +1,42 @@
 
 from flask import Flask, request, jsonify
+import hashlib
 import joblib
 import numpy as np
+import os
 
 app = Flask(__name__)
 
+MODEL_FILES = {
+    'diabetes': 'models/diabetes_model.pkl',
+    'heart': 'models/heart_model.pkl',
+    'stroke': 'models/stroke_model.pkl',
+    'parkinsons': 'models/parkinsons_model.pkl',
+}
+
+
+def model_version(path):
+    # Content hash of the model file, so a retrained model gets a new version
+    with open(path, 'rb') as f:
+        return hashlib.sha256(f.read()).hexdigest()[:12]
+
+
 # Load models
-diabetes_model = joblib.load('models/diabetes_model.pkl')
-heart_model = joblib.load('models/heart_model.pkl')
-stroke_model = joblib.load('models/stroke_model.pkl')
-parkinsons_model = joblib.load('models/parkinsons_model.pkl')
+diabetes_model = joblib.load(MODEL_FILES['diabetes'])
+heart_model = joblib.load(MODEL_FILES['heart'])
+stroke_model = joblib.load(MODEL_FILES['stroke'])
+parkinsons_model = joblib.load(MODEL_FILES['parkinsons'])
 
-@app.route('/predict/parkinsons', methods=['POST'])
-def predict_parkinsons():
-    data = request.get_json()
+MODEL_VERSIONS = {name: model_version(path) for name, path in MODEL_FILES.items()}
 
+
+@app.route('/models', methods=['GET'])
+def models():
+    return jsonify(MODEL_VERSIONS)
+
+def parkinsons_features(data):
     # Extract all required features in correct order
-    features = np.array([
+    return [
         data['MDVP:Fo(Hz)'], data['MDVP:Fhi(Hz)'], data['MDVP:Flo(Hz)'],
         data['MDVP:Jitter(%)'], data['MDVP:Jitter(Abs)'], data['MDVP:RAP'],
         data['MDVP:PPQ'], data['Jitter:DDP'], data['MDVP:Shimmer'],
@@ -24,18 +44,10 @@ def predict_parkinsons():
         data['MDVP:APQ'], data['Shimmer:DDA'], data['NHR'], data['HNR'],
         data['RPDE'], data['DFA'], data['spread1'], data['spread2'],
         data['D2'], data['PPE']
-    ]).reshape(1, -1)
-
-    prediction = parkinsons_model.predict(features)[0]
-    return jsonify({'prediction': int(prediction)})
-
-
+    ]
 
 
-@app.route('/predict/stroke', methods=['POST'])
-def predict_stroke():
-    data = request.get_json()
-
+def stroke_features(data):
     # Encode inputs manually (based on LabelEncoder mapping from train script)
     gender = {'Male': 1, 'Female': 0, 'Other': 2}[data['gender']]
     ever_married = {'Yes': 1, 'No': 0}[data['ever_married']]
@@ -46,7 +58,7 @@ def predict_stroke():
     smoking_status = smoking_status_map[data['smoking_status']]
 
     # Feature order must match training
-    features = np.array([
+    return [
         gender,
         data['age'],
         data['hypertension'],
@@ -57,10 +69,52 @@ def predict_stroke():
         data['avg_glucose_level'],
         data['bmi'],
         smoking_status
-    ]).reshape(1, -1)
+    ]
 
-    prediction = stroke_model.predict(features)[0]
-    return jsonify({'prediction': int(prediction)})
+
+def diabetes_features(data):
+    return [
+        data['Pregnancies'], data['Glucose'], data['BloodPressure'],
+        data['SkinThickness'], data['Insulin'], data['BMI'],
+        data['DiabetesPedigreeFunction'], data['Age']
+    ]
+
+
+def heart_features(data):
+    # Extract features (based on your dataset columns)
+    return [
+        data['age'], data['sex'], data['cp'], data['trestbps'], data['chol'],
+        data['fbs'], data['restecg'], data['thalach'], data['exang'],
+        data['oldpeak'], data['slope'], data['ca'], data['thal']
+    ]
+
+
+MODELS = {
+    'diabetes': (diabetes_model, diabetes_features),
+    'heart': (heart_model, heart_features),
+    'stroke': (stroke_model, stroke_features),
+    'parkinsons': (parkinsons_model, parkinsons_features),
+}
+
+
+def predict_rows(name, rows):
+    # The gateway sends each row already encoded as a list of numbers in
+    # model order; feature objects are still accepted from other callers
+    model, extract = MODELS[name]
+    features = np.array([row if isinstance(row, list) else extract(row) for row in rows], dtype=float)
+    return [int(p) for p in model.predict(features)]
+
+
+@app.route('/predict/parkinsons', methods=['POST'])
+def predict_parkinsons():
+    prediction = predict_rows('parkinsons', [request.get_json()])[0]
+    return jsonify({'prediction': prediction, 'model_version': MODEL_VERSIONS['parkinsons']})
+
+
+@app.route('/predict/stroke', methods=['POST'])
+def predict_stroke():
+    prediction = predict_rows('stroke', [request.get_json()])[0]
+    return jsonify({'prediction': prediction, 'model_version': MODEL_VERSIONS['stroke']})
 
 
 @app.route('/')
@@ -69,28 +123,24 @@ def home():
 
 @app.route('/predict/diabetes', methods=['POST'])
 def predict_diabetes():
-    data = request.get_json()
-    features = np.array([
-        data['Pregnancies'], data['Glucose'], data['BloodPressure'],
-        data['SkinThickness'], data['Insulin'], data['BMI'],
-        data['DiabetesPedigreeFunction'], data['Age']
-    ]).reshape(1, -1)
-    prediction = diabetes_model.predict(features)[0]
-    return jsonify({'prediction': int(prediction)})
+    prediction = predict_rows('diabetes', [request.get_json()])[0]
+    return jsonify({'prediction': prediction, 'model_version': MODEL_VERSIONS['diabetes']})
 
 @app.route('/predict/heart', methods=['POST'])
 def predict_heart():
-    data = request.get_json()
+    prediction = predict_rows('heart', [request.get_json()])[0]
+    return jsonify({'prediction': prediction, 'model_version': MODEL_VERSIONS['heart']})
 
-    # Extract features (based on your dataset columns)
-    features = np.array([
-        data['age'], data['sex'], data['cp'], data['trestbps'], data['chol'],
-        data['fbs'], data['restecg'], data['thalach'], data['exang'],
-        data['oldpeak'], data['slope'], data['ca'], data['thal']
-    ]).reshape(1, -1)
 
-    prediction = heart_model.predict(features)[0]
-    return jsonify({'prediction': int(prediction)})
+@app.route('/predict/<name>/batch', methods=['POST'])
+def predict_batch(name):
+    # Score many rows in one model call: {"instances": [[...], [...]]}
+    if name not in MODELS:
+        return jsonify({'error': 'Unknown model: ' + name}), 404
+    instances = request.get_json()['instances']
+    predictions = predict_rows(name, instances) if instances else []
+    return jsonify({'predictions': predictions, 'model_version': MODEL_VERSIONS[name]})
 
 if __name__ == '__main__':
-    app.run(debug=True)
+    # Start extra replicas on other ports with e.g. PORT=5001 python app.py
+    app.run(debug=True, port=int(os.environ.get('PORT', 5000)))
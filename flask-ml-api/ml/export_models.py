@@ -0,0 +1,47 @@
+# ml/export_models.py
+#
+# Export each trained model as an XGBoost JSON tree dump so the Spring gateway
+# can score it in-process (app.prediction.local.*), and record the Python
+# probabilities over its dataset for the gateway's parity test.
+#
+# Run from flask-ml-api/ml after training:  python export_models.py
+
+import csv
+
+import numpy as np
+import pandas as pd
+
+from app import MODELS
+
+DATASETS = {
+    'diabetes': 'dataSets/diabetes.csv',
+    'heart': 'dataSets/heart_disease_data.csv',
+    'stroke': 'dataSets/healthcare-dataset-stroke-data.csv',
+    'parkinsons': 'dataSets/parkinsons.csv',
+}
+
+for name, (model, extract) in MODELS.items():
+    model.get_booster().save_model(f'models/{name}_model.json')
+
+    # Score the dataset exactly as the /predict routes would, skipping rows
+    # with missing values (e.g. stroke rows without a BMI)
+    df = pd.read_csv(DATASETS[name], encoding='utf-8-sig')
+    indices, rows = [], []
+    for index, record in enumerate(df.to_dict('records')):
+        features = extract(record)
+        if any(pd.isna(value) for value in features):
+            continue
+        indices.append(index)
+        rows.append(features)
+
+    features = np.array(rows, dtype=float)
+    probabilities = model.predict_proba(features)[:, 1]
+    predictions = model.predict(features)
+
+    with open(f'models/{name}_parity.csv', 'w', newline='') as f:
+        writer = csv.writer(f)
+        writer.writerow(['row', 'probability', 'prediction'])
+        for index, probability, prediction in zip(indices, probabilities, predictions):
+            writer.writerow([index, repr(float(probability)), int(prediction)])
+
+    print(f"Exported {name}: {len(rows)} parity rows")
@@ -24,8 +24,11 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import com.diagnoai.security.AuthEntryPointJwt;
 import com.diagnoai.security.AuthTokenFilter;
+import com.diagnoai.security.RateLimitFilter;
 import com.diagnoai.service.UserService;
 
+import jakarta.servlet.DispatcherType;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(prePostEnabled = true)
@@ -41,6 +44,10 @@ public class SecurityConfig {
     @Lazy
     private AuthTokenFilter authTokenFilter;
 
+    @Autowired
+    @Lazy
+    private RateLimitFilter rateLimitFilter;
+
     public SecurityConfig(AuthEntryPointJwt unauthorizedHandler) {
         this.unauthorizedHandler = unauthorizedHandler;
     }
@@ -70,7 +77,7 @@ public class SecurityConfig {
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
         configuration.setAllowCredentials(true);
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Retry-After", "X-Next-Cursor", "ETag"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -83,15 +90,22 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // Async dispatches finish responses already authorized as requests (streamed bulk results,
+                // exports and report streams); the token filter does not run for them, so they would
+                // otherwise be refused
                 .authorizeHttpRequests(auth
-                        -> auth.requestMatchers("/api/auth/**").permitAll()
+                        -> auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/predict/**").authenticated()
                         .requestMatchers("/api/users/**").authenticated()
                         .requestMatchers("/api/reports/**").authenticated()
+                        .requestMatchers("/api/metrics/**").authenticated()
                         .anyRequest().permitAll()
                 );
 
         http.authenticationProvider(authenticationProvider());
+        // Shed over-quota requests before the token filter loads the user from the database
+        http.addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class);
         http.addFilterBefore(authTokenFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
@@ -0,0 +1,79 @@
+package com.diagnoai.config;
+
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.diagnoai.entity.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/**
+ * Hibernate second-level cache for users. Regions are Caffeine caches behind
+ * JCache, each bounded in size and expiring entries after the time to live.
+ * Hibernate keeps them consistent with its own writes; changes it cannot see
+ * are evicted through {@link com.diagnoai.service.UserCache}.
+ */
+@Configuration
+public class UserCacheConfig {
+
+    // Cached results of the user queries in UserRepository
+    public static final String USER_QUERIES_REGION = "users.queries";
+
+    /**
+     * A cache manager of its own, so several application contexts in one JVM
+     * never share regions.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager userCacheManager(UserCacheProperties properties) {
+        CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager(
+                URI.create("diagnoai:user-cache:" + UUID.randomUUID()), getClass().getClassLoader());
+        OptionalLong timeToLive = OptionalLong.of(properties.getTimeToLive().toNanos());
+        OptionalLong collections = OptionalLong.of(properties.getMaximumRelativeCollections());
+        OptionalLong queryResults = OptionalLong.of(properties.getMaximumQueryResults());
+
+        cacheManager.createCache(User.CACHE_REGION, region(OptionalLong.of(properties.getMaximumUsers()), timeToLive));
+        cacheManager.createCache(User.RELATIVES_CACHE_REGION, region(collections, timeToLive));
+        cacheManager.createCache(User.RELATIVE_OF_CACHE_REGION, region(collections, timeToLive));
+        cacheManager.createCache(USER_QUERIES_REGION, region(queryResults, timeToLive));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(queryResults, timeToLive));
+        // One entry per table; losing one would let stale query results through
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                region(OptionalLong.empty(), OptionalLong.empty()));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer userCacheHibernateProperties(UserCacheProperties properties,
+            CacheManager userCacheManager) {
+        return hibernateProperties -> {
+            if (!properties.isEnabled()) {
+                return;
+            }
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, userCacheManager);
+            // A region missing from the manager above is a mistake, not something to create unbounded
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(OptionalLong maximumSize, OptionalLong timeToLive) {
+        CaffeineConfiguration<Object, Object> region = new CaffeineConfiguration<>();
+        region.setMaximumSize(maximumSize);
+        region.setExpireAfterWrite(timeToLive);
+        region.setNativeStatisticsEnabled(true);
+        return region;
+    }
+}
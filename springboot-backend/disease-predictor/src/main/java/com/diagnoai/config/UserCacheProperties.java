@@ -0,0 +1,30 @@
+package com.diagnoai.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the Hibernate second-level cache of users, their relative
+ * collections and the cached user queries ({@code app.users.cache.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.users.cache")
+public class UserCacheProperties {
+
+    private boolean enabled = true;
+
+    // Maximum cached User entities
+    private long maximumUsers = 50_000;
+
+    // Maximum cached relative collections, per direction
+    private long maximumRelativeCollections = 50_000;
+
+    // Maximum cached query results (lookups by username, relative lists and id lists)
+    private long maximumQueryResults = 20_000;
+
+    // Upper bound on staleness for changes made around Hibernate, e.g. by hand in the database
+    private Duration timeToLive = Duration.ofMinutes(30);
+}
@@ -0,0 +1,137 @@
+package com.diagnoai.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watches for virtual threads that stay pinned to their carrier (blocking
+ * inside {@code synchronized} or native code) for longer than the threshold.
+ * Each event is logged with its stack and counted against the first
+ * application frame, so recurring offenders show up in the metrics.
+ */
+@Component
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.diagnoai.";
+    private static final int MAX_TRACKED_SITES = 200;
+
+    private final Environment environment;
+    private final boolean enabled;
+    private final Duration threshold;
+
+    private final Map<String, LongAdder> pinnedBySite = new ConcurrentHashMap<>();
+    private final LongAdder pinnedEvents = new LongAdder();
+    private volatile long longestPinnedMs;
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(Environment environment,
+            @Value("${app.virtual-threads.pinning-monitor.enabled:true}") boolean enabled,
+            @Value("${app.virtual-threads.pinning-monitor.threshold:20ms}") Duration threshold) {
+        this.environment = environment;
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || !Threading.VIRTUAL.isActive(environment)) {
+            return;
+        }
+        try {
+            recording = new RecordingStream();
+            recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.startAsync();
+            log.info("Monitoring virtual thread pinning longer than {} ms", threshold.toMillis());
+        } catch (RuntimeException e) {
+            // JFR may be unavailable (e.g. a minimal runtime image); the app works without it
+            log.warn("Virtual thread pinning monitor not started: {}", e.getMessage());
+            recording = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        long durationMs = event.getDuration().toMillis();
+        if (durationMs > longestPinnedMs) {
+            longestPinnedMs = durationMs;
+        }
+
+        String site = applicationFrame(event.getStackTrace());
+        if (pinnedBySite.size() < MAX_TRACKED_SITES || pinnedBySite.containsKey(site)) {
+            pinnedBySite.computeIfAbsent(site, key -> new LongAdder()).increment();
+        }
+        log.warn("Virtual thread pinned for {} ms at {}\n{}", durationMs, site, format(event.getStackTrace()));
+    }
+
+    private static String applicationFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                return describe(frame);
+            }
+        }
+        return describe(frames.get(0));
+    }
+
+    private static String format(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "\t(no stack trace)";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            sb.append("\tat ").append(describe(frame)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> sites = new LinkedHashMap<>();
+        pinnedBySite.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(entry -> sites.put(entry.getKey(), entry.getValue().sum()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreads", Threading.VIRTUAL.isActive(environment));
+        stats.put("monitoring", recording != null);
+        stats.put("thresholdMs", threshold.toMillis());
+        stats.put("pinnedEvents", pinnedEvents.sum());
+        stats.put("longestPinnedMs", longestPinnedMs);
+        stats.put("pinnedBySite", sites);
+        return stats;
+    }
+}
@@ -1,10 +1,12 @@
 package com.diagnoai.controller;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -12,23 +14,43 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.diagnoai.dto.MessageResponse;
 
 import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.prediction.BulkPredictionService;
+import com.diagnoai.prediction.BulkRowReader;
+import com.diagnoai.prediction.FeatureSet;
+import com.diagnoai.prediction.FeatureValidationException;
+import com.diagnoai.prediction.FeatureVectorReader;
+import com.diagnoai.prediction.ModelUnavailableException;
+import com.diagnoai.prediction.PredictionClient;
+import com.diagnoai.prediction.PredictionMessages;
+import com.diagnoai.prediction.PredictionService;
+import com.diagnoai.service.PendingReport;
+import com.diagnoai.service.ReportWriteBehind;
 import com.diagnoai.service.TestReportService;
 import com.diagnoai.service.UserPrincipal;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/predict")
 public class DiseaseController {
 
-    private final RestTemplate restTemplate;
+    private static final ObjectMapper ERROR_WRITER = new ObjectMapper();
+
+    private final PredictionService predictionService;
+    private final PredictionClient predictionClient;
+    private final BulkPredictionService bulkPredictionService;
+    private final ReportWriteBehind reportWriteBehind;
 
     @Autowired(required = false)
     private TestReportService testReportService;
@@ -36,37 +58,99 @@ public class DiseaseController {
     @Autowired(required = false)
     private ObjectMapper objectMapper;
 
-    public DiseaseController(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public DiseaseController(PredictionService predictionService, PredictionClient predictionClient,
+            BulkPredictionService bulkPredictionService, ReportWriteBehind reportWriteBehind) {
+        this.predictionService = predictionService;
+        this.predictionClient = predictionClient;
+        this.bulkPredictionService = bulkPredictionService;
+        this.reportWriteBehind = reportWriteBehind;
     }
 
     @PostMapping("/diabetes")
-    public ResponseEntity<?> predictDiabetes(@RequestBody Map<String, Object> input) {
-        return forwardToFlask("/predict/diabetes", input, DiseaseType.DIABETES);
+    public ResponseEntity<?> predictDiabetes(HttpServletRequest request) {
+        return forwardToFlask(request, DiseaseType.DIABETES);
     }
 
     @PostMapping("/heart")
-    public ResponseEntity<?> predictHeart(@RequestBody Map<String, Object> input) {
-        return forwardToFlask("/predict/heart", input, DiseaseType.HEART);
+    public ResponseEntity<?> predictHeart(HttpServletRequest request) {
+        return forwardToFlask(request, DiseaseType.HEART);
     }
 
     @PostMapping("/stroke")
-    public ResponseEntity<?> predictStroke(@RequestBody Map<String, Object> input) {
-        return forwardToFlask("/predict/stroke", input, DiseaseType.STROKE);
+    public ResponseEntity<?> predictStroke(HttpServletRequest request) {
+        return forwardToFlask(request, DiseaseType.STROKE);
     }
 
     @PostMapping("/parkinsons")
-    public ResponseEntity<?> predictParkinsons(@RequestBody Map<String, Object> input) {
-        return forwardToFlask("/predict/parkinsons", input, DiseaseType.PARKINSONS);
+    public ResponseEntity<?> predictParkinsons(HttpServletRequest request) {
+        return forwardToFlask(request, DiseaseType.PARKINSONS);
     }
 
-    private ResponseEntity<?> forwardToFlask(String path, Map<String, Object> payload, DiseaseType diseaseType) {
+    /**
+     * Score many rows at once. The body is a JSON array of feature objects,
+     * NDJSON (Content-Type: application/x-ndjson) or a CSV file with a header
+     * line (Content-Type: text/csv). Results stream
+     * back as NDJSON, one line per row, followed by a summary line.
+     * <p>
+     * Declared as StreamingResponseBody, which is what makes MVC stream the
+     * body; errors are written through it as well.
+     */
+    @PostMapping("/{disease}/bulk")
+    public ResponseEntity<StreamingResponseBody> predictBulk(@PathVariable String disease,
+            HttpServletRequest request) {
+        DiseaseType diseaseType;
+        try {
+            diseaseType = DiseaseType.valueOf(disease.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return bulkError(new MessageResponse("Error: Unknown disease type: " + disease));
+        }
+
+        Long userId = null;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal userPrincipal) {
+            userId = userPrincipal.getId();
+        }
+
+        BulkRowReader reader;
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(payload, headers);
-            String flaskBaseUrl = "http://127.0.0.1:5000";
-            ResponseEntity<Map> response = restTemplate.postForEntity(flaskBaseUrl + path, request, Map.class);
+            reader = bulkPredictionService.openReader(request.getContentType(), request.getInputStream());
+        } catch (IOException | IllegalArgumentException e) {
+            return bulkError(new MessageResponse("Error: " + e.getMessage()));
+        }
+
+        Long ownerId = userId;
+        StreamingResponseBody body = out -> {
+            try (reader) {
+                bulkPredictionService.score(diseaseType, reader, ownerId, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> bulkError(MessageResponse error) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> ERROR_WRITER.writeValue(out, error));
+    }
+
+    private ResponseEntity<?> forwardToFlask(HttpServletRequest request, DiseaseType diseaseType) {
+        // Validated against the model's schema and read straight into model order
+        FeatureSet schema = FeatureSet.forDisease(diseaseType);
+        double[] features;
+        try {
+            features = FeatureVectorReader.read(schema, request.getInputStream());
+        } catch (FeatureValidationException e) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: Malformed request body: " + e.getMessage()));
+        }
+
+        try {
+            Map<String, Object> flaskResponse = predictionService.predict(diseaseType, features);
 
             // Try to save to database if user is authenticated and services are available
             try {
@@ -76,29 +160,45 @@ public class DiseaseController {
                         && testReportService != null && objectMapper != null) {
 
                     UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-                    Map<String, Object> flaskResponse = response.getBody();
 
                     if (flaskResponse != null && flaskResponse.containsKey("prediction")) {
                         Integer predictionResult = (Integer) flaskResponse.get("prediction");
                         Double probability = flaskResponse.get("probability") != null
                                 ? ((Number) flaskResponse.get("probability")).doubleValue() : null;
 
-                        String predictionMessage = createPredictionMessage(diseaseType, predictionResult, probability);
+                        String predictionMessage = PredictionMessages.createPredictionMessage(diseaseType, predictionResult, probability);
+                        Map<String, Object> input = schema.toInputMap(features);
                         String inputDataJson;
                         try {
-                            inputDataJson = objectMapper.writeValueAsString(payload);
+                            inputDataJson = objectMapper.writeValueAsString(input);
                         } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-                            inputDataJson = payload.toString();
+                            inputDataJson = input.toString();
                         }
 
-                        testReportService.saveTestReport(
-                                userPrincipal.getId(),
-                                diseaseType,
-                                predictionResult,
-                                probability,
-                                inputDataJson,
-                                predictionMessage
-                        );
+                        if (reportWriteBehind.isEnabled()) {
+                            // Persisted asynchronously by the report writer
+                            boolean accepted = reportWriteBehind.submit(new PendingReport(
+                                    userPrincipal.getId(),
+                                    diseaseType,
+                                    predictionResult,
+                                    probability,
+                                    inputDataJson,
+                                    predictionMessage,
+                                    LocalDateTime.now()
+                            ));
+                            if (!accepted) {
+                                System.err.println("Report writer is saturated; test report was not saved");
+                            }
+                        } else {
+                            testReportService.saveTestReport(
+                                    userPrincipal.getId(),
+                                    diseaseType,
+                                    predictionResult,
+                                    probability,
+                                    inputDataJson,
+                                    predictionMessage
+                            );
+                        }
 
                         // Add message to response
                         flaskResponse.put("message", predictionMessage);
@@ -109,9 +209,20 @@ public class DiseaseController {
                 System.err.println("Failed to save test report: " + saveException.getMessage());
             }
 
-            return ResponseEntity.ok(response.getBody());
+            return ResponseEntity.ok(flaskResponse);
+        } catch (ModelUnavailableException e) {
+            long retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("error", e.getMessage());
+            error.put("disease", diseaseType.name());
+            error.put("reason", e.getReason().name());
+            error.put("retryAfterSeconds", retryAfterSeconds);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(error);
         } catch (org.springframework.web.client.RestClientException e) {
-            String errorMessage = "Failed to call Flask ML API. Please ensure the Flask server is running on port 5000. Error: " + e.getMessage();
+            String errorMessage = "Failed to call Flask ML API at " + predictionClient.urlFor(diseaseType)
+                    + ". Please ensure the Flask server is running. Error: " + e.getMessage();
             System.err.println("Flask API Error: " + errorMessage);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.<String, String>of("error", errorMessage,
@@ -123,17 +234,4 @@ public class DiseaseController {
                     .body(Map.<String, String>of("error", errorMessage));
         }
     }
-
-    private String createPredictionMessage(DiseaseType diseaseType, Integer prediction, Double probability) {
-        String diseaseName = diseaseType.name().toLowerCase();
-        if (prediction == 1) {
-            String probText = probability != null ? String.format(" (%.1f%% probability)", probability * 100) : "";
-            return "Based on the provided data, there are indicators suggesting a risk for " + diseaseName + probText
-                    + ". Please consult with a healthcare professional for proper diagnosis and treatment.";
-        } else {
-            String probText = probability != null ? String.format(" (%.1f%% probability)", (1 - probability) * 100) : "";
-            return "Based on the provided data, the risk for " + diseaseName + " appears to be low" + probText
-                    + ". However, regular health checkups are always recommended.";
-        }
-    }
 }
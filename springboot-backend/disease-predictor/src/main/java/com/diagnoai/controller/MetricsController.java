@@ -0,0 +1,157 @@
+package com.diagnoai.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.diagnoai.config.VirtualThreadPinningMonitor;
+import com.diagnoai.prediction.LocalModels;
+import com.diagnoai.prediction.ModelGuard;
+import com.diagnoai.prediction.PredictionBatcher;
+import com.diagnoai.prediction.PredictionCache;
+import com.diagnoai.prediction.PredictionClient;
+import com.diagnoai.prediction.PredictionService;
+import com.diagnoai.security.RateLimiter;
+import com.diagnoai.service.FamilyGraph;
+import com.diagnoai.service.IdAllocator;
+import com.diagnoai.service.ReportArchive;
+import com.diagnoai.service.ReportCompaction;
+import com.diagnoai.service.ReportCounters;
+import com.diagnoai.service.ReportFeed;
+import com.diagnoai.service.ReportImporter;
+import com.diagnoai.service.ReportTrends;
+import com.diagnoai.service.ReportWriteBehind;
+import com.diagnoai.service.UserCache;
+import com.diagnoai.service.UserNameIndex;
+
+import lombok.RequiredArgsConstructor;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final PredictionClient predictionClient;
+    private final PredictionCache predictionCache;
+    private final PredictionBatcher predictionBatcher;
+    private final ReportWriteBehind reportWriteBehind;
+    private final VirtualThreadPinningMonitor virtualThreadPinningMonitor;
+    private final ModelGuard modelGuard;
+    private final LocalModels localModels;
+    private final RateLimiter rateLimiter;
+    private final PredictionService predictionService;
+    private final ReportCounters reportCounters;
+    private final ReportTrends reportTrends;
+    private final ReportCompaction reportCompaction;
+    private final ReportArchive reportArchive;
+    private final FamilyGraph familyGraph;
+    private final UserCache userCache;
+    private final UserNameIndex userNameIndex;
+    private final ReportResponseCache reportResponseCache;
+    private final ReportFeed reportFeed;
+    private final ReportImporter reportImporter;
+    private final IdAllocator idAllocator;
+
+    @GetMapping("/prediction-client")
+    public ResponseEntity<?> getPredictionClientStats() {
+        return ResponseEntity.ok(predictionClient.getStats());
+    }
+
+    @GetMapping("/prediction-cache")
+    public ResponseEntity<?> getPredictionCacheStats() {
+        return ResponseEntity.ok(predictionCache.getStats());
+    }
+
+    @GetMapping("/prediction-single-flight")
+    public ResponseEntity<?> getPredictionSingleFlightStats() {
+        return ResponseEntity.ok(predictionService.getStats());
+    }
+
+    @GetMapping("/prediction-batching")
+    public ResponseEntity<?> getPredictionBatchingStats() {
+        return ResponseEntity.ok(predictionBatcher.getStats());
+    }
+
+    @GetMapping("/model-guard")
+    public ResponseEntity<?> getModelGuardStats() {
+        return ResponseEntity.ok(modelGuard.getStats());
+    }
+
+    @GetMapping("/local-models")
+    public ResponseEntity<?> getLocalModelStats() {
+        return ResponseEntity.ok(localModels.getStats());
+    }
+
+    @GetMapping("/rate-limit")
+    public ResponseEntity<?> getRateLimitStats() {
+        return ResponseEntity.ok(rateLimiter.getStats());
+    }
+
+    @GetMapping("/report-writer")
+    public ResponseEntity<?> getReportWriterStats() {
+        return ResponseEntity.ok(reportWriteBehind.getStats());
+    }
+
+    @GetMapping("/report-counters")
+    public ResponseEntity<?> getReportCounterStats() {
+        return ResponseEntity.ok(reportCounters.getStats());
+    }
+
+    @GetMapping("/report-trends")
+    public ResponseEntity<?> getReportTrendStats() {
+        return ResponseEntity.ok(reportTrends.getStats());
+    }
+
+    @GetMapping("/report-compaction")
+    public ResponseEntity<?> getReportCompactionStats() {
+        return ResponseEntity.ok(reportCompaction.getStats());
+    }
+
+    @GetMapping("/report-archive")
+    public ResponseEntity<?> getReportArchiveStats() {
+        return ResponseEntity.ok(reportArchive.getStats());
+    }
+
+    @GetMapping("/access-graph")
+    public ResponseEntity<?> getAccessGraphStats() {
+        return ResponseEntity.ok(familyGraph.getStats());
+    }
+
+    @GetMapping("/user-cache")
+    public ResponseEntity<?> getUserCacheStats() {
+        return ResponseEntity.ok(userCache.getStats());
+    }
+
+    @GetMapping("/user-search")
+    public ResponseEntity<?> getUserSearchStats() {
+        return ResponseEntity.ok(userNameIndex.getStats());
+    }
+
+    @GetMapping("/report-feed")
+    public ResponseEntity<?> getReportFeedStats() {
+        return ResponseEntity.ok(reportFeed.getStats());
+    }
+
+    @GetMapping("/report-import")
+    public ResponseEntity<?> getReportImportStats() {
+        return ResponseEntity.ok(reportImporter.getStats());
+    }
+
+    @GetMapping("/id-blocks")
+    public ResponseEntity<?> getIdBlockStats() {
+        return ResponseEntity.ok(idAllocator.getStats());
+    }
+
+    @GetMapping("/report-responses")
+    public ResponseEntity<?> getReportResponseStats() {
+        return ResponseEntity.ok(reportResponseCache.getStats());
+    }
+
+    @GetMapping("/virtual-threads")
+    public ResponseEntity<?> getVirtualThreadStats() {
+        return ResponseEntity.ok(virtualThreadPinningMonitor.getStats());
+    }
+}
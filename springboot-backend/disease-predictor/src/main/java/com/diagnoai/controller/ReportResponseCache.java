@@ -0,0 +1,190 @@
+package com.diagnoai.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.diagnoai.service.ReportVersions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Conditional GETs for report views that clients poll. Each response carries
+ * a strong ETag made from the versions of the users it covers; a request
+ * whose If-None-Match still matches gets a 304 before anything is read. Past
+ * that, the serialized bytes of each requester's latest response per view are
+ * kept, gzipped too when large, and sent again for as long as the ETag holds.
+ * The gzipped body is a different representation, so it is tagged apart:
+ * {@code -gz} is added inside the quotes. Either tag revalidates.
+ * <p>
+ * Only successful responses are tagged and kept; anything else passes
+ * through as the view returned it.
+ */
+@Component
+public class ReportResponseCache {
+
+    private final ReportVersions reportVersions;
+    private final ObjectMapper objectMapper;
+    private final ReportResponseCacheProperties properties;
+    private final Cache<Key, CachedResponse> cache;
+
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder gzipped = new LongAdder();
+
+    public ReportResponseCache(ReportVersions reportVersions, ObjectMapper objectMapper,
+            ReportResponseCacheProperties properties) {
+        this.reportVersions = reportVersions;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumSize().toBytes())
+                .weigher((Key key, CachedResponse response) -> response.weight())
+                .recordStats()
+                .build();
+    }
+
+    private record Key(Long requesterId, String view) {
+    }
+
+    private record CachedResponse(String etag, HttpHeaders headers, byte[] body, byte[] gzippedBody) {
+
+        int weight() {
+            return body.length + (gzippedBody != null ? gzippedBody.length : 0);
+        }
+    }
+
+    /**
+     * Answer a view of the reports of the given users.
+     *
+     * @param view    Identifies the endpoint and its parameters for this requester
+     * @param userIds Everyone whose reports the view shows
+     * @param render  Reads and builds the response; called only when the client's copy and ours are stale
+     */
+    public ResponseEntity<?> respond(Long requesterId, String view, Collection<Long> userIds,
+            String ifNoneMatch, String acceptEncoding, Supplier<ResponseEntity<?>> render) {
+        // Taken before anything is read, so a save landing meanwhile changes the next tag
+        String etag = reportVersions.etag(view, requesterId, userIds);
+        String matched = matching(ifNoneMatch, etag);
+        if (matched != null) {
+            notModified.increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(matched)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        Key key = new Key(requesterId, view);
+        CachedResponse response = properties.isEnabled() ? cache.getIfPresent(key) : null;
+        if (response != null && response.etag().equals(etag)) {
+            reused.increment();
+        } else {
+            ResponseEntity<?> fresh = render.get();
+            if (fresh.getStatusCode() != HttpStatus.OK) {
+                return fresh;
+            }
+            response = serialize(etag, fresh);
+            rendered.increment();
+            if (properties.isEnabled()) {
+                cache.put(key, response);
+            }
+        }
+
+        boolean gzip = response.gzippedBody() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .headers(response.headers())
+                .eTag(gzip ? gzipTag(etag) : etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            gzipped.increment();
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? response.gzippedBody() : response.body());
+    }
+
+    private CachedResponse serialize(String etag, ResponseEntity<?> response) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(response.getBody());
+            byte[] gzippedBody = null;
+            if (body.length >= properties.getGzipMinSize().toBytes()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(body);
+                }
+                gzippedBody = out.toByteArray();
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(response.getHeaders());
+            return new CachedResponse(etag, HttpHeaders.readOnlyHttpHeaders(headers), body, gzippedBody);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // "abc" becomes "abc-gz"
+    static String gzipTag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
+    }
+
+    /**
+     * If-None-Match compares weakly: a W/ prefix added by a proxy that
+     * recompressed the body still matches.
+     *
+     * @return The plain or gzip tag the client holds, or null if it holds
+     *         neither
+     */
+    static String matching(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        String gzipTag = gzipTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return etag;
+            }
+            if (tag.equals(gzipTag)) {
+                return gzipTag;
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("notModified", notModified.sum());
+        result.put("reused", reused.sum());
+        result.put("rendered", rendered.sum());
+        result.put("gzipped", gzipped.sum());
+        result.put("cachedResponses", cache.estimatedSize());
+        result.put("cachedBytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L));
+        result.put("evictions", stats.evictionCount());
+        result.put("versions", reportVersions.getStats());
+        return result;
+    }
+}
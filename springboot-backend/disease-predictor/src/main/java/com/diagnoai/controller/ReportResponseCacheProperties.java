@@ -0,0 +1,24 @@
+package com.diagnoai.controller;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Settings for conditional report list and count responses
+ * ({@code app.reports.responses.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.reports.responses")
+public class ReportResponseCacheProperties {
+
+    // Keep the serialized bytes of each user's latest responses; ETags and 304s work either way
+    private boolean enabled = true;
+
+    // Bound on the cached bytes, plain and gzipped together, across all users
+    private DataSize maximumSize = DataSize.ofMegabytes(64);
+
+    // Bodies at least this large are also kept gzipped, for clients that accept it
+    private DataSize gzipMinSize = DataSize.ofKilobytes(1);
+}
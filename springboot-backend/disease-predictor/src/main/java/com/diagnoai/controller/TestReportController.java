@@ -1,9 +1,18 @@
 package com.diagnoai.controller;
 
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -12,18 +21,36 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.diagnoai.dto.MessageResponse;
+import com.diagnoai.dto.ReportSummary;
 import com.diagnoai.entity.DiseaseType;
 import com.diagnoai.entity.TestReport;
 import com.diagnoai.entity.User;
 import com.diagnoai.entity.UserRole;
+import com.diagnoai.prediction.BulkRowReader;
 import com.diagnoai.repository.UserRepository;
+import com.diagnoai.service.ReportCursor;
+import com.diagnoai.service.ReportExporter;
+import com.diagnoai.service.ReportFeed;
+import com.diagnoai.service.ReportImporter;
+import com.diagnoai.service.ReportPage;
+import com.diagnoai.service.ReportPageProperties;
+import com.diagnoai.service.ReportQuery;
+import com.diagnoai.service.ReportTally;
+import com.diagnoai.service.ReportTrends;
 import com.diagnoai.service.TestReportService;
+import com.diagnoai.service.TrendSeries;
 import com.diagnoai.service.UserPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -32,27 +59,33 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class TestReportController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final ObjectMapper ERROR_WRITER = new ObjectMapper();
+
     private final TestReportService testReportService;
     private final UserRepository userRepository;
+    private final ReportPageProperties pageProperties;
+    private final ReportExporter reportExporter;
+    private final ReportResponseCache responseCache;
+    private final ReportFeed reportFeed;
+    private final ReportImporter reportImporter;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/my-reports")
-    public ResponseEntity<?> getMyTestReports() {
+    public ResponseEntity<?> getMyTestReports(@RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
 
             // Use role-based access: relatives can see reports of users who added them
-            List<TestReport> reports = testReportService.getAccessibleTestReports(userPrincipal.getId());
-
-            if (reports == null) {
-                reports = new ArrayList<>();
-            }
-
-            List<TestReportResponse> reportResponses = reports.stream()
-                    .map(TestReportResponse::new)
-                    .collect(Collectors.toList());
-
-            return ResponseEntity.ok(reportResponses);
+            int listLimit = pageProperties.clamp(limit, pageProperties.getListLimit());
+            return responseCache.respond(userPrincipal.getId(), "accessible:" + listLimit,
+                    testReportService.getAccessibleUserIds(userPrincipal.getId()), ifNoneMatch, acceptEncoding,
+                    () -> listResponse(testReportService.getAccessibleTestReports(userPrincipal.getId(),
+                            ReportQuery.firstPage(listLimit))));
         } catch (Exception e) {
             System.err.println("Error in getMyTestReports: " + e.getMessage());
             e.printStackTrace();
@@ -62,17 +95,19 @@ public class TestReportController {
     }
 
     @GetMapping("/accessible-reports")
-    public ResponseEntity<?> getAccessibleTestReports() {
+    public ResponseEntity<?> getAccessibleTestReports(@RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
 
-            List<TestReport> reports = testReportService.getAccessibleTestReports(userPrincipal.getId());
-            List<TestReportResponse> reportResponses = reports.stream()
-                    .map(TestReportResponse::new)
-                    .collect(Collectors.toList());
-
-            return ResponseEntity.ok(reportResponses);
+            // Same view as /my-reports, so the two share their ETag and cached bytes
+            int listLimit = pageProperties.clamp(limit, pageProperties.getListLimit());
+            return responseCache.respond(userPrincipal.getId(), "accessible:" + listLimit,
+                    testReportService.getAccessibleUserIds(userPrincipal.getId()), ifNoneMatch, acceptEncoding,
+                    () -> listResponse(testReportService.getAccessibleTestReports(userPrincipal.getId(),
+                            ReportQuery.firstPage(listLimit))));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(new MessageResponse("Error: " + e.getMessage()));
@@ -80,18 +115,140 @@ public class TestReportController {
     }
 
     @GetMapping("/by-disease/{diseaseType}")
-    public ResponseEntity<?> getTestReportsByDisease(@PathVariable String diseaseType) {
+    public ResponseEntity<?> getTestReportsByDisease(@PathVariable String diseaseType,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
 
             DiseaseType disease = DiseaseType.valueOf(diseaseType.toUpperCase());
-            List<TestReport> reports = testReportService.getUserTestReportsByDisease(userPrincipal.getId(), disease);
-            List<TestReportResponse> reportResponses = reports.stream()
-                    .map(TestReportResponse::new)
-                    .collect(Collectors.toList());
+            int listLimit = pageProperties.clamp(limit, pageProperties.getListLimit());
+            return responseCache.respond(userPrincipal.getId(), "disease:" + disease + ":" + listLimit,
+                    Set.of(userPrincipal.getId()), ifNoneMatch, acceptEncoding,
+                    () -> listResponse(testReportService.getUserTestReports(userPrincipal.getId(),
+                            new ReportQuery(disease, null, null, null, listLimit))));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
 
-            return ResponseEntity.ok(reportResponses);
+    /**
+     * Page through the accessible reports, newest first. Pass the returned
+     * nextCursor back as cursor to get the following page; filters must stay
+     * the same between pages.
+     *
+     * @param from First day to include (yyyy-MM-dd)
+     * @param to   Last day to include (yyyy-MM-dd)
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getTestReportPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String disease,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+            ReportQuery query = new ReportQuery(
+                    disease != null ? DiseaseType.valueOf(disease.toUpperCase()) : null,
+                    from != null ? from.atStartOfDay() : null,
+                    to != null ? to.plusDays(1).atStartOfDay() : null,
+                    cursor != null ? ReportCursor.decode(cursor) : null,
+                    pageProperties.clamp(size, pageProperties.getDefaultSize()));
+            ReportPage page = testReportService.getAccessibleTestReports(userPrincipal.getId(), query);
+
+            return ResponseEntity.ok(new TestReportPageResponse(page));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Download the full history of accessible reports, newest first, as
+     * NDJSON or CSV. Rows stream from the database as they are read, and the
+     * body is gzipped when the client accepts it. Declared as
+     * StreamingResponseBody, which is what makes MVC stream the body; errors
+     * are written through it as well.
+     *
+     * @param format ndjson (default) or csv
+     * @param from   First day to include (yyyy-MM-dd)
+     * @param to     Last day to include (yyyy-MM-dd)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTestReports(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String disease,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ReportExporter.Format exportFormat;
+        DiseaseType diseaseType;
+        Set<Long> userIds;
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+            exportFormat = ReportExporter.Format.valueOf(format.toUpperCase());
+            diseaseType = disease != null ? DiseaseType.valueOf(disease.toUpperCase()) : null;
+            // Resolved up front: the body is written on another thread, after access is settled
+            userIds = testReportService.getAccessibleUserIds(userPrincipal.getId());
+        } catch (Exception e) {
+            MessageResponse error = new MessageResponse("Error: " + e.getMessage());
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> ERROR_WRITER.writeValue(out, error));
+        }
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+            reportExporter.export(userIds, diseaseType,
+                    from != null ? from.atStartOfDay() : null,
+                    to != null ? to.plusDays(1).atStartOfDay() : null,
+                    exportFormat, target);
+            if (target instanceof GZIPOutputStream gzipOut) {
+                gzipOut.finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"reports." + exportFormat.extension() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Server-sent events of reports saved from now on, the requester's own
+     * and those of everyone whose reports they may see: one "report" event
+     * each, with the fields of the lists. Clients that fall behind are
+     * disconnected; on reconnecting, reload the list to catch up.
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<?> streamTestReports() {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+            Optional<SseEmitter> emitter = reportFeed.subscribe(userPrincipal.getId());
+            if (emitter.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "30")
+                        .body(new MessageResponse("Error: Report stream is not available"));
+            }
+            return ResponseEntity.ok()
+                    .header("X-Accel-Buffering", "no")
+                    .body(emitter.get());
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(new MessageResponse("Error: " + e.getMessage()));
@@ -104,15 +261,14 @@ public class TestReportController {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
 
-            if (!testReportService.hasAccessToReport(userPrincipal.getId(), reportId)) {
+            // One query for the report and its owner; a missing report is reported as denied too
+            Optional<TestReport> report = testReportService.getTestReportById(reportId);
+            if (report.isEmpty() || !testReportService.hasAccessToReport(userPrincipal.getId(), report.get())) {
                 return ResponseEntity.badRequest()
                         .body(new MessageResponse("Error: Access denied to this report"));
             }
 
-            TestReport report = testReportService.getTestReportById(reportId)
-                    .orElseThrow(() -> new RuntimeException("Report not found"));
-
-            return ResponseEntity.ok(new TestReportResponse(report));
+            return ResponseEntity.ok(new TestReportResponse(report.get()));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(new MessageResponse("Error: " + e.getMessage()));
@@ -120,19 +276,25 @@ public class TestReportController {
     }
 
     @GetMapping("/stats/count")
-    public ResponseEntity<?> getTestCount() {
+    public ResponseEntity<?> getTestCount(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
 
-            // Use role-based count that includes accessible reports
-            Long count = testReportService.getAccessibleTestReportsCount(userPrincipal.getId());
+            return responseCache.respond(userPrincipal.getId(), "count",
+                    testReportService.getAccessibleUserIds(userPrincipal.getId()), ifNoneMatch, acceptEncoding,
+                    () -> {
+                        // Use role-based count that includes accessible reports
+                        Long count = testReportService.getAccessibleTestReportsCount(userPrincipal.getId());
 
-            if (count == null) {
-                count = 0L;
-            }
+                        if (count == null) {
+                            count = 0L;
+                        }
 
-            return ResponseEntity.ok(new TestCountResponse(count));
+                        return ResponseEntity.ok(new TestCountResponse(count));
+                    });
         } catch (Exception e) {
             System.err.println("Error in getTestCount: " + e.getMessage());
             e.printStackTrace();
@@ -140,6 +302,68 @@ public class TestReportController {
         }
     }
 
+    /**
+     * Report counts of the requester and of everyone whose reports they may
+     * see, per disease and outcome. Served from the maintained counters, never
+     * by counting report rows.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getReportStats(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+            return responseCache.respond(userPrincipal.getId(), "stats",
+                    testReportService.getAccessibleUserIds(userPrincipal.getId()), ifNoneMatch, acceptEncoding,
+                    () -> {
+                        Map<Long, ReportTally> tallies = testReportService.getAccessibleReportTallies(
+                                userPrincipal.getId());
+
+                        return ResponseEntity.ok(new ReportStatsResponse(tallies));
+                    });
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Risk trend per disease as columnar series, one entry per bucket that has
+     * reports. Read from the maintained trend buckets, so the cost follows the
+     * number of buckets rather than the number of reports.
+     *
+     * @param resolution day (default), week or month
+     * @param userId     Whose trend; defaults to the requester
+     * @param from       First day to include (yyyy-MM-dd)
+     * @param to         Last day to include (yyyy-MM-dd), default today
+     */
+    @GetMapping("/trends")
+    public ResponseEntity<?> getReportTrends(
+            @RequestParam(defaultValue = "day") String resolution,
+            @RequestParam(required = false) String disease,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+            ReportTrends.Resolution trendResolution = ReportTrends.Resolution.valueOf(resolution.toUpperCase());
+            DiseaseType diseaseType = disease != null ? DiseaseType.valueOf(disease.toUpperCase()) : null;
+            Long ownerId = userId != null ? userId : userPrincipal.getId();
+
+            Map<DiseaseType, TrendSeries> series = testReportService.getReportTrends(
+                    userPrincipal.getId(), ownerId, trendResolution, diseaseType, from, to);
+
+            return ResponseEntity.ok(new ReportTrendsResponse(ownerId, trendResolution, series));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
     @PostMapping("/save")
     public ResponseEntity<?> saveTestReport(@RequestBody SaveReportRequest request) {
         try {
@@ -173,6 +397,49 @@ public class TestReportController {
         }
     }
 
+    /**
+     * Import past reports of the requester from CSV (Content-Type: text/csv),
+     * NDJSON (application/x-ndjson) or a JSON array, with the columns of
+     * /export: diseaseType, predictionResult, probability, inputData,
+     * predictionMessage and createdAt; other columns are ignored. Invalid
+     * rows are skipped and reported.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importTestReports(HttpServletRequest request) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+            // Only main users have reports of their own, as for /save
+            User user = userRepository.findById(userPrincipal.getId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            if (user.getRole() != UserRole.USER) {
+                return ResponseEntity.badRequest()
+                        .body(new MessageResponse("Error: Only main users can import health assessments."));
+            }
+
+            try (BulkRowReader reader = BulkRowReader.open(objectMapper, request.getContentType(),
+                    request.getInputStream())) {
+                return ResponseEntity.ok(new ImportResponse(reportImporter.importReports(user.getId(), reader)));
+            }
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * A plain list, as these endpoints always returned, with the cursor of the
+     * rest in a header when the list was cut off.
+     */
+    private static ResponseEntity<?> listResponse(ReportPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasMore()) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.reports());
+    }
+
     // Response DTOs
     public static class TestReportResponse {
 
@@ -199,6 +466,19 @@ public class TestReportController {
         }
     }
 
+    public static class TestReportPageResponse {
+
+        public List<ReportSummary> reports;
+        public String nextCursor;
+        public boolean hasMore;
+
+        public TestReportPageResponse(ReportPage page) {
+            this.reports = page.reports();
+            this.nextCursor = page.nextCursor();
+            this.hasMore = page.hasMore();
+        }
+    }
+
     public static class TestCountResponse {
 
         public Long count;
@@ -208,6 +488,70 @@ public class TestReportController {
         }
     }
 
+    public static class OutcomeCounts {
+
+        public long total;
+        public long positive;
+        public long negative;
+
+        public OutcomeCounts(long positive, long negative) {
+            this.total = positive + negative;
+            this.positive = positive;
+            this.negative = negative;
+        }
+    }
+
+    public static class ReportStatsResponse extends OutcomeCounts {
+
+        public Map<String, OutcomeCounts> byDisease = new LinkedHashMap<>();
+        public Map<Long, OutcomeCounts> byUser = new LinkedHashMap<>();
+
+        public ReportStatsResponse(Map<Long, ReportTally> tallies) {
+            this(ReportTally.sum(tallies.values()), tallies);
+        }
+
+        private ReportStatsResponse(ReportTally combined, Map<Long, ReportTally> tallies) {
+            super(combined.positive(), combined.total() - combined.positive());
+            for (DiseaseType diseaseType : DiseaseType.values()) {
+                byDisease.put(diseaseType.name(),
+                        new OutcomeCounts(combined.positive(diseaseType), combined.negative(diseaseType)));
+            }
+            tallies.forEach((userId, tally) -> byUser.put(userId,
+                    new OutcomeCounts(tally.positive(), tally.total() - tally.positive())));
+        }
+    }
+
+    public static class ReportTrendsResponse {
+
+        public Long userId;
+        public String resolution;
+        public Map<DiseaseType, TrendSeries> series;
+
+        public ReportTrendsResponse(Long userId, ReportTrends.Resolution resolution,
+                Map<DiseaseType, TrendSeries> series) {
+            this.userId = userId;
+            this.resolution = resolution.name();
+            this.series = series;
+        }
+    }
+
+    public static class ImportResponse {
+
+        public int imported;
+        public int rejected;
+        public List<String> errors;
+        public long elapsedMs;
+        public double rowsPerSecond;
+
+        public ImportResponse(ReportImporter.Result result) {
+            this.imported = result.imported();
+            this.rejected = result.rejected();
+            this.errors = result.errors();
+            this.elapsedMs = result.elapsedMs();
+            this.rowsPerSecond = result.rowsPerSecond();
+        }
+    }
+
     public static class SaveReportRequest {
 
         public String diseaseType;
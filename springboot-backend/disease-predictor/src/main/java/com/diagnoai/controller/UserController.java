@@ -2,6 +2,7 @@ package com.diagnoai.controller;
 
 import com.diagnoai.dto.MessageResponse;
 import com.diagnoai.entity.User;
+import com.diagnoai.service.UserNameIndex;
 import com.diagnoai.service.UserPrincipal;
 import com.diagnoai.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -74,14 +75,17 @@ public class UserController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<?> searchUsers(@RequestParam String name) {
+    public ResponseEntity<?> searchUsers(@RequestParam String name,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(required = false) Integer size) {
         try {
-            List<User> users = userService.searchUsersByName(name);
-            List<UserResponse> userResponses = users.stream()
-                .map(UserResponse::new)
-                .collect(Collectors.toList());
+            if (page < 0) {
+                return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: page must not be negative"));
+            }
+            UserNameIndex.Page matches = userService.searchUsers(name, page, size);
             
-            return ResponseEntity.ok(userResponses);
+            return ResponseEntity.ok(new UserSearchResponse(matches));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                 .body(new MessageResponse("Error: " + e.getMessage()));
@@ -111,5 +115,36 @@ public class UserController {
             this.role = user.getRole().name();
             this.createdAt = user.getCreatedAt() != null ? user.getCreatedAt().toString() : null;
         }
+        
+        public UserResponse(UserNameIndex.Entry user) {
+            this.id = user.id();
+            this.username = user.username();
+            this.fullName = user.fullName();
+            this.email = user.email();
+            this.phoneNumber = user.phoneNumber();
+            this.gender = user.gender();
+            this.age = user.age();
+            this.role = user.role() != null ? user.role().name() : null;
+            this.createdAt = user.createdAt() != null ? user.createdAt().toString() : null;
+        }
+    }
+    
+    // One page of search results, best match first
+    public static class UserSearchResponse {
+        public List<UserResponse> users;
+        public int page;
+        public int size;
+        public int total;
+        public boolean hasMore;
+        
+        public UserSearchResponse(UserNameIndex.Page matches) {
+            this.users = matches.users().stream()
+                .map(UserResponse::new)
+                .collect(Collectors.toList());
+            this.page = matches.page();
+            this.size = matches.size();
+            this.total = matches.total();
+            this.hasMore = matches.hasMore();
+        }
     }
 }
@@ -0,0 +1,36 @@
+package com.diagnoai.dto;
+
+import java.time.LocalDateTime;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.prediction.PredictionMessages;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+/**
+ * One row of a report listing, read with a constructor projection that joins
+ * the owner's name and email. Rows are plain values, never managed entities,
+ * and leave out the stored input data; the single-report endpoint returns it.
+ * Messages stored as a template id are rendered as the row is read.
+ */
+public record ReportSummary(
+        Long id,
+        DiseaseType diseaseType,
+        Integer predictionResult,
+        Double probability,
+        String predictionMessage,
+        @JsonSerialize(using = ToStringSerializer.class) LocalDateTime createdAt,
+        String userName,
+        String userEmail) {
+
+    // Used by the projection queries, which also read the message template
+    public ReportSummary(Long id, DiseaseType diseaseType, Integer predictionResult, Double probability,
+            String predictionMessage, Short messageTemplate, LocalDateTime createdAt, String userName,
+            String userEmail) {
+        this(id, diseaseType, predictionResult, probability,
+                predictionMessage == null && messageTemplate != null
+                        ? PredictionMessages.render(messageTemplate, diseaseType, probability)
+                        : predictionMessage,
+                createdAt, userName, userEmail);
+    }
+}
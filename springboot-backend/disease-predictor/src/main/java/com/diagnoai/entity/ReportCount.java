@@ -0,0 +1,52 @@
+package com.diagnoai.entity;
+
+import java.io.Serializable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Number of reports one user has for one disease and outcome. Maintained
+ * alongside test_reports so the stats endpoints never count report rows.
+ */
+@Entity
+@Table(name = "report_counts")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportCount {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "report_count", nullable = false)
+    private long reportCount;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "user_id")
+        private Long userId;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "disease_type", length = 20)
+        private DiseaseType diseaseType;
+
+        @Column(name = "prediction_result")
+        private Integer predictionResult; // 0 or 1
+    }
+}
@@ -0,0 +1,68 @@
+package com.diagnoai.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Reports of one user and disease within one day, week or month. Maintained
+ * alongside test_reports so trend charts read one row per bucket.
+ */
+@Entity
+@Table(name = "report_trends")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportTrendBucket {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "report_count", nullable = false)
+    private long reportCount;
+
+    @Column(name = "positive_count", nullable = false)
+    private long positiveCount;
+
+    // Sum and number of the reports that have a probability, for the mean
+    @Column(name = "probability_sum", nullable = false)
+    private double probabilitySum;
+
+    @Column(name = "probability_count", nullable = false)
+    private long probabilityCount;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "user_id")
+        private Long userId;
+
+        // DAY, WEEK or MONTH
+        @Column(name = "resolution", length = 5)
+        private String resolution;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "disease_type", length = 20)
+        private DiseaseType diseaseType;
+
+        // First day of the bucket; weeks start on Monday
+        @Column(name = "bucket_start")
+        private LocalDate bucketStart;
+    }
+}
@@ -2,7 +2,8 @@ package com.diagnoai.entity;
 
 import java.time.LocalDateTime;
 
-import org.hibernate.annotations.CreationTimestamp;
+import com.diagnoai.prediction.PackedInput;
+import com.diagnoai.prediction.PredictionMessages;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -12,24 +13,35 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "test_reports")
+// Serve the newest-first keyset listings straight from an index
+@Table(name = "test_reports", indexes = {
+    @Index(name = "idx_test_reports_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_test_reports_user_disease_created", columnList = "user_id, disease_type, created_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class TestReport {
 
+    // Ids come in blocks from id_blocks rather than AUTO_INCREMENT, so inserts can be batched (see IdAllocator)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "test_reports")
+    @TableGenerator(name = "test_reports", table = "id_blocks", pkColumnName = "name", pkColumnValue = "test_reports",
+            valueColumnName = "next_val", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -49,10 +61,25 @@ public class TestReport {
     @Column(name = "input_data", columnDefinition = "TEXT")
     private String inputData; // JSON string of input parameters
 
+    // Replaces inputData once packed (see PackedInput); inputData is then null
+    @Column(name = "input_packed", length = 255)
+    private byte[] inputPacked;
+
     @Column(name = "prediction_message", columnDefinition = "TEXT")
     private String predictionMessage;
 
-    @CreationTimestamp
+    // Replaces predictionMessage when it is a stock message (see PredictionMessages)
+    @Column(name = "message_template")
+    private Short messageTemplate;
+
+    // Decoded on first read and kept off the columns, so reading never dirties the entity
+    @Transient
+    private String unpackedInputData;
+
+    @Transient
+    private String renderedPredictionMessage;
+
+    // Set on insert unless the report already has one, as imported history does
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -67,6 +94,50 @@ public class TestReport {
         this.predictionMessage = predictionMessage;
     }
 
+    @PrePersist
+    void defaultCreatedAt() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    public String getInputData() {
+        if (inputData != null || inputPacked == null) {
+            return inputData;
+        }
+        if (unpackedInputData == null) {
+            unpackedInputData = PackedInput.unpack(diseaseType, inputPacked);
+        }
+        return unpackedInputData;
+    }
+
+    public String getPredictionMessage() {
+        if (predictionMessage != null || messageTemplate == null) {
+            return predictionMessage;
+        }
+        if (renderedPredictionMessage == null) {
+            renderedPredictionMessage = PredictionMessages.render(messageTemplate, diseaseType, probability);
+        }
+        return renderedPredictionMessage;
+    }
+
+    /**
+     * Store the input data packed and the message as its template id, where
+     * either reads back unchanged. Call before the first save.
+     */
+    public void compact() {
+        byte[] packed = PackedInput.pack(diseaseType, inputData);
+        if (packed != null) {
+            inputPacked = packed;
+            inputData = null;
+        }
+        Short template = PredictionMessages.templateOf(diseaseType, predictionResult, probability, predictionMessage);
+        if (template != null) {
+            messageTemplate = template;
+            predictionMessage = null;
+        }
+    }
+
     // Custom equals and hashCode to avoid issues with lazy-loaded collections
     @Override
     public boolean equals(Object o) {
@@ -4,11 +4,14 @@ import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -23,6 +26,7 @@ import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -33,14 +37,24 @@ import lombok.Setter;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
 
+    // Second-level cache regions; the inverse side is not kept up to date by Hibernate, see UserCache
+    public static final String CACHE_REGION = "users";
+    public static final String RELATIVES_CACHE_REGION = "users.relatives";
+    public static final String RELATIVE_OF_CACHE_REGION = "users.relativeOf";
+
+    // Ids come in blocks from id_blocks rather than AUTO_INCREMENT, so inserts can be batched (see IdAllocator)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users")
+    @TableGenerator(name = "users", table = "id_blocks", pkColumnName = "name", pkColumnValue = "users",
+            valueColumnName = "next_val", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -91,6 +105,7 @@ public class User {
     // Many-to-Many relationship for relatives
     @JsonIgnore
     @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = RELATIVES_CACHE_REGION)
     @JoinTable(
             name = "user_relatives",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -101,6 +116,7 @@ public class User {
     // Inverse relationship - users who have this user as a relative
     @JsonIgnore
     @ManyToMany(mappedBy = "relatives", fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = RELATIVE_OF_CACHE_REGION)
     private Set<User> relativeOf = new HashSet<>();
 
     // One-to-Many relationship with test reports
@@ -0,0 +1,19 @@
+package com.diagnoai.prediction;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for bulk prediction uploads ({@code app.prediction.bulk.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.prediction.bulk")
+public class BulkPredictionProperties {
+
+    // Rows scored per model server call and persisted per insert batch
+    private int chunkSize = 200;
+
+    // Rows beyond this limit are rejected
+    private int maxRows = 10_000;
+}
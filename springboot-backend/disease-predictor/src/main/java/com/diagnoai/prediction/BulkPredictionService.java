@@ -0,0 +1,176 @@
+package com.diagnoai.prediction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.service.TestReportService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scores an uploaded set of rows in chunks and writes one NDJSON line per row
+ * as each chunk completes. Every chunk is one batched model server call and
+ * one batched report insert.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkPredictionService {
+
+    private final PredictionClient predictionClient;
+    private final TestReportService testReportService;
+    private final ObjectMapper objectMapper;
+    private final BulkPredictionProperties properties;
+    private final ModelGuard modelGuard;
+    private final LocalModels localModels;
+
+    /**
+     * Open a row reader for an upload: CSV or NDJSON when the content type
+     * says so, otherwise a JSON array.
+     *
+     * @throws IllegalArgumentException if the body does not start like the
+     *                                  expected format
+     */
+    public BulkRowReader openReader(String contentType, InputStream in) throws IOException {
+        return BulkRowReader.open(objectMapper, contentType, in);
+    }
+
+    public void score(DiseaseType diseaseType, BulkRowReader reader, Long userId, OutputStream out) throws IOException {
+        FeatureSet schema = FeatureSet.forDisease(diseaseType);
+        Chunk chunk = new Chunk();
+        int rowNumber = 0;
+        int[] totals = new int[2]; // scored, failed
+
+        while (true) {
+            Map<String, Object> row;
+            try {
+                row = reader.next();
+            } catch (IOException | IllegalArgumentException e) {
+                // The input itself is broken; nothing after this point can be read reliably
+                writeLine(out, Map.of("row", rowNumber + 1, "error", "Malformed input: " + e.getMessage()));
+                break;
+            }
+            if (row == null) {
+                break;
+            }
+            rowNumber++;
+            if (rowNumber > properties.getMaxRows()) {
+                writeLine(out, Map.of("row", rowNumber, "error", "Row limit of " + properties.getMaxRows() + " exceeded"));
+                break;
+            }
+
+            try {
+                chunk.add(rowNumber, schema.toVector(row));
+            } catch (IllegalArgumentException e) {
+                totals[1]++;
+                writeLine(out, Map.of("row", rowNumber, "error", e.getMessage()));
+            }
+
+            if (chunk.size() >= properties.getChunkSize()) {
+                scoreChunk(diseaseType, schema, chunk, userId, out, totals);
+                chunk = new Chunk();
+            }
+        }
+        scoreChunk(diseaseType, schema, chunk, userId, out, totals);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("rows", Math.min(rowNumber, properties.getMaxRows()));
+        summary.put("scored", totals[0]);
+        summary.put("failed", totals[1]);
+        writeLine(out, Map.of("summary", summary));
+    }
+
+    private void scoreChunk(DiseaseType diseaseType, FeatureSet schema, Chunk chunk, Long userId, OutputStream out,
+            int[] totals) throws IOException {
+        if (chunk.size() == 0) {
+            return;
+        }
+
+        List<Map<String, Object>> responses;
+        try {
+            responses = localModels.isLocal(diseaseType)
+                    ? localModels.predictBatch(diseaseType, chunk.rows)
+                    : modelGuard.call(diseaseType, () -> predictionClient.predictBatch(diseaseType, chunk.rows));
+        } catch (RestClientException e) {
+            totals[1] += chunk.size();
+            for (Integer rowNumber : chunk.rowNumbers) {
+                writeLine(out, Map.of("row", rowNumber, "error", "Model server error: " + e.getMessage()));
+            }
+            return;
+        }
+
+        List<TestReport> reports = new ArrayList<>(chunk.size());
+        List<Map<String, Object>> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Integer prediction = ((Number) responses.get(i).get("prediction")).intValue();
+            String message = PredictionMessages.createPredictionMessage(diseaseType, prediction, null);
+            reports.add(new TestReport(null, diseaseType, prediction, null, toJson(schema.toInputMap(chunk.rows.get(i))), message));
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("row", chunk.rowNumbers.get(i));
+            result.put("prediction", prediction);
+            result.put("message", message);
+            results.add(result);
+        }
+
+        if (userId != null) {
+            try {
+                List<TestReport> saved = testReportService.saveTestReports(userId, reports);
+                for (int i = 0; i < saved.size(); i++) {
+                    results.get(i).put("reportId", saved.get(i).getId());
+                }
+            } catch (DataAccessException | IllegalArgumentException e) {
+                // Keep streaming predictions even if the reports could not be stored
+                log.error("Failed to save {} bulk {} reports: {}", reports.size(), diseaseType, e.getMessage());
+            }
+        }
+
+        for (Map<String, Object> result : results) {
+            writeLine(out, result);
+        }
+        totals[0] += chunk.size();
+        out.flush();
+    }
+
+    private String toJson(Map<String, Object> row) {
+        try {
+            return objectMapper.writeValueAsString(row);
+        } catch (JsonProcessingException e) {
+            return row.toString();
+        }
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> line) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write('\n');
+    }
+
+    private static final class Chunk {
+
+        private final List<Integer> rowNumbers = new ArrayList<>();
+        private final List<double[]> rows = new ArrayList<>();
+
+        private void add(int rowNumber, double[] row) {
+            rowNumbers.add(rowNumber);
+            rows.add(row);
+        }
+
+        private int size() {
+            return rowNumbers.size();
+        }
+    }
+}
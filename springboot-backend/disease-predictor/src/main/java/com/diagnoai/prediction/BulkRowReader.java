@@ -0,0 +1,158 @@
+package com.diagnoai.prediction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads bulk rows one at a time from a JSON array, NDJSON or a CSV body with
+ * a header line, so large uploads are never held in memory whole.
+ */
+public interface BulkRowReader extends AutoCloseable {
+
+    /**
+     * @return The next row, or null when the input is exhausted
+     */
+    Map<String, Object> next() throws IOException;
+
+    @Override
+    void close() throws IOException;
+
+    /**
+     * A reader for the body's content type: text/csv, application/x-ndjson,
+     * or a JSON array otherwise.
+     */
+    static BulkRowReader open(ObjectMapper objectMapper, String contentType, InputStream in) throws IOException {
+        if (contentType != null && contentType.startsWith("text/csv")) {
+            return csv(in);
+        }
+        if (contentType != null && contentType.startsWith("application/x-ndjson")) {
+            return ndjson(objectMapper, in);
+        }
+        return json(objectMapper, in);
+    }
+
+    static BulkRowReader json(ObjectMapper objectMapper, InputStream in) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(in);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new IllegalArgumentException("Expected a JSON array of rows");
+        }
+
+        return new BulkRowReader() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Map<String, Object> next() throws IOException {
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    return null;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("Expected a JSON object for each row");
+                }
+                return parser.readValueAs(LinkedHashMap.class);
+            }
+
+            @Override
+            public void close() throws IOException {
+                parser.close();
+            }
+        };
+    }
+
+    static BulkRowReader ndjson(ObjectMapper objectMapper, InputStream in) throws IOException {
+        MappingIterator<LinkedHashMap<String, Object>> rows = objectMapper.readerFor(LinkedHashMap.class)
+                .readValues(in);
+
+        return new BulkRowReader() {
+            @Override
+            public Map<String, Object> next() throws IOException {
+                return rows.hasNextValue() ? rows.nextValue() : null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                rows.close();
+            }
+        };
+    }
+
+    static BulkRowReader csv(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            reader.close();
+            throw new IllegalArgumentException("CSV body has no header line");
+        }
+        // Strip a UTF-8 byte order mark left by spreadsheet exports
+        if (headerLine.startsWith("\uFEFF")) {
+            headerLine = headerLine.substring(1);
+        }
+        List<String> header = splitCsvLine(headerLine);
+
+        return new BulkRowReader() {
+            @Override
+            public Map<String, Object> next() throws IOException {
+                String line;
+                do {
+                    line = reader.readLine();
+                    if (line == null) {
+                        return null;
+                    }
+                } while (line.isBlank());
+
+                List<String> values = splitCsvLine(line);
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int i = 0; i < header.size() && i < values.size(); i++) {
+                    row.put(header.get(i).trim(), values.get(i));
+                }
+                return row;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    private static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+}
@@ -0,0 +1,32 @@
+package com.diagnoai.prediction;
+
+/**
+ * Builds a stable string form of a feature vector for use as a cache key.
+ * Inputs that parse to the same vector ({"Age": 50, "BMI": 33.60} and
+ * {"BMI": "33.6", "Age": 50.0}) map to the same key.
+ */
+public final class CanonicalInput {
+
+    private CanonicalInput() {
+    }
+
+    public static String of(double[] vector) {
+        if (vector == null || vector.length == 0) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder(vector.length * 8);
+        for (double value : vector) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                // Also folds -0.0 into 0
+                sb.append((long) value);
+            } else {
+                sb.append(value);
+            }
+        }
+        return sb.toString();
+    }
+}
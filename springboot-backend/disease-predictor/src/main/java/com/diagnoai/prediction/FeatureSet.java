@@ -0,0 +1,268 @@
+package com.diagnoai.prediction;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.diagnoai.entity.DiseaseType;
+
+/**
+ * The input schema of each model, mirroring the extractors in
+ * {@code flask-ml-api/ml/app.py}: the features in model order, their types,
+ * accepted ranges and, for categorical features, the codes app.py encodes
+ * them as. Requests are checked against it and turned into an ordered
+ * {@code double[]} before anything is sent to a model.
+ */
+public final class FeatureSet {
+
+    public enum Kind {
+        NUMBER,
+        INTEGER,
+        BINARY,
+        CATEGORY
+    }
+
+    /**
+     * One model input. For categories, {@code categories} maps each label to
+     * its code and the range is unused.
+     */
+    public record Feature(String name, Kind kind, double min, double max, Map<String, Integer> categories) {
+
+        /**
+         * @return Why the value is not acceptable, or null if it is
+         */
+        public String check(double value) {
+            if (kind == Kind.CATEGORY) {
+                return name + " must be one of " + categories.keySet();
+            }
+            if (!Double.isFinite(value)) {
+                return name + " must be a number";
+            }
+            if (kind == Kind.BINARY && value != 0 && value != 1) {
+                return name + " must be 0 or 1";
+            }
+            if (kind == Kind.INTEGER && value != Math.rint(value)) {
+                return name + " must be a whole number";
+            }
+            if (value < min || value > max) {
+                return name + " must be between " + format(min) + " and " + format(max);
+            }
+            return null;
+        }
+
+        /**
+         * @return The value for a text input (a category label, or a number
+         *         written as text), or NaN if it is not acceptable
+         */
+        public double parse(String text) {
+            if (kind == Kind.CATEGORY) {
+                Integer code = categories.get(text);
+                return code != null ? code : Double.NaN;
+            }
+            try {
+                double value = Double.parseDouble(text.trim());
+                return check(value) == null ? value : Double.NaN;
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        /**
+         * @return Why a text input is not acceptable
+         */
+        public String checkText(String text) {
+            if (kind == Kind.CATEGORY) {
+                return check(Double.NaN);
+            }
+            try {
+                return check(Double.parseDouble(text.trim()));
+            } catch (NumberFormatException e) {
+                return name + " must be a number";
+            }
+        }
+
+        private Object toInput(double value) {
+            if (kind == Kind.CATEGORY) {
+                for (Map.Entry<String, Integer> entry : categories.entrySet()) {
+                    if (entry.getValue() == value) {
+                        return entry.getKey();
+                    }
+                }
+            }
+            return kind == Kind.NUMBER ? (Object) value : (Object) (long) value;
+        }
+
+        private static String format(double bound) {
+            return bound == Math.rint(bound) ? Long.toString((long) bound) : Double.toString(bound);
+        }
+    }
+
+    private static final Map<DiseaseType, FeatureSet> SCHEMAS = new EnumMap<>(DiseaseType.class);
+
+    static {
+        SCHEMAS.put(DiseaseType.DIABETES, new FeatureSet(List.of(
+                integer("Pregnancies", 0, 30),
+                number("Glucose", 0, 500),
+                number("BloodPressure", 0, 300),
+                number("SkinThickness", 0, 150),
+                number("Insulin", 0, 1500),
+                number("BMI", 0, 100),
+                number("DiabetesPedigreeFunction", 0, 5),
+                integer("Age", 0, 120))));
+        SCHEMAS.put(DiseaseType.HEART, new FeatureSet(List.of(
+                integer("age", 0, 120),
+                binary("sex"),
+                integer("cp", 0, 3),
+                number("trestbps", 0, 300),
+                number("chol", 0, 1000),
+                binary("fbs"),
+                integer("restecg", 0, 2),
+                number("thalach", 0, 300),
+                binary("exang"),
+                number("oldpeak", 0, 10),
+                integer("slope", 0, 2),
+                integer("ca", 0, 4),
+                integer("thal", 0, 3))));
+        SCHEMAS.put(DiseaseType.STROKE, new FeatureSet(List.of(
+                category("gender", "Male", 1, "Female", 0, "Other", 2),
+                number("age", 0, 120),
+                binary("hypertension"),
+                binary("heart_disease"),
+                category("ever_married", "Yes", 1, "No", 0),
+                category("work_type", "Private", 2, "Self-employed", 3, "Govt_job", 0, "children", 1,
+                        "Never_worked", 4),
+                category("Residence_type", "Urban", 1, "Rural", 0),
+                number("avg_glucose_level", 0, 500),
+                number("bmi", 5, 150),
+                category("smoking_status", "never smoked", 1, "formerly smoked", 0, "smokes", 2, "Unknown", 3))));
+        SCHEMAS.put(DiseaseType.PARKINSONS, new FeatureSet(List.of(
+                number("MDVP:Fo(Hz)", 0, 1000),
+                number("MDVP:Fhi(Hz)", 0, 1000),
+                number("MDVP:Flo(Hz)", 0, 1000),
+                number("MDVP:Jitter(%)", 0, 1),
+                number("MDVP:Jitter(Abs)", 0, 1),
+                number("MDVP:RAP", 0, 1),
+                number("MDVP:PPQ", 0, 1),
+                number("Jitter:DDP", 0, 1),
+                number("MDVP:Shimmer", 0, 1),
+                number("MDVP:Shimmer(dB)", 0, 10),
+                number("Shimmer:APQ3", 0, 1),
+                number("Shimmer:APQ5", 0, 1),
+                number("MDVP:APQ", 0, 1),
+                number("Shimmer:DDA", 0, 1),
+                number("NHR", 0, 1),
+                number("HNR", 0, 100),
+                number("RPDE", 0, 1),
+                number("DFA", 0, 1),
+                number("spread1", -20, 0),
+                number("spread2", 0, 1),
+                number("D2", 0, 10),
+                number("PPE", 0, 1))));
+    }
+
+    private final List<Feature> features;
+    private final Map<String, Integer> indexByName = new HashMap<>();
+
+    private FeatureSet(List<Feature> features) {
+        this.features = features;
+        for (int i = 0; i < features.size(); i++) {
+            indexByName.put(features.get(i).name(), i);
+        }
+    }
+
+    public static FeatureSet forDisease(DiseaseType diseaseType) {
+        return SCHEMAS.get(diseaseType);
+    }
+
+    public int size() {
+        return features.size();
+    }
+
+    public Feature feature(int index) {
+        return features.get(index);
+    }
+
+    /**
+     * @return The feature's position in the vector, or -1 if the model does
+     *         not use it
+     */
+    public int indexOf(String name) {
+        Integer index = indexByName.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Build the feature vector from an already parsed row, e.g. a CSV line
+     * where every value is text.
+     *
+     * @throws FeatureValidationException naming every missing or invalid feature
+     */
+    public double[] toVector(Map<String, Object> row) {
+        double[] vector = new double[features.size()];
+        List<String> errors = new ArrayList<>();
+
+        for (int i = 0; i < features.size(); i++) {
+            Feature feature = features.get(i);
+            Object value = row.get(feature.name());
+            if (value == null || value.toString().isBlank()) {
+                errors.add(feature.name() + " is missing");
+                continue;
+            }
+
+            String error;
+            if (value instanceof Number number && feature.kind() != Kind.CATEGORY) {
+                vector[i] = number.doubleValue();
+                error = feature.check(vector[i]);
+            } else if (value instanceof Boolean flag && feature.kind() == Kind.BINARY) {
+                vector[i] = flag ? 1 : 0;
+                error = null;
+            } else {
+                vector[i] = feature.parse(value.toString());
+                error = Double.isNaN(vector[i]) ? feature.checkText(value.toString()) : null;
+            }
+            if (error != null) {
+                errors.add(error);
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            throw new FeatureValidationException(errors);
+        }
+        return vector;
+    }
+
+    /**
+     * The vector as a name-to-value map in the request's terms (category
+     * labels rather than codes), for storing with a report.
+     */
+    public Map<String, Object> toInputMap(double[] vector) {
+        Map<String, Object> input = new LinkedHashMap<>();
+        for (int i = 0; i < features.size(); i++) {
+            input.put(features.get(i).name(), features.get(i).toInput(vector[i]));
+        }
+        return input;
+    }
+
+    private static Feature number(String name, double min, double max) {
+        return new Feature(name, Kind.NUMBER, min, max, Map.of());
+    }
+
+    private static Feature integer(String name, double min, double max) {
+        return new Feature(name, Kind.INTEGER, min, max, Map.of());
+    }
+
+    private static Feature binary(String name) {
+        return new Feature(name, Kind.BINARY, 0, 1, Map.of());
+    }
+
+    private static Feature category(String name, Object... labelsAndCodes) {
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        for (int i = 0; i < labelsAndCodes.length; i += 2) {
+            codes.put((String) labelsAndCodes[i], (Integer) labelsAndCodes[i + 1]);
+        }
+        return new Feature(name, Kind.CATEGORY, 0, 0, codes);
+    }
+}
@@ -0,0 +1,22 @@
+package com.diagnoai.prediction;
+
+import java.util.List;
+
+/**
+ * Thrown when prediction input does not match the model's
+ * {@link FeatureSet}. Carries every problem found, not just the first, so a
+ * form can be corrected in one round trip.
+ */
+public class FeatureValidationException extends IllegalArgumentException {
+
+    private final List<String> errors;
+
+    public FeatureValidationException(List<String> errors) {
+        super(String.join("; ", errors));
+        this.errors = List.copyOf(errors);
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
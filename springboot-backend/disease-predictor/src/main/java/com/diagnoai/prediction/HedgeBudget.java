@@ -0,0 +1,35 @@
+package com.diagnoai.prediction;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps hedges at a share of calls, token-bucket style. Every call earns
+ * percent hundredths of a hedge, up to burst whole hedges saved; a hedge
+ * spends one. When a model is slow across the board the bucket empties and
+ * calls stop being duplicated, rather than doubling the load on it.
+ */
+final class HedgeBudget {
+
+    private static final long HEDGE = 100;
+
+    private final long earnedPerCall;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    HedgeBudget(int percent, int burst) {
+        this.earnedPerCall = Math.max(0, percent);
+        this.capacity = Math.max(1, burst) * HEDGE;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    void callMade() {
+        balance.getAndUpdate(current -> Math.min(capacity, current + earnedPerCall));
+    }
+
+    /**
+     * @return true if a hedge may be sent; it is then paid for
+     */
+    boolean tryHedge() {
+        return balance.getAndUpdate(current -> current >= HEDGE ? current - HEDGE : current) >= HEDGE;
+    }
+}
@@ -0,0 +1,62 @@
+package com.diagnoai.prediction;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The most recent call latencies in a fixed ring. Writers never block; a
+ * percentile is computed from a snapshot and reused for a short while so
+ * that reading it on every request stays cheap.
+ */
+final class LatencyWindow {
+
+    private static final long RECOMPUTE_INTERVAL_NANOS = 100_000_000L;
+
+    private final long[] samples;
+    private final AtomicLong count = new AtomicLong();
+
+    private volatile double cachedPercentile = -1;
+    private volatile long cachedPercentileNanos;
+    private volatile long cachedAtNanos;
+
+    LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    void record(long latencyNanos) {
+        long index = count.getAndIncrement();
+        samples[(int) (index % samples.length)] = latencyNanos;
+    }
+
+    long size() {
+        return Math.min(count.get(), samples.length);
+    }
+
+    /**
+     * @param percentile 0-100
+     * @return The latency in nanoseconds, or 0 with no samples yet
+     */
+    long percentile(double percentile) {
+        int size = (int) size();
+        if (size == 0) {
+            return 0;
+        }
+        long[] snapshot = Arrays.copyOf(samples, size);
+        Arrays.sort(snapshot);
+        int rank = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return snapshot[Math.max(0, Math.min(size - 1, rank))];
+    }
+
+    /**
+     * Like {@link #percentile(double)} but recomputed at most every 100ms.
+     */
+    long recentPercentile(double percentile) {
+        long now = System.nanoTime();
+        if (cachedPercentile != percentile || now - cachedAtNanos > RECOMPUTE_INTERVAL_NANOS) {
+            cachedPercentileNanos = percentile(percentile);
+            cachedPercentile = percentile;
+            cachedAtNanos = now;
+        }
+        return cachedPercentileNanos;
+    }
+}
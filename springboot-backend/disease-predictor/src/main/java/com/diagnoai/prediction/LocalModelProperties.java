@@ -0,0 +1,27 @@
+package com.diagnoai.prediction;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.diagnoai.entity.DiseaseType;
+
+import lombok.Data;
+
+/**
+ * Settings for scoring models inside the gateway instead of calling the model
+ * server ({@code app.prediction.local.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.prediction.local")
+public class LocalModelProperties {
+
+    private boolean enabled = false;
+
+    // Where flask-ml-api/ml/export_models.py writes <disease>_model.json
+    private String modelDirectory = "../../flask-ml-api/ml/models";
+
+    // Diseases scored locally; the rest, and any whose model file is missing, go to the model server
+    private Set<DiseaseType> diseases = EnumSet.allOf(DiseaseType.class);
+}
@@ -0,0 +1,165 @@
+package com.diagnoai.prediction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import com.diagnoai.entity.DiseaseType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The models scored in-process. At startup each configured disease's exported
+ * XGBoost JSON is loaded into a {@link TreeEnsembleModel}; diseases without a
+ * usable model file keep going to the model server.
+ */
+@Component
+@Slf4j
+public class LocalModels {
+
+    private final LocalModelProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private final Map<DiseaseType, LoadedModel> models = new EnumMap<>(DiseaseType.class);
+    private final Map<DiseaseType, LongAdder> rowsScored = new EnumMap<>(DiseaseType.class);
+
+    public LocalModels(LocalModelProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            rowsScored.put(diseaseType, new LongAdder());
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (DiseaseType diseaseType : properties.getDiseases()) {
+            Path file = Paths.get(properties.getModelDirectory(), diseaseType.name().toLowerCase() + "_model.json");
+            if (!Files.isRegularFile(file)) {
+                log.warn("No exported model at {}; {} predictions stay on the model server", file, diseaseType);
+                continue;
+            }
+            try {
+                TreeEnsembleModel model;
+                try (InputStream in = Files.newInputStream(file)) {
+                    model = TreeEnsembleModel.fromXGBoostJson(objectMapper, in);
+                }
+                int expected = FeatureSet.forDisease(diseaseType).size();
+                if (model.getFeatureCount() != expected) {
+                    throw new IllegalArgumentException("Model has " + model.getFeatureCount()
+                            + " features, expected " + expected);
+                }
+                models.put(diseaseType, new LoadedModel(model, "local-" + contentHash(file)));
+                log.info("Scoring {} in-process with {}", diseaseType, model);
+            } catch (IOException | IllegalArgumentException e) {
+                log.error("Failed to load {}; {} predictions stay on the model server: {}",
+                        file, diseaseType, e.getMessage());
+            }
+        }
+    }
+
+    public boolean isLocal(DiseaseType diseaseType) {
+        return models.containsKey(diseaseType);
+    }
+
+    /**
+     * Score one feature vector. The response has the same shape as the model
+     * server's: the predicted class and the model version.
+     */
+    public Map<String, Object> predict(DiseaseType diseaseType, double[] features) {
+        LoadedModel loaded = models.get(diseaseType);
+        float[] row = new float[features.length];
+        for (int i = 0; i < features.length; i++) {
+            row[i] = (float) features[i];
+        }
+        float probability = loaded.model().predictProbability(row);
+        rowsScored.get(diseaseType).increment();
+        return response(TreeEnsembleModel.toClass(probability), loaded.version());
+    }
+
+    /**
+     * Score several feature vectors in one pass.
+     *
+     * @return One response per vector, in the same order
+     */
+    public List<Map<String, Object>> predictBatch(DiseaseType diseaseType, List<double[]> vectors) {
+        LoadedModel loaded = models.get(diseaseType);
+        int featureCount = loaded.model().getFeatureCount();
+        float[] rows = new float[vectors.size() * featureCount];
+        for (int i = 0; i < vectors.size(); i++) {
+            double[] vector = vectors.get(i);
+            for (int f = 0; f < featureCount; f++) {
+                rows[i * featureCount + f] = (float) vector[f];
+            }
+        }
+
+        float[] probabilities = new float[vectors.size()];
+        loaded.model().predictProbabilities(rows, vectors.size(), probabilities);
+        rowsScored.get(diseaseType).add(vectors.size());
+
+        List<Map<String, Object>> responses = new ArrayList<>(vectors.size());
+        for (float probability : probabilities) {
+            responses.add(response(TreeEnsembleModel.toClass(probability), loaded.version()));
+        }
+        return responses;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> diseaseStats = new LinkedHashMap<>();
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            LoadedModel loaded = models.get(diseaseType);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("local", loaded != null);
+            if (loaded != null) {
+                stats.put("version", loaded.version());
+                stats.put("trees", loaded.model().getTreeCount());
+                stats.put("nodes", loaded.model().getNodeCount());
+            }
+            stats.put("rowsScored", rowsScored.get(diseaseType).sum());
+            diseaseStats.put(diseaseType.name(), stats);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("modelDirectory", properties.getModelDirectory());
+        result.put("diseases", diseaseStats);
+        return result;
+    }
+
+    private static Map<String, Object> response(int prediction, String version) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("prediction", prediction);
+        response.put("model_version", version);
+        return response;
+    }
+
+    private static String contentHash(Path file) throws IOException {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+            return HexFormat.of().formatHex(digest).substring(0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record LoadedModel(TreeEnsembleModel model, String version) {
+    }
+}
@@ -0,0 +1,224 @@
+package com.diagnoai.prediction;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import com.diagnoai.entity.DiseaseType;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Count-based circuit breaker for one model. CLOSED records the outcome of
+ * the last N calls and opens when the failure rate crosses the threshold.
+ * OPEN rejects every call until the open duration has passed, then HALF_OPEN
+ * lets a few probe calls through: if they all succeed the breaker closes,
+ * and the first failure opens it again.
+ * <p>
+ * Every state change starts a new generation, and a call reports its outcome
+ * against the generation it was admitted in. An outcome from an earlier
+ * generation is dropped: a call admitted while closed that finishes during
+ * half-open is not a probe.
+ * <p>
+ * State changes are logged here, under the lock that makes them, so each is
+ * logged exactly once.
+ */
+@Slf4j
+final class ModelCircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final DiseaseType diseaseType;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+    private final LongSupplier nanoTime;
+
+    // Returned by tryAcquire when the call may not go ahead
+    static final long REJECTED = -1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAtNanos;
+    private int probesStarted;
+    private int probesSucceeded;
+    private long timesOpened;
+
+    ModelCircuitBreaker(DiseaseType diseaseType, ModelGuardProperties properties, LongSupplier nanoTime) {
+        this.diseaseType = diseaseType;
+        this.outcomes = new boolean[Math.max(1, properties.getSlidingWindowSize())];
+        this.minimumCalls = Math.min(Math.max(1, properties.getMinimumCalls()), outcomes.length);
+        this.failureRateThreshold = properties.getFailureRateThreshold();
+        this.openDurationNanos = properties.getOpenDuration().toNanos();
+        this.halfOpenProbes = Math.max(1, properties.getHalfOpenProbes());
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return A permit if the call may go ahead, REJECTED otherwise; the
+     *         caller must then report exactly one of success, failure or
+     *         ignored with the permit
+     */
+    long tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && nanoTime.getAsLong() - openedAtNanos >= openDurationNanos) {
+                moveTo(State.HALF_OPEN);
+                probesStarted = 0;
+                probesSucceeded = 0;
+            }
+            return switch (state) {
+                case CLOSED -> generation;
+                case OPEN -> REJECTED;
+                case HALF_OPEN -> {
+                    if (probesStarted < halfOpenProbes) {
+                        probesStarted++;
+                        yield generation;
+                    }
+                    yield REJECTED;
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onSuccess(long permit) {
+        lock.lock();
+        try {
+            if (permit != generation) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                if (++probesSucceeded >= halfOpenProbes) {
+                    close();
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onFailure(long permit) {
+        lock.lock();
+        try {
+            if (permit != generation) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                open();
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+                    open();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The permitted call never reached the model, so its outcome says nothing
+     * about the model's health.
+     */
+    void onIgnored(long permit) {
+        lock.lock();
+        try {
+            if (permit == generation && state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+                probesStarted--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return How long until an open breaker lets probes through, zero otherwise
+     */
+    Duration remainingOpen() {
+        lock.lock();
+        try {
+            if (state != State.OPEN) {
+                return Duration.ZERO;
+            }
+            return Duration.ofNanos(Math.max(0, openDurationNanos - (nanoTime.getAsLong() - openedAtNanos)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("state", state.name());
+            stats.put("failureRate", recorded > 0 ? failures * 100.0 / recorded : 0.0);
+            stats.put("recordedCalls", recorded);
+            stats.put("timesOpened", timesOpened);
+            stats.put("openRemainingMs", state == State.OPEN
+                    ? Math.max(0, (openDurationNanos - (nanoTime.getAsLong() - openedAtNanos)) / 1_000_000) : 0);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        moveTo(State.OPEN);
+        openedAtNanos = nanoTime.getAsLong();
+        timesOpened++;
+    }
+
+    private void close() {
+        moveTo(State.CLOSED);
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+
+    private void moveTo(State to) {
+        log.warn("Circuit breaker for the {} model moved from {} to {}", diseaseType, state, to);
+        state = to;
+        generation++;
+    }
+}
@@ -0,0 +1,153 @@
+package com.diagnoai.prediction;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.diagnoai.entity.DiseaseType;
+
+/**
+ * Isolates the models from each other. Each disease has a bulkhead that caps
+ * its concurrent model server calls and a circuit breaker that stops calling
+ * a failing or slow model for a while, so one unhealthy model fails fast with
+ * {@link ModelUnavailableException} instead of tying up callers meant for the
+ * others.
+ */
+@Component
+public class ModelGuard {
+
+    private static final Duration BULKHEAD_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final ModelGuardProperties properties;
+    private final LongSupplier nanoTime;
+
+    private final Map<DiseaseType, Semaphore> bulkheads = new EnumMap<>(DiseaseType.class);
+    private final Map<DiseaseType, ModelCircuitBreaker> breakers = new EnumMap<>(DiseaseType.class);
+    private final Map<DiseaseType, Counters> counters = new EnumMap<>(DiseaseType.class);
+
+    @Autowired
+    public ModelGuard(ModelGuardProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    ModelGuard(ModelGuardProperties properties, LongSupplier nanoTime) {
+        this.properties = properties;
+        this.nanoTime = nanoTime;
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            bulkheads.put(diseaseType, new Semaphore(properties.maxConcurrentCallsFor(diseaseType)));
+            breakers.put(diseaseType, new ModelCircuitBreaker(diseaseType, properties, nanoTime));
+            counters.put(diseaseType, new Counters());
+        }
+    }
+
+    /**
+     * Run a model server call for the given disease under its bulkhead and
+     * circuit breaker.
+     *
+     * @throws ModelUnavailableException if the breaker is open or no call slot
+     *                                   frees up within the configured wait
+     */
+    public <T> T call(DiseaseType diseaseType, Supplier<T> modelCall) {
+        if (!properties.isEnabled()) {
+            return modelCall.get();
+        }
+
+        ModelCircuitBreaker breaker = breakers.get(diseaseType);
+        Counters stats = counters.get(diseaseType);
+        long permit = breaker.tryAcquire();
+        if (permit == ModelCircuitBreaker.REJECTED) {
+            stats.rejectedOpen.increment();
+            throw new ModelUnavailableException(diseaseType, ModelUnavailableException.Reason.CIRCUIT_OPEN,
+                    breaker.remainingOpen());
+        }
+
+        Semaphore bulkhead = bulkheads.get(diseaseType);
+        if (!acquire(bulkhead)) {
+            breaker.onIgnored(permit);
+            stats.rejectedBulkhead.increment();
+            throw new ModelUnavailableException(diseaseType, ModelUnavailableException.Reason.BULKHEAD_FULL,
+                    BULKHEAD_RETRY_AFTER);
+        }
+
+        stats.calls.increment();
+        long start = nanoTime.getAsLong();
+        try {
+            T result = modelCall.get();
+            if (nanoTime.getAsLong() - start > properties.slowCallThresholdFor(diseaseType).toNanos()) {
+                // The answer arrived, but a model this slow still ties up callers
+                stats.slowCalls.increment();
+                breaker.onFailure(permit);
+            } else {
+                breaker.onSuccess(permit);
+            }
+            return result;
+        } catch (HttpClientErrorException e) {
+            // The model server answered; the request itself was rejected
+            breaker.onSuccess(permit);
+            throw e;
+        } catch (ModelUnavailableException e) {
+            breaker.onIgnored(permit);
+            throw e;
+        } catch (RuntimeException e) {
+            stats.failures.increment();
+            breaker.onFailure(permit);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private boolean acquire(Semaphore bulkhead) {
+        Duration maxWait = properties.getMaxWait();
+        if (maxWait.isZero()) {
+            return bulkhead.tryAcquire();
+        }
+        try {
+            return bulkhead.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> diseaseStats = new LinkedHashMap<>();
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            Counters stats = counters.get(diseaseType);
+            Map<String, Object> entry = new LinkedHashMap<>(breakers.get(diseaseType).getStats());
+            entry.put("maxConcurrentCalls", properties.maxConcurrentCallsFor(diseaseType));
+            entry.put("activeCalls", properties.maxConcurrentCallsFor(diseaseType)
+                    - bulkheads.get(diseaseType).availablePermits());
+            entry.put("calls", stats.calls.sum());
+            entry.put("failures", stats.failures.sum());
+            entry.put("slowCalls", stats.slowCalls.sum());
+            entry.put("rejectedOpen", stats.rejectedOpen.sum());
+            entry.put("rejectedBulkhead", stats.rejectedBulkhead.sum());
+            diseaseStats.put(diseaseType.name(), entry);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("diseases", diseaseStats);
+        return result;
+    }
+
+    private static final class Counters {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder slowCalls = new LongAdder();
+        private final LongAdder rejectedOpen = new LongAdder();
+        private final LongAdder rejectedBulkhead = new LongAdder();
+    }
+}
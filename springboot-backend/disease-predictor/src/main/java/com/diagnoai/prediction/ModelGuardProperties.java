@@ -0,0 +1,63 @@
+package com.diagnoai.prediction;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.diagnoai.entity.DiseaseType;
+
+import lombok.Data;
+
+/**
+ * Per-model bulkhead and circuit breaker settings
+ * ({@code app.prediction.guard.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.prediction.guard")
+public class ModelGuardProperties {
+
+    private boolean enabled = false;
+
+    // Concurrent calls allowed into one model, and how long a caller may wait for a slot
+    private int maxConcurrentCalls = 20;
+    private Duration maxWait = Duration.ZERO;
+
+    // The breaker opens when this share of the last sliding-window-size calls failed,
+    // once at least minimum-calls have been recorded
+    private int slidingWindowSize = 20;
+    private int minimumCalls = 10;
+    private int failureRateThreshold = 50;
+
+    // Calls slower than this count as failures
+    private Duration slowCallThreshold = Duration.ofSeconds(3);
+
+    // How long an open breaker rejects calls before letting probes through
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    // Probe calls allowed while half-open; all must succeed to close again
+    private int halfOpenProbes = 3;
+
+    // Per-disease overrides, e.g. app.prediction.guard.diseases.parkinsons.max-concurrent-calls=5
+    private Map<DiseaseType, DiseaseSettings> diseases = new EnumMap<>(DiseaseType.class);
+
+    public int maxConcurrentCallsFor(DiseaseType diseaseType) {
+        DiseaseSettings settings = diseases.get(diseaseType);
+        return settings != null && settings.getMaxConcurrentCalls() != null
+                ? settings.getMaxConcurrentCalls() : maxConcurrentCalls;
+    }
+
+    public Duration slowCallThresholdFor(DiseaseType diseaseType) {
+        DiseaseSettings settings = diseases.get(diseaseType);
+        return settings != null && settings.getSlowCallThreshold() != null
+                ? settings.getSlowCallThreshold() : slowCallThreshold;
+    }
+
+    @Data
+    public static class DiseaseSettings {
+
+        private Integer maxConcurrentCalls;
+        private Duration slowCallThreshold;
+    }
+}
@@ -0,0 +1,95 @@
+package com.diagnoai.prediction;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One model server replica as seen by the gateway: its health, the calls
+ * currently outstanding against it and its recent latency.
+ */
+final class ModelReplica {
+
+    private final String baseUrl;
+    private final int unhealthyAfterFailures;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean healthy = true;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LatencyWindow latencies = new LatencyWindow(512);
+
+    ModelReplica(String baseUrl, int unhealthyAfterFailures) {
+        this.baseUrl = baseUrl;
+        this.unhealthyAfterFailures = Math.max(1, unhealthyAfterFailures);
+    }
+
+    String baseUrl() {
+        return baseUrl;
+    }
+
+    boolean isHealthy() {
+        return healthy;
+    }
+
+    int outstanding() {
+        return outstanding.get();
+    }
+
+    void callStarted() {
+        outstanding.incrementAndGet();
+        requests.increment();
+    }
+
+    void callSucceeded(long latencyNanos) {
+        outstanding.decrementAndGet();
+        consecutiveFailures.set(0);
+        totalLatencyNanos.add(latencyNanos);
+        latencies.record(latencyNanos);
+    }
+
+    void callFailed() {
+        outstanding.decrementAndGet();
+        failures.increment();
+        if (consecutiveFailures.incrementAndGet() >= unhealthyAfterFailures) {
+            healthy = false;
+        }
+    }
+
+    void callCancelled() {
+        outstanding.decrementAndGet();
+        cancelled.increment();
+    }
+
+    /**
+     * @return true if this check changed the replica's health
+     */
+    boolean healthChecked(boolean passed) {
+        if (passed) {
+            consecutiveFailures.set(0);
+        }
+        boolean changed = healthy != passed;
+        healthy = passed;
+        return changed;
+    }
+
+    Map<String, Object> getStats() {
+        long succeeded = requests.sum() - failures.sum() - cancelled.sum() - outstanding.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("healthy", healthy);
+        stats.put("outstanding", outstanding.get());
+        stats.put("requests", requests.sum());
+        stats.put("failures", failures.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("averageLatencyMs", succeeded > 0 ? totalLatencyNanos.sum() / 1e6 / succeeded : 0.0);
+        stats.put("p50LatencyMs", latencies.percentile(50) / 1e6);
+        stats.put("p95LatencyMs", latencies.percentile(95) / 1e6);
+        stats.put("p99LatencyMs", latencies.percentile(99) / 1e6);
+        return stats;
+    }
+}
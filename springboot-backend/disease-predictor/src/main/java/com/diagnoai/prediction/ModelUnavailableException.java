@@ -0,0 +1,45 @@
+package com.diagnoai.prediction;
+
+import java.time.Duration;
+
+import org.springframework.web.client.RestClientException;
+
+import com.diagnoai.entity.DiseaseType;
+
+/**
+ * Thrown without calling the model server when a model's circuit breaker is
+ * open or its bulkhead is full. Callers that already handle
+ * {@link RestClientException} treat it like any other failed call.
+ */
+public class ModelUnavailableException extends RestClientException {
+
+    public enum Reason {
+        CIRCUIT_OPEN,
+        BULKHEAD_FULL
+    }
+
+    private final DiseaseType diseaseType;
+    private final Reason reason;
+    private final Duration retryAfter;
+
+    public ModelUnavailableException(DiseaseType diseaseType, Reason reason, Duration retryAfter) {
+        super(reason == Reason.CIRCUIT_OPEN
+                ? "The " + diseaseType + " model is unavailable; calls are suspended while it recovers"
+                : "The " + diseaseType + " model is at its concurrent call limit");
+        this.diseaseType = diseaseType;
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    public DiseaseType getDiseaseType() {
+        return diseaseType;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,73 @@
+package com.diagnoai.prediction;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import com.diagnoai.entity.DiseaseType;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks the version of each model loaded by the model server. A version
+ * change (a retrained {@code .pkl}) drops every cached result of that model.
+ */
+@Component
+@Slf4j
+public class ModelVersionTracker {
+
+    private static final String UNKNOWN = "unknown";
+
+    private final PredictionClient predictionClient;
+    private final PredictionCache predictionCache;
+    private final Map<DiseaseType, AtomicReference<String>> versions = new EnumMap<>(DiseaseType.class);
+
+    public ModelVersionTracker(PredictionClient predictionClient, PredictionCache predictionCache) {
+        this.predictionClient = predictionClient;
+        this.predictionCache = predictionCache;
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            versions.put(diseaseType, new AtomicReference<>(UNKNOWN));
+        }
+    }
+
+    public String currentVersion(DiseaseType diseaseType) {
+        return versions.get(diseaseType).get();
+    }
+
+    /**
+     * Record the model version reported by the model server, invalidating the
+     * disease's cached results when it differs from the last one seen.
+     */
+    public void observe(DiseaseType diseaseType, Object reportedVersion) {
+        if (reportedVersion == null) {
+            return;
+        }
+        String version = reportedVersion.toString();
+        String previous = versions.get(diseaseType).getAndSet(version);
+        if (!Objects.equals(previous, version)) {
+            predictionCache.invalidate(diseaseType);
+            if (!UNKNOWN.equals(previous)) {
+                log.info("Model version for {} changed from {} to {}; cache cleared", diseaseType, previous, version);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.prediction.cache.version-refresh-interval:30s}")
+    public void refresh() {
+        if (!predictionCache.isEnabled()) {
+            return;
+        }
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            try {
+                observe(diseaseType, predictionClient.fetchModelVersions(diseaseType).get(diseaseType.name().toLowerCase()));
+            } catch (RestClientException e) {
+                log.debug("Could not refresh model version for {}: {}", diseaseType, e.getMessage());
+            }
+        }
+    }
+}
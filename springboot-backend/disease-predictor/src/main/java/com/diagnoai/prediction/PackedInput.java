@@ -0,0 +1,154 @@
+package com.diagnoai.prediction;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+import com.diagnoai.entity.DiseaseType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compact storage form of a report's input data: the values in the order of
+ * the disease's {@link FeatureSet}, without the names. Version 1 starts with
+ * the version byte, followed by one entry per feature. A whole number below
+ * 2^62 in magnitude is a zigzag varint shifted left by one; anything else is
+ * a varint 1 followed by the 8-byte IEEE double. Most inputs are small whole
+ * numbers or category codes and take one or two bytes.
+ * <p>
+ * Only inputs that unpack to the same JSON values are packed, so a report
+ * reads back exactly what was stored.
+ */
+public final class PackedInput {
+
+    public static final byte VERSION_1 = 1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Numbers compare by value, so 148 and 148.0 are the same input
+    private static final Comparator<JsonNode> SAME_VALUE = (a, b) -> {
+        if (a.equals(b)) {
+            return 0;
+        }
+        return a.isNumber() && b.isNumber() && a.doubleValue() == b.doubleValue() ? 0 : 1;
+    };
+
+    private PackedInput() {
+    }
+
+    /**
+     * @param inputData The stored JSON object of input values
+     * @return The packed form, or null if the input does not fit the
+     *         disease's schema losslessly and has to stay JSON
+     */
+    public static byte[] pack(DiseaseType diseaseType, String inputData) {
+        FeatureSet schema = FeatureSet.forDisease(diseaseType);
+        if (schema == null || inputData == null) {
+            return null;
+        }
+        JsonNode input;
+        try {
+            input = MAPPER.readTree(inputData);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+        if (input == null || !input.isObject() || input.size() != schema.size()) {
+            return null;
+        }
+
+        double[] vector = new double[schema.size()];
+        for (int i = 0; i < schema.size(); i++) {
+            FeatureSet.Feature feature = schema.feature(i);
+            JsonNode value = input.get(feature.name());
+            if (value == null) {
+                return null;
+            }
+            if (feature.kind() == FeatureSet.Kind.CATEGORY && value.isTextual()) {
+                Integer code = feature.categories().get(value.textValue());
+                if (code == null) {
+                    return null;
+                }
+                vector[i] = code;
+            } else if (feature.kind() != FeatureSet.Kind.CATEGORY && value.isNumber()) {
+                vector[i] = value.doubleValue();
+            } else {
+                return null;
+            }
+        }
+
+        // Integer features drop fractions and categories map codes back to labels; keep the JSON if anything changes
+        JsonNode unpacked = MAPPER.valueToTree(schema.toInputMap(vector));
+        return unpacked.equals(SAME_VALUE, input) ? encode(vector) : null;
+    }
+
+    /**
+     * @return The input data as the JSON object it was packed from
+     * @throws IllegalArgumentException for an unknown format version
+     */
+    public static String unpack(DiseaseType diseaseType, byte[] packed) {
+        if (packed.length == 0 || packed[0] != VERSION_1) {
+            throw new IllegalArgumentException("Unknown packed input version "
+                    + (packed.length == 0 ? "(empty)" : packed[0]));
+        }
+        FeatureSet schema = FeatureSet.forDisease(diseaseType);
+        ByteBuffer in = ByteBuffer.wrap(packed, 1, packed.length - 1);
+        double[] vector = new double[schema.size()];
+        for (int i = 0; i < vector.length; i++) {
+            long head = readVarint(in);
+            vector[i] = (head & 1) == 0 ? (double) unzigzag(head >>> 1) : in.getDouble();
+        }
+        try {
+            return MAPPER.writeValueAsString(schema.toInputMap(vector));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot render unpacked input", e);
+        }
+    }
+
+    private static byte[] encode(double[] vector) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 + vector.length * 2);
+        out.write(VERSION_1);
+        for (double value : vector) {
+            long whole = (long) value;
+            if (whole == value && Math.abs(whole) < (1L << 62) && Double.doubleToRawLongBits(value) != Long.MIN_VALUE) {
+                writeVarint(out, zigzag(whole) << 1);
+            } else {
+                // Fractions and -0.0 keep their exact bits
+                writeVarint(out, 1);
+                long bits = Double.doubleToRawLongBits(value);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) (bits >>> shift));
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed packed input");
+    }
+}
@@ -0,0 +1,27 @@
+package com.diagnoai.prediction;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for coalescing concurrent predictions into batched model server
+ * calls ({@code app.prediction.batch.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.prediction.batch")
+public class PredictionBatchProperties {
+
+    private boolean enabled = false;
+
+    // How long the first request of a batch may wait for company
+    private Duration window = Duration.ofMillis(5);
+
+    // A batch is sent as soon as it reaches this size
+    private int maxBatchSize = 32;
+
+    // Upper bound on batches in flight to the model server at once
+    private int maxConcurrentBatches = 8;
+}
@@ -0,0 +1,236 @@
+package com.diagnoai.prediction;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import com.diagnoai.entity.DiseaseType;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Coalesces concurrent prediction requests for the same disease into one
+ * batched model server call. A batch closes when it reaches the maximum size
+ * or when its first request has waited for the configured window, so the
+ * added latency is bounded by the window.
+ */
+@Component
+@Slf4j
+public class PredictionBatcher {
+
+    private final PredictionClient predictionClient;
+    private final PredictionClientProperties clientProperties;
+    private final PredictionBatchProperties properties;
+    private final Environment environment;
+
+    private final Map<DiseaseType, BlockingQueue<PendingPrediction>> queues = new EnumMap<>(DiseaseType.class);
+    private final List<Thread> collectors = new ArrayList<>();
+    private ExecutorService dispatcher;
+    private Semaphore dispatchPermits;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRequests = new LongAdder();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+
+    public PredictionBatcher(PredictionClient predictionClient, PredictionClientProperties clientProperties,
+            PredictionBatchProperties properties, Environment environment) {
+        this.predictionClient = predictionClient;
+        this.clientProperties = clientProperties;
+        this.properties = properties;
+        this.environment = environment;
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            queues.put(diseaseType, new LinkedBlockingQueue<>());
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        dispatchPermits = new Semaphore(properties.getMaxConcurrentBatches());
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // One virtual thread per batch; the permits still bound the batches in flight
+            dispatcher = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("prediction-batch-", 1).factory());
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            dispatcher = Executors.newFixedThreadPool(properties.getMaxConcurrentBatches(), runnable -> {
+                Thread thread = new Thread(runnable, "prediction-batch-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            Thread collector = new Thread(() -> collect(diseaseType), "prediction-collector-" + diseaseType.name().toLowerCase());
+            collector.setDaemon(true);
+            collector.start();
+            collectors.add(collector);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        collectors.forEach(Thread::interrupt);
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        RestClientException shutdown = new RestClientException("Prediction batcher is shutting down");
+        for (BlockingQueue<PendingPrediction> queue : queues.values()) {
+            PendingPrediction pending;
+            while ((pending = queue.poll()) != null) {
+                pending.result.completeExceptionally(shutdown);
+            }
+        }
+    }
+
+    /**
+     * Queue a prediction for the next batch of its disease.
+     *
+     * @return A future completed with the model server response for these features
+     */
+    public CompletableFuture<Map<String, Object>> submit(DiseaseType diseaseType, double[] features) {
+        PendingPrediction pending = new PendingPrediction(features);
+        queues.get(diseaseType).add(pending);
+        return pending.result;
+    }
+
+    /**
+     * Queue a prediction and wait for its batch to come back.
+     *
+     * @throws RestClientException if the batch fails or the caller waits longer
+     *                             than the window plus the disease read timeout
+     */
+    public Map<String, Object> predict(DiseaseType diseaseType, double[] features) {
+        CompletableFuture<Map<String, Object>> result = submit(diseaseType, features);
+        long timeoutNanos = properties.getWindow().toNanos() + 2 * clientProperties.readTimeoutFor(diseaseType).toNanos();
+        try {
+            return result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RestClientException("Batched prediction failed", e.getCause());
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            throw new RestClientException("Timed out waiting for batched " + diseaseType + " prediction");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrupted while waiting for batched prediction");
+        }
+    }
+
+    private void collect(DiseaseType diseaseType) {
+        BlockingQueue<PendingPrediction> queue = queues.get(diseaseType);
+        long windowNanos = properties.getWindow().toNanos();
+        int maxBatchSize = properties.getMaxBatchSize();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<PendingPrediction> batch = new ArrayList<>(maxBatchSize);
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+
+                while (batch.size() < maxBatchSize) {
+                    // Take whatever is already queued without waiting, then wait out the window
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingPrediction next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                dispatchPermits.acquire();
+                dispatcher.execute(() -> {
+                    try {
+                        send(diseaseType, batch);
+                    } finally {
+                        dispatchPermits.release();
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void send(DiseaseType diseaseType, List<PendingPrediction> batch) {
+        batches.increment();
+        batchedRequests.add(batch.size());
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+
+        List<double[]> rows = new ArrayList<>(batch.size());
+        for (PendingPrediction pending : batch) {
+            rows.add(pending.features);
+        }
+
+        try {
+            List<Map<String, Object>> responses = predictionClient.predictBatch(diseaseType, rows);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(responses.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Batched {} prediction of {} requests failed: {}", diseaseType, batch.size(), e.getMessage());
+            for (PendingPrediction pending : batch) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        long requestCount = batchedRequests.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("windowMs", properties.getWindow().toMillis());
+        stats.put("maxBatchSize", properties.getMaxBatchSize());
+        stats.put("batches", batchCount);
+        stats.put("requests", requestCount);
+        stats.put("averageBatchSize", batchCount > 0 ? (double) requestCount / batchCount : 0.0);
+        stats.put("largestBatch", largestBatch.get());
+        Map<String, Object> queued = new LinkedHashMap<>();
+        queues.forEach((diseaseType, queue) -> queued.put(diseaseType.name(), queue.size()));
+        stats.put("queued", queued);
+        return stats;
+    }
+
+    private static final class PendingPrediction {
+
+        private final double[] features;
+        private final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+
+        private PendingPrediction(double[] features) {
+            this.features = features;
+        }
+    }
+}
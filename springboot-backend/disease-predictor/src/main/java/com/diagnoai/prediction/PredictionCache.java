@@ -0,0 +1,77 @@
+package com.diagnoai.prediction;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.diagnoai.entity.DiseaseType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Bounded per-disease cache of model server responses. Keys combine the
+ * model version with the canonical form of the input, so a retrained model
+ * never serves results computed by its predecessor.
+ */
+@Component
+public class PredictionCache {
+
+    private final PredictionCacheProperties properties;
+    private final Map<DiseaseType, Cache<String, Map<String, Object>>> caches = new EnumMap<>(DiseaseType.class);
+
+    public PredictionCache(PredictionCacheProperties properties) {
+        this.properties = properties;
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            caches.put(diseaseType, Caffeine.newBuilder()
+                    .maximumSize(properties.getMaximumSize())
+                    .expireAfterWrite(properties.getTimeToLive())
+                    .recordStats()
+                    .build());
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public static String key(String modelVersion, double[] features) {
+        return modelVersion + '|' + CanonicalInput.of(features);
+    }
+
+    /**
+     * @return A private copy of the cached response, or null on a miss
+     */
+    public Map<String, Object> get(DiseaseType diseaseType, String key) {
+        Map<String, Object> cached = caches.get(diseaseType).getIfPresent(key);
+        return cached != null ? new LinkedHashMap<>(cached) : null;
+    }
+
+    public void put(DiseaseType diseaseType, String key, Map<String, Object> response) {
+        caches.get(diseaseType).put(key, Collections.unmodifiableMap(new LinkedHashMap<>(response)));
+    }
+
+    public void invalidate(DiseaseType diseaseType) {
+        caches.get(diseaseType).invalidateAll();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", properties.isEnabled());
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            Cache<String, Map<String, Object>> cache = caches.get(diseaseType);
+            CacheStats stats = cache.stats();
+            Map<String, Object> diseaseStats = new LinkedHashMap<>();
+            diseaseStats.put("size", cache.estimatedSize());
+            diseaseStats.put("hits", stats.hitCount());
+            diseaseStats.put("misses", stats.missCount());
+            diseaseStats.put("hitRate", stats.hitRate());
+            diseaseStats.put("evictions", stats.evictionCount());
+            result.put(diseaseType.name(), diseaseStats);
+        }
+        return result;
+    }
+}
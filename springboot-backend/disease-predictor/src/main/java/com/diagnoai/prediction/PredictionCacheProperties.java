@@ -0,0 +1,26 @@
+package com.diagnoai.prediction;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the prediction result cache ({@code app.prediction.cache.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.prediction.cache")
+public class PredictionCacheProperties {
+
+    private boolean enabled = true;
+
+    // Maximum cached results per disease
+    private long maximumSize = 10_000;
+
+    // How long a cached result stays valid after it was computed
+    private Duration timeToLive = Duration.ofHours(1);
+
+    // How often the model server is asked for its model versions
+    private Duration versionRefreshInterval = Duration.ofSeconds(30);
+}
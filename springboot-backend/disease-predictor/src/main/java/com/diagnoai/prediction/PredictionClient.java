@@ -0,0 +1,452 @@
+package com.diagnoai.prediction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.diagnoai.entity.DiseaseType;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Outbound client for the Flask model server. All diseases share one pool of
+ * persistent keep-alive connections; each disease gets its own read timeout so
+ * a slow model cannot hold a caller longer than its budget.
+ * <p>
+ * Calls are spread over the configured replicas by picking the less busy of
+ * two random healthy replicas. Replicas are health-checked in the background
+ * and taken out after repeated failed calls. Optionally, a single prediction
+ * still running past the slowest percentile is hedged to a second replica and
+ * the first answer wins; the other attempt is called off, and hedges are
+ * capped at a share of calls.
+ */
+@Component
+@Slf4j
+public class PredictionClient {
+
+    private final PredictionClientProperties properties;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Map<DiseaseType, RestTemplate> restTemplates = new EnumMap<>(DiseaseType.class);
+    private final RestTemplate healthCheckTemplate;
+    private final ExecutorService hedgeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<String, ModelReplica> replicas = new LinkedHashMap<>();
+    private final Map<DiseaseType, List<ModelReplica>> replicasByDisease = new EnumMap<>(DiseaseType.class);
+    private final Map<DiseaseType, LatencyWindow> latencies = new EnumMap<>(DiseaseType.class);
+    private final Map<DiseaseType, HedgeBudget> hedgeBudgets = new EnumMap<>(DiseaseType.class);
+
+    private final Map<DiseaseType, AtomicInteger> inFlight = new EnumMap<>(DiseaseType.class);
+    private final Map<DiseaseType, LongAdder> requests = new EnumMap<>(DiseaseType.class);
+    private final Map<DiseaseType, LongAdder> failures = new EnumMap<>(DiseaseType.class);
+    private final Map<DiseaseType, LongAdder> hedges = new EnumMap<>(DiseaseType.class);
+    private final Map<DiseaseType, LongAdder> hedgesWon = new EnumMap<>(DiseaseType.class);
+    private final Map<DiseaseType, LongAdder> hedgesOverBudget = new EnumMap<>(DiseaseType.class);
+
+    public PredictionClient(PredictionClientProperties properties) {
+        this.properties = properties;
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getIdleTimeout()))
+                .disableAutomaticRetries()
+                .build();
+
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+            requestFactory.setConnectionRequestTimeout(properties.getConnectionRequestTimeout());
+            requestFactory.setReadTimeout(properties.readTimeoutFor(diseaseType));
+
+            restTemplates.put(diseaseType, new RestTemplate(requestFactory));
+            inFlight.put(diseaseType, new AtomicInteger());
+            requests.put(diseaseType, new LongAdder());
+            failures.put(diseaseType, new LongAdder());
+            hedges.put(diseaseType, new LongAdder());
+            hedgesWon.put(diseaseType, new LongAdder());
+            hedgesOverBudget.put(diseaseType, new LongAdder());
+            latencies.put(diseaseType, new LatencyWindow(1024));
+            hedgeBudgets.put(diseaseType, new HedgeBudget(properties.getHedging().getBudgetPercent(),
+                    properties.getHedging().getBudgetBurst()));
+
+            List<ModelReplica> diseaseReplicas = new ArrayList<>();
+            for (String baseUrl : properties.replicasFor(diseaseType)) {
+                diseaseReplicas.add(replicas.computeIfAbsent(stripTrailingSlash(baseUrl),
+                        url -> new ModelReplica(url, properties.getUnhealthyAfterFailures())));
+            }
+            replicasByDisease.put(diseaseType, List.copyOf(diseaseReplicas));
+        }
+
+        HttpComponentsClientHttpRequestFactory healthCheckFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        healthCheckFactory.setConnectionRequestTimeout(properties.getHealthCheckTimeout());
+        healthCheckFactory.setReadTimeout(properties.getHealthCheckTimeout());
+        this.healthCheckTemplate = new RestTemplate(healthCheckFactory);
+    }
+
+    /**
+     * Send a single prediction request to the model server.
+     *
+     * @param diseaseType The model to call
+     * @param features    The feature vector in model order, forwarded as a
+     *                    JSON array
+     * @return The model server response body
+     * @throws RestClientException if the call fails or times out
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> predict(DiseaseType diseaseType, double[] features) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<double[]> request = new HttpEntity<>(features, headers);
+
+        AtomicInteger counter = inFlight.get(diseaseType);
+        counter.incrementAndGet();
+        requests.get(diseaseType).increment();
+        hedgeBudgets.get(diseaseType).callMade();
+        try {
+            long hedgeDelayNanos = hedgeDelayNanos(diseaseType);
+            if (hedgeDelayNanos > 0) {
+                return predictHedged(diseaseType, request, hedgeDelayNanos);
+            }
+            return post(diseaseType, choose(diseaseType, null), predictPath(diseaseType), request, Map.class,
+                    latencies.get(diseaseType));
+        } catch (RestClientException e) {
+            failures.get(diseaseType).increment();
+            throw e;
+        } finally {
+            counter.decrementAndGet();
+        }
+    }
+
+    /**
+     * Score several inputs in one call to the model server's batch endpoint.
+     *
+     * @param diseaseType The model to call
+     * @param rows        The feature vectors, in order
+     * @return One response per row, in the same order, each carrying the
+     *         prediction and the model version that produced it
+     * @throws RestClientException if the call fails, times out or returns a
+     *                             malformed body
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> predictBatch(DiseaseType diseaseType, List<double[]> rows) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(Map.of("instances", rows), headers);
+
+        AtomicInteger counter = inFlight.get(diseaseType);
+        counter.incrementAndGet();
+        requests.get(diseaseType).increment();
+        try {
+            Map<String, Object> body = post(diseaseType, choose(diseaseType, null), predictPath(diseaseType) + "/batch",
+                    request, Map.class, null);
+            Object predictions = body != null ? body.get("predictions") : null;
+            if (!(predictions instanceof List<?> list) || list.size() != rows.size()) {
+                throw new RestClientException("Malformed batch response from model server for " + diseaseType);
+            }
+
+            List<Map<String, Object>> responses = new ArrayList<>(list.size());
+            for (Object prediction : list) {
+                Map<String, Object> response = new LinkedHashMap<>();
+                response.put("prediction", prediction);
+                if (body.get("model_version") != null) {
+                    response.put("model_version", body.get("model_version"));
+                }
+                responses.add(response);
+            }
+            return responses;
+        } catch (RestClientException e) {
+            failures.get(diseaseType).increment();
+            throw e;
+        } finally {
+            counter.decrementAndGet();
+        }
+    }
+
+    /**
+     * Ask the model server which model versions it has loaded.
+     *
+     * @return Model name to version, e.g. {"diabetes": "3f2a9c1b7e40"}
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> fetchModelVersions(DiseaseType diseaseType) {
+        Map<String, Object> versions = restTemplates.get(diseaseType)
+                .getForObject(choose(diseaseType, null).baseUrl() + "/models", Map.class);
+        return versions != null ? versions : Map.of();
+    }
+
+    /**
+     * @return The prediction URL of the disease, or of each of its replicas
+     */
+    public String urlFor(DiseaseType diseaseType) {
+        List<String> urls = new ArrayList<>();
+        for (ModelReplica replica : replicasByDisease.get(diseaseType)) {
+            urls.add(replica.baseUrl() + predictPath(diseaseType));
+        }
+        return String.join(", ", urls);
+    }
+
+    /**
+     * Poll every replica's health check path, taking failing replicas out of
+     * rotation and returning recovered ones.
+     */
+    @Scheduled(fixedDelayString = "${app.prediction.health-check-interval:5s}")
+    public void checkReplicaHealth() {
+        for (ModelReplica replica : replicas.values()) {
+            boolean passed;
+            try {
+                healthCheckTemplate.getForEntity(replica.baseUrl() + properties.getHealthCheckPath(), String.class);
+                passed = true;
+            } catch (RestClientException e) {
+                passed = false;
+            }
+            if (replica.healthChecked(passed)) {
+                if (passed) {
+                    log.info("Model server replica {} is healthy again", replica.baseUrl());
+                } else {
+                    log.warn("Model server replica {} failed its health check; taking it out of rotation",
+                            replica.baseUrl());
+                }
+            }
+        }
+    }
+
+    /**
+     * Pick the replica with fewer outstanding calls out of two random healthy
+     * ones. If every replica is unhealthy they are all tried anyway.
+     *
+     * @param exclude A replica to skip, e.g. the one a hedged call went to
+     * @return The replica to call, or null if excluding left none
+     */
+    ModelReplica choose(DiseaseType diseaseType, ModelReplica exclude) {
+        List<ModelReplica> all = replicasByDisease.get(diseaseType);
+        List<ModelReplica> candidates = new ArrayList<>(all.size());
+        for (ModelReplica replica : all) {
+            if (replica != exclude && replica.isHealthy()) {
+                candidates.add(replica);
+            }
+        }
+        if (candidates.isEmpty()) {
+            if (exclude != null) {
+                return null;
+            }
+            candidates = all;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ModelReplica a = candidates.get(first);
+        ModelReplica b = candidates.get(second);
+        return a.outstanding() <= b.outstanding() ? a : b;
+    }
+
+    private <T> T post(DiseaseType diseaseType, ModelReplica replica, String path, HttpEntity<?> request,
+            Class<T> responseType, LatencyWindow diseaseLatencies) {
+        replica.callStarted();
+        long start = System.nanoTime();
+        try {
+            T body = restTemplates.get(diseaseType).postForObject(replica.baseUrl() + path, request, responseType);
+            long elapsed = System.nanoTime() - start;
+            replica.callSucceeded(elapsed);
+            if (diseaseLatencies != null) {
+                diseaseLatencies.record(elapsed);
+            }
+            return body;
+        } catch (HttpClientErrorException e) {
+            // The replica answered; the request itself was rejected
+            replica.callSucceeded(System.nanoTime() - start);
+            throw e;
+        } catch (RestClientException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // A hedged attempt that lost and was called off; says nothing about the replica
+                replica.callCancelled();
+            } else {
+                replica.callFailed();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Only the winning attempt's latency is recorded, so hedging does not
+     * skew the percentile that decides when to hedge. Whatever attempt is
+     * still running on return is interrupted, which aborts its request and
+     * frees its connection.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> predictHedged(DiseaseType diseaseType, HttpEntity<double[]> request,
+            long hedgeDelayNanos) {
+        String path = predictPath(diseaseType);
+        long deadline = System.nanoTime() + properties.callTimeoutFor(diseaseType).toNanos();
+        ExecutorCompletionService<Map<String, Object>> attempts = new ExecutorCompletionService<>(hedgeExecutor);
+
+        ModelReplica primary = choose(diseaseType, null);
+        long firstStart = System.nanoTime();
+        Future<Map<String, Object>> first = attempts.submit(
+                () -> post(diseaseType, primary, path, request, Map.class, null));
+        Future<Map<String, Object>> second = null;
+        long secondStart = 0;
+        try {
+            Future<Map<String, Object>> done = attempts.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            if (done == null) {
+                // Slower than usual: hedge if another replica and the budget allow
+                ModelReplica secondary = choose(diseaseType, primary);
+                if (secondary != null && hedgeBudgets.get(diseaseType).tryHedge()) {
+                    hedges.get(diseaseType).increment();
+                    secondStart = System.nanoTime();
+                    second = attempts.submit(() -> post(diseaseType, secondary, path, request, Map.class, null));
+                } else if (secondary != null) {
+                    hedgesOverBudget.get(diseaseType).increment();
+                }
+                done = attempts.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+
+            // First success wins; fail only when every attempt failed
+            RuntimeException failure = null;
+            for (int pending = second != null ? 2 : 1; pending > 0; pending--) {
+                if (done == null) {
+                    throw new RestClientException("Timed out waiting for " + diseaseType + " prediction");
+                }
+                try {
+                    Map<String, Object> response = done.get();
+                    latencies.get(diseaseType).record(System.nanoTime() - (done == first ? firstStart : secondStart));
+                    if (done == second) {
+                        hedgesWon.get(diseaseType).increment();
+                    }
+                    return response;
+                } catch (ExecutionException e) {
+                    failure = e.getCause() instanceof RuntimeException cause
+                            ? cause : new RestClientException("Prediction failed", e.getCause());
+                }
+                if (pending > 1) {
+                    done = attempts.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrupted while waiting for prediction");
+        } finally {
+            first.cancel(true);
+            if (second != null) {
+                second.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return How long a single prediction may run before it is hedged, or 0
+     *         when hedging is off or there are too few samples to judge
+     */
+    private long hedgeDelayNanos(DiseaseType diseaseType) {
+        PredictionClientProperties.Hedging hedging = properties.getHedging();
+        LatencyWindow window = latencies.get(diseaseType);
+        if (!hedging.isEnabled() || replicasByDisease.get(diseaseType).size() < 2
+                || window.size() < hedging.getMinSamples()) {
+            return 0;
+        }
+        return Math.max(hedging.getMinDelay().toNanos(), window.recentPercentile(hedging.getPercentile()));
+    }
+
+    private static String predictPath(DiseaseType diseaseType) {
+        return "/predict/" + diseaseType.name().toLowerCase();
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Snapshot of connection pool usage, per-replica health and latency, and
+     * per-disease call counters.
+     */
+    public Map<String, Object> getStats() {
+        PoolStats pool = connectionManager.getTotalStats();
+        Map<String, Object> poolStats = new LinkedHashMap<>();
+        poolStats.put("leased", pool.getLeased());
+        poolStats.put("available", pool.getAvailable());
+        poolStats.put("pending", pool.getPending());
+        poolStats.put("max", pool.getMax());
+
+        Map<String, Object> diseaseStats = new LinkedHashMap<>();
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("url", urlFor(diseaseType));
+            stats.put("readTimeoutMs", properties.readTimeoutFor(diseaseType).toMillis());
+            stats.put("inFlight", inFlight.get(diseaseType).get());
+            stats.put("requests", requests.get(diseaseType).sum());
+            stats.put("failures", failures.get(diseaseType).sum());
+            stats.put("hedges", hedges.get(diseaseType).sum());
+            stats.put("hedgesWon", hedgesWon.get(diseaseType).sum());
+            stats.put("hedgesOverBudget", hedgesOverBudget.get(diseaseType).sum());
+            stats.put("hedgeDelayMs", hedgeDelayNanos(diseaseType) / 1e6);
+            diseaseStats.put(diseaseType.name(), stats);
+        }
+
+        Map<String, Object> replicaStats = new LinkedHashMap<>();
+        replicas.forEach((baseUrl, replica) -> replicaStats.put(baseUrl, replica.getStats()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pool", poolStats);
+        result.put("replicas", replicaStats);
+        result.put("diseases", diseaseStats);
+        return result;
+    }
+
+    @PreDestroy
+    public void close() {
+        hedgeExecutor.shutdownNow();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("Failed to close prediction HTTP client: {}", e.getMessage());
+        }
+    }
+}
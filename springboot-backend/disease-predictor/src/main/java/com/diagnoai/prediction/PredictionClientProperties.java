@@ -0,0 +1,115 @@
+package com.diagnoai.prediction;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.diagnoai.entity.DiseaseType;
+
+import lombok.Data;
+
+/**
+ * Settings for the outbound connection to the Flask model server
+ * ({@code app.prediction.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.prediction")
+public class PredictionClientProperties {
+
+    // Default model server base URL, used by every disease without an override
+    private String baseUrl = "http://127.0.0.1:5000";
+
+    // Model server replicas to balance across; when empty, base-url is the only replica
+    private List<String> replicas = new ArrayList<>();
+
+    // Active health checks: every replica is polled at this path on this interval
+    private String healthCheckPath = "/models";
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    private Duration healthCheckTimeout = Duration.ofSeconds(1);
+
+    // Consecutive failed calls that take a replica out until it passes a health check
+    private int unhealthyAfterFailures = 3;
+
+    // Duplicate single predictions that outlive the slowest percentile to a second replica
+    private Hedging hedging = new Hedging();
+
+    // Maximum pooled connections across all routes, and per model server host
+    private int maxConnections = 50;
+    private int maxConnectionsPerRoute = 20;
+
+    // TCP connect timeout and the time to wait for a free pooled connection
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+
+    // Default time to wait for a prediction response
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    // Idle pooled connections are closed after this long
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    // Per-disease overrides, e.g. app.prediction.diseases.parkinsons.read-timeout=10s
+    private Map<DiseaseType, DiseaseSettings> diseases = new EnumMap<>(DiseaseType.class);
+
+    public String baseUrlFor(DiseaseType diseaseType) {
+        DiseaseSettings settings = diseases.get(diseaseType);
+        return settings != null && settings.getBaseUrl() != null ? settings.getBaseUrl() : baseUrl;
+    }
+
+    /**
+     * Replica base URLs serving the disease: its own replica list or base URL
+     * if overridden, otherwise the shared replica list, otherwise base-url.
+     */
+    public List<String> replicasFor(DiseaseType diseaseType) {
+        DiseaseSettings settings = diseases.get(diseaseType);
+        if (settings != null && settings.getReplicas() != null && !settings.getReplicas().isEmpty()) {
+            return settings.getReplicas();
+        }
+        if (settings != null && settings.getBaseUrl() != null) {
+            return List.of(settings.getBaseUrl());
+        }
+        return replicas.isEmpty() ? List.of(baseUrl) : replicas;
+    }
+
+    public Duration readTimeoutFor(DiseaseType diseaseType) {
+        DiseaseSettings settings = diseases.get(diseaseType);
+        return settings != null && settings.getReadTimeout() != null ? settings.getReadTimeout() : readTimeout;
+    }
+
+    /**
+     * The longest a single prediction may take: waiting for a pooled
+     * connection, then a read timeout for the call and one for its hedge.
+     */
+    public Duration callTimeoutFor(DiseaseType diseaseType) {
+        return connectionRequestTimeout.plus(readTimeoutFor(diseaseType).multipliedBy(2));
+    }
+
+    @Data
+    public static class DiseaseSettings {
+
+        private String baseUrl;
+        private List<String> replicas;
+        private Duration readTimeout;
+    }
+
+    @Data
+    public static class Hedging {
+
+        private boolean enabled = false;
+
+        // A hedge is sent once the call has taken longer than this percentile of recent calls,
+        // but never sooner than min-delay
+        private double percentile = 95;
+        private Duration minDelay = Duration.ofMillis(50);
+
+        // Recent calls needed before the percentile is trusted; until then no hedges are sent
+        private int minSamples = 100;
+
+        // Hedges add at most this percentage of extra calls, with up to budget-burst saved up
+        private int budgetPercent = 10;
+        private int budgetBurst = 10;
+    }
+}
@@ -0,0 +1,55 @@
+package com.diagnoai.prediction;
+
+import com.diagnoai.entity.DiseaseType;
+
+/**
+ * Renders the human-readable message stored with each prediction. Reports
+ * keep only the template id when their message is a stock rendering; the
+ * disease and probability it is filled with are columns of the report
+ * anyway. Template ids are stored, so a template's wording never changes: a
+ * new wording gets a new id.
+ */
+public final class PredictionMessages {
+
+    public static final short RISK_TEMPLATE = 1;
+    public static final short LOW_RISK_TEMPLATE = 2;
+
+    private PredictionMessages() {
+    }
+
+    public static String createPredictionMessage(DiseaseType diseaseType, Integer prediction, Double probability) {
+        return render(prediction == 1 ? RISK_TEMPLATE : LOW_RISK_TEMPLATE, diseaseType, probability);
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown template id
+     */
+    public static String render(short template, DiseaseType diseaseType, Double probability) {
+        String diseaseName = diseaseType.name().toLowerCase();
+        switch (template) {
+            case RISK_TEMPLATE -> {
+                String probText = probability != null ? String.format(" (%.1f%% probability)", probability * 100) : "";
+                return "Based on the provided data, there are indicators suggesting a risk for " + diseaseName + probText
+                        + ". Please consult with a healthcare professional for proper diagnosis and treatment.";
+            }
+            case LOW_RISK_TEMPLATE -> {
+                String probText = probability != null ? String.format(" (%.1f%% probability)", (1 - probability) * 100) : "";
+                return "Based on the provided data, the risk for " + diseaseName + " appears to be low" + probText
+                        + ". However, regular health checkups are always recommended.";
+            }
+            default -> throw new IllegalArgumentException("Unknown message template " + template);
+        }
+    }
+
+    /**
+     * @return The id of the template that renders exactly this message for
+     *         the report, or null if the message is not a stock one
+     */
+    public static Short templateOf(DiseaseType diseaseType, Integer prediction, Double probability, String message) {
+        if (message == null || prediction == null) {
+            return null;
+        }
+        short template = prediction == 1 ? RISK_TEMPLATE : LOW_RISK_TEMPLATE;
+        return message.equals(render(template, diseaseType, probability)) ? template : null;
+    }
+}
@@ -0,0 +1,142 @@
+package com.diagnoai.prediction;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import com.diagnoai.entity.DiseaseType;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Entry point for predictions: scores in-process when the disease has a local
+ * model, otherwise answers from the result cache when possible and calls the
+ * model server, through the batcher when enabled. Identical requests arriving
+ * while a call is still running share its result instead of calling again.
+ * Model server calls run under the disease's bulkhead and circuit breaker.
+ */
+@Service
+@RequiredArgsConstructor
+public class PredictionService {
+
+    private final PredictionClient predictionClient;
+    private final PredictionBatcher predictionBatcher;
+    private final PredictionCache predictionCache;
+    private final ModelVersionTracker modelVersionTracker;
+    private final ModelGuard modelGuard;
+    private final LocalModels localModels;
+    private final PredictionClientProperties clientProperties;
+
+    // Model server calls still running, by disease and canonical input
+    private final ConcurrentHashMap<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder modelServerCalls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * @return A response map owned by the caller, free to be modified
+     */
+    public Map<String, Object> predict(DiseaseType diseaseType, double[] features) {
+        if (localModels.isLocal(diseaseType)) {
+            // Scoring in-process is cheaper than a cache lookup
+            return localModels.predict(diseaseType, features);
+        }
+
+        String key = PredictionCache.key(modelVersionTracker.currentVersion(diseaseType), features);
+        if (predictionCache.isEnabled()) {
+            Map<String, Object> cached = predictionCache.get(diseaseType, key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Map<String, Object> response = singleFlight(diseaseType, diseaseType.name() + '|' + key,
+                () -> callAndCache(diseaseType, features));
+        return response != null ? new LinkedHashMap<>(response) : null;
+    }
+
+    /**
+     * Run the call unless an identical one is already running, in which case
+     * wait for and share its result. Every caller still gets its own copy of
+     * the response, and each request saves its own report. A waiting caller
+     * gives up after the client's own call timeout.
+     */
+    private Map<String, Object> singleFlight(DiseaseType diseaseType, String key,
+            Supplier<Map<String, Object>> call) {
+        CompletableFuture<Map<String, Object>> mine = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            collapsed.increment();
+            try {
+                return running.get(clientProperties.callTimeoutFor(diseaseType).toNanos(), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                // An Error is the leader's own; waiters only learn that the call failed
+                throw new RestClientException("Prediction failed", e.getCause());
+            } catch (TimeoutException e) {
+                throw new RestClientException("Timed out waiting for " + diseaseType + " prediction");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RestClientException("Interrupted while waiting for prediction");
+            }
+        }
+
+        modelServerCalls.increment();
+        try {
+            Map<String, Object> response = call.get();
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            // Anything else would leave the waiters parked
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private Map<String, Object> callAndCache(DiseaseType diseaseType, double[] features) {
+        Map<String, Object> response = callModelServer(diseaseType, features);
+        if (response == null || !predictionCache.isEnabled()) {
+            return response;
+        }
+
+        Object reportedVersion = response.get("model_version");
+        modelVersionTracker.observe(diseaseType, reportedVersion);
+        // Key under the version that actually produced the result
+        String key = PredictionCache.key(reportedVersion != null
+                ? reportedVersion.toString() : modelVersionTracker.currentVersion(diseaseType), features);
+        predictionCache.put(diseaseType, key, response);
+        return response;
+    }
+
+    private Map<String, Object> callModelServer(DiseaseType diseaseType, double[] features) {
+        return modelGuard.call(diseaseType, () -> {
+            if (predictionBatcher.isEnabled()) {
+                return new LinkedHashMap<>(predictionBatcher.predict(diseaseType, features));
+            }
+            return predictionClient.predict(diseaseType, features);
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        long calls = modelServerCalls.sum();
+        long shared = collapsed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("modelServerCalls", calls);
+        stats.put("collapsed", shared);
+        stats.put("collapseRate", calls + shared > 0 ? (double) shared / (calls + shared) : 0.0);
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+}
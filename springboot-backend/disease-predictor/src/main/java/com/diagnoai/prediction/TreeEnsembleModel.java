@@ -0,0 +1,193 @@
+package com.diagnoai.prediction;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A binary-logistic XGBoost model held as flat arrays: every node of every
+ * tree lives at one index across {@code feature}, {@code threshold},
+ * {@code left}, {@code right} and {@code defaultLeft}, with leaves marked by
+ * feature -1 and their value stored in {@code threshold}. Scoring walks these
+ * arrays in float arithmetic, like XGBoost itself, and allocates nothing.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ */
+public final class TreeEnsembleModel {
+
+    private static final int LEAF = -1;
+    private static final int BLOCK_SIZE = 64;
+
+    private final int featureCount;
+    private final float baseMargin;
+    private final int[] roots;
+    private final int[] feature;
+    private final float[] threshold;
+    private final int[] left;
+    private final int[] right;
+    private final boolean[] defaultLeft;
+
+    private TreeEnsembleModel(int featureCount, float baseMargin, int[] roots, int[] feature, float[] threshold,
+            int[] left, int[] right, boolean[] defaultLeft) {
+        this.featureCount = featureCount;
+        this.baseMargin = baseMargin;
+        this.roots = roots;
+        this.feature = feature;
+        this.threshold = threshold;
+        this.left = left;
+        this.right = right;
+        this.defaultLeft = defaultLeft;
+    }
+
+    /**
+     * Load a model saved with {@code booster.save_model("model.json")}.
+     *
+     * @throws IllegalArgumentException if the model is not a numeric
+     *                                  binary:logistic tree ensemble
+     */
+    public static TreeEnsembleModel fromXGBoostJson(ObjectMapper objectMapper, InputStream in) throws IOException {
+        JsonNode learner = objectMapper.readTree(in).path("learner");
+        String objective = learner.path("objective").path("name").asText();
+        if (!"binary:logistic".equals(objective)) {
+            throw new IllegalArgumentException("Unsupported objective: " + objective);
+        }
+        JsonNode booster = learner.path("gradient_booster");
+        if (!"gbtree".equals(booster.path("name").asText())) {
+            throw new IllegalArgumentException("Unsupported booster: " + booster.path("name").asText());
+        }
+
+        JsonNode modelParam = learner.path("learner_model_param");
+        int featureCount = Integer.parseInt(modelParam.path("num_feature").asText());
+        // XGBoost 3 writes the base score as a one-element vector, e.g. "[5E-1]"
+        float baseScore = Float.parseFloat(modelParam.path("base_score").asText().replace("[", "").replace("]", ""));
+        float baseMargin = (float) -Math.log(1.0 / baseScore - 1.0);
+
+        JsonNode trees = booster.path("model").path("trees");
+        int nodeCount = 0;
+        for (JsonNode tree : trees) {
+            nodeCount += tree.path("left_children").size();
+        }
+
+        int[] roots = new int[trees.size()];
+        int[] feature = new int[nodeCount];
+        float[] threshold = new float[nodeCount];
+        int[] left = new int[nodeCount];
+        int[] right = new int[nodeCount];
+        boolean[] defaultLeft = new boolean[nodeCount];
+
+        int offset = 0;
+        for (int t = 0; t < trees.size(); t++) {
+            JsonNode tree = trees.get(t);
+            JsonNode leftChildren = tree.path("left_children");
+            JsonNode rightChildren = tree.path("right_children");
+            JsonNode splitIndices = tree.path("split_indices");
+            JsonNode splitConditions = tree.path("split_conditions");
+            JsonNode defaults = tree.path("default_left");
+            JsonNode splitTypes = tree.path("split_type");
+
+            roots[t] = offset;
+            for (int n = 0; n < leftChildren.size(); n++) {
+                int node = offset + n;
+                if (splitTypes.has(n) && splitTypes.get(n).asInt() != 0) {
+                    throw new IllegalArgumentException("Categorical splits are not supported (tree " + t + ")");
+                }
+                threshold[node] = (float) splitConditions.get(n).asDouble();
+                if (leftChildren.get(n).asInt() == LEAF) {
+                    feature[node] = LEAF;
+                    continue;
+                }
+                feature[node] = splitIndices.get(n).asInt();
+                if (feature[node] >= featureCount) {
+                    throw new IllegalArgumentException("Split on unknown feature " + feature[node] + " (tree " + t + ")");
+                }
+                left[node] = offset + leftChildren.get(n).asInt();
+                right[node] = offset + rightChildren.get(n).asInt();
+                JsonNode missingLeft = defaults.get(n);
+                defaultLeft[node] = missingLeft.isBoolean() ? missingLeft.booleanValue() : missingLeft.asInt() != 0;
+            }
+            offset += leftChildren.size();
+        }
+
+        return new TreeEnsembleModel(featureCount, baseMargin, roots, feature, threshold, left, right, defaultLeft);
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    public int getTreeCount() {
+        return roots.length;
+    }
+
+    public int getNodeCount() {
+        return feature.length;
+    }
+
+    /**
+     * Score one row. NaN features follow each split's default direction.
+     *
+     * @param features {@link #getFeatureCount()} values in model order
+     * @return The positive-class probability
+     */
+    public float predictProbability(float[] features) {
+        float margin = baseMargin;
+        for (int root : roots) {
+            margin += leafValue(root, features, 0);
+        }
+        return sigmoid(margin);
+    }
+
+    /**
+     * Score many rows stored back to back in one array. Rows are scored in
+     * blocks, each tree visiting every row of the block before the next tree,
+     * so the nodes being walked stay in cache.
+     *
+     * @param rows     {@code rowCount * getFeatureCount()} values, row-major
+     * @param rowCount Number of rows to score
+     * @param out      Receives one probability per row
+     */
+    public void predictProbabilities(float[] rows, int rowCount, float[] out) {
+        for (int blockStart = 0; blockStart < rowCount; blockStart += BLOCK_SIZE) {
+            int blockEnd = Math.min(blockStart + BLOCK_SIZE, rowCount);
+            for (int row = blockStart; row < blockEnd; row++) {
+                out[row] = baseMargin;
+            }
+            for (int root : roots) {
+                for (int row = blockStart; row < blockEnd; row++) {
+                    out[row] += leafValue(root, rows, row * featureCount);
+                }
+            }
+            for (int row = blockStart; row < blockEnd; row++) {
+                out[row] = sigmoid(out[row]);
+            }
+        }
+    }
+
+    private float leafValue(int node, float[] values, int offset) {
+        while (feature[node] != LEAF) {
+            float value = values[offset + feature[node]];
+            boolean goLeft = Float.isNaN(value) ? defaultLeft[node] : value < threshold[node];
+            node = goLeft ? left[node] : right[node];
+        }
+        return threshold[node];
+    }
+
+    private static float sigmoid(float margin) {
+        return (float) (1.0 / (1.0 + Math.exp(-margin)));
+    }
+
+    /**
+     * @return The class XGBClassifier.predict would return for a probability
+     */
+    public static int toClass(float probability) {
+        return probability > 0.5f ? 1 : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TreeEnsembleModel[" + roots.length + " trees, " + feature.length + " nodes, "
+                + featureCount + " features]";
+    }
+}
@@ -1,15 +1,19 @@
 package com.diagnoai.repository;
 
+import com.diagnoai.dto.ReportSummary;
 import com.diagnoai.entity.DiseaseType;
 import com.diagnoai.entity.TestReport;
 import com.diagnoai.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TestReportRepository extends JpaRepository<TestReport, Long> {
@@ -31,6 +35,37 @@ public interface TestReportRepository extends JpaRepository<TestReport, Long> {
         @Param("endDate") LocalDateTime endDate
     );
     
+    /**
+     * One page of the reports of the given users, newest first, starting
+     * strictly after the (beforeCreatedAt, beforeId) position. Each row is
+     * read together with its owner's name and email in one statement.
+     *
+     * @param diseaseType Only this disease, or null for all
+     * @param limit       Maximum number of reports
+     */
+    @Query("SELECT new com.diagnoai.dto.ReportSummary(tr.id, tr.diseaseType, tr.predictionResult, tr.probability,"
+            + " tr.predictionMessage, tr.messageTemplate, tr.createdAt, u.fullName, u.email)"
+            + " FROM TestReport tr JOIN tr.user u WHERE u.id IN :userIds"
+            + " AND (:diseaseType IS NULL OR tr.diseaseType = :diseaseType)"
+            + " AND tr.createdAt >= :from"
+            + " AND (tr.createdAt < :beforeCreatedAt OR (tr.createdAt = :beforeCreatedAt AND tr.id < :beforeId))"
+            + " ORDER BY tr.createdAt DESC, tr.id DESC")
+    List<ReportSummary> findSummaryPageByUserIds(
+        @Param("userIds") Collection<Long> userIds,
+        @Param("diseaseType") DiseaseType diseaseType,
+        @Param("from") LocalDateTime from,
+        @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+        @Param("beforeId") Long beforeId,
+        Limit limit
+    );
+    
+    
+    @Query("SELECT tr FROM TestReport tr JOIN FETCH tr.user WHERE tr.id = :reportId")
+    Optional<TestReport> findWithUserById(@Param("reportId") Long reportId);
+
+    @Query("SELECT tr.user.id FROM TestReport tr WHERE tr.id = :reportId")
+    Optional<Long> findOwnerIdById(@Param("reportId") Long reportId);
+
     Long countByUser(User user);
     
     Long countByUserAndDiseaseType(User user, DiseaseType diseaseType);
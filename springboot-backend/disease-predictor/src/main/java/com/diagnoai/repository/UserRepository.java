@@ -3,17 +3,27 @@ package com.diagnoai.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.diagnoai.config.UserCacheConfig;
 import com.diagnoai.entity.User;
+import com.diagnoai.entity.UserRole;
+
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = UserCacheConfig.USER_QUERIES_REGION)
+    })
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmail(String email);
@@ -24,19 +34,47 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findByIsActiveTrue();
 
-    @Query("SELECT u FROM User u WHERE u.fullName LIKE %:name% AND u.isActive = true")
-    List<User> findByFullNameContainingAndIsActiveTrue(@Param("name") String name);
-
     @Query("SELECT r FROM User u JOIN u.relatives r WHERE u.id = :userId")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = UserCacheConfig.USER_QUERIES_REGION)
+    })
     List<User> findRelativesByUserId(@Param("userId") Long userId);
 
     @Query("SELECT u FROM User u JOIN u.relatives r WHERE r.id = :userId")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = UserCacheConfig.USER_QUERIES_REGION)
+    })
     List<User> findUsersWhoHaveAsRelative(@Param("userId") Long userId);
 
+    @Query("SELECT u.role FROM User u WHERE u.id = :userId")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = UserCacheConfig.USER_QUERIES_REGION)
+    })
+    Optional<UserRole> findRoleById(@Param("userId") Long userId);
+
+    @Query("SELECT r.id FROM User u JOIN u.relatives r WHERE u.id = :userId")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = UserCacheConfig.USER_QUERIES_REGION)
+    })
+    List<Long> findRelativeIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT u.id FROM User u JOIN u.relatives r WHERE r.id = :userId")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = UserCacheConfig.USER_QUERIES_REGION)
+    })
+    List<Long> findIdsOfUsersWhoHaveAsRelative(@Param("userId") Long userId);
+
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.relatives WHERE u.id = :userId")
     Optional<User> findByIdWithRelatives(@Param("userId") Long userId);
 
+    // Only queries over user_relatives are invalidated; the relative collections are evicted by UserCache
     @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_relatives"))
     @Query(value = "INSERT INTO user_relatives (user_id, relative_id) VALUES (:userId, :relativeId)", nativeQuery = true)
     void addRelativeRelationship(@Param("userId") Long userId, @Param("relativeId") Long relativeId);
 }
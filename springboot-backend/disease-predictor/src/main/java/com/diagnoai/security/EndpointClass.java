@@ -0,0 +1,37 @@
+package com.diagnoai.security;
+
+/**
+ * Groups API paths that cost about the same to serve, so each group can be
+ * given its own request quota.
+ */
+public enum EndpointClass {
+
+    AUTH,     // /api/auth/**, limited per client address
+    BULK,     // /api/predict/{disease}/bulk, /api/reports/import
+    PREDICT,  // /api/predict/**
+    REPORTS,  // /api/reports/**
+    API;      // any other /api/** path
+
+    /**
+     * @param path The request path without the context path
+     * @return The class of the path, or null for paths outside the API
+     */
+    public static EndpointClass of(String path) {
+        if (!path.startsWith("/api/")) {
+            return null;
+        }
+        if (path.startsWith("/api/auth/")) {
+            return AUTH;
+        }
+        if (path.startsWith("/api/predict/")) {
+            return path.endsWith("/bulk") ? BULK : PREDICT;
+        }
+        if (path.equals("/api/reports/import")) {
+            return BULK;
+        }
+        if (path.startsWith("/api/reports/") || path.equals("/api/reports")) {
+            return REPORTS;
+        }
+        return API;
+    }
+}
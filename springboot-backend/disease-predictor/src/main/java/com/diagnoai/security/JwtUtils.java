@@ -76,6 +76,18 @@ public class JwtUtils {
         return claims.get("userId", Long.class);
     }
 
+    /**
+     * @return The user id of a valid token, or null for an invalid or expired
+     *         one; failures are not logged, unlike {@link #validateJwtToken}
+     */
+    public Long getUserIdIfValid(String token) {
+        try {
+            return getUserIdFromJwtToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public String getEmailFromJwtToken(String token) {
         Claims claims = Jwts.parser()
                 .verifyWith(getSigningKey())
@@ -0,0 +1,74 @@
+package com.diagnoai.security;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Admission control in front of authentication: requests over their quota are
+ * answered with 429 and a Retry-After header before they load the user, take
+ * a database connection or reach a model. Authenticated requests are counted
+ * against the user id in their token, everything else and all of
+ * {@code /api/auth} against the client address.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final JwtUtils jwtUtils;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        EndpointClass endpointClass = rateLimiter.isEnabled() && !"OPTIONS".equals(request.getMethod())
+                ? EndpointClass.of(request.getRequestURI().substring(request.getContextPath().length()))
+                : null;
+        if (endpointClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(endpointClass, clientKey(request, endpointClass));
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "message", "Error: Too many requests; retry in " + retryAfterSeconds + " s",
+                "retryAfterSeconds", retryAfterSeconds));
+    }
+
+    private String clientKey(HttpServletRequest request, EndpointClass endpointClass) {
+        if (endpointClass != EndpointClass.AUTH) {
+            String headerAuth = request.getHeader("Authorization");
+            if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
+                Long userId = jwtUtils.getUserIdIfValid(headerAuth.substring(7));
+                if (userId != null) {
+                    return "user:" + userId;
+                }
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
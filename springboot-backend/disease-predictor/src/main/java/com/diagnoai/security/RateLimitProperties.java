@@ -0,0 +1,42 @@
+package com.diagnoai.security;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Request quotas per client and endpoint class ({@code app.rate-limit.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = false;
+
+    // How often buckets that have refilled completely are dropped
+    private Duration sweepInterval = Duration.ofMinutes(1);
+
+    // Quota of each endpoint class, e.g. app.rate-limit.classes.predict.refill-per-second=5;
+    // a class without an entry is not limited
+    private Map<EndpointClass, Quota> classes = new EnumMap<>(EndpointClass.class);
+
+    public Quota quotaFor(EndpointClass endpointClass) {
+        return classes.get(endpointClass);
+    }
+
+    @Data
+    public static class Quota {
+
+        // Requests one client may burst, and how fast its allowance comes back
+        private int capacity = 60;
+        private double refillPerSecond = 20;
+
+        // Limit on the whole class across all clients; 0 turns it off
+        private int globalCapacity = 0;
+        private double globalPerSecond = 0;
+    }
+}
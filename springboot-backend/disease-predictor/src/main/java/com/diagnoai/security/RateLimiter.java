@@ -0,0 +1,139 @@
+package com.diagnoai.security;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token buckets per client and endpoint class, plus an optional bucket per
+ * class shared by all clients. Buckets live in concurrent maps and are
+ * updated with a single compare-and-set each, so admission checks on
+ * different clients never contend and checks on the same client never block.
+ */
+@Component
+public class RateLimiter {
+
+    private final RateLimitProperties properties;
+    private final LongSupplier nanoTime;
+
+    private final Map<EndpointClass, ConcurrentHashMap<String, TokenBucket>> clientBuckets = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, TokenBucket> globalBuckets = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counters> counters = new EnumMap<>(EndpointClass.class);
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, LongSupplier nanoTime) {
+        this.properties = properties;
+        this.nanoTime = nanoTime;
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            clientBuckets.put(endpointClass, new ConcurrentHashMap<>());
+            counters.put(endpointClass, new Counters());
+            RateLimitProperties.Quota quota = properties.quotaFor(endpointClass);
+            if (quota != null && quota.getGlobalPerSecond() > 0) {
+                globalBuckets.put(endpointClass, new TokenBucket(quota.getGlobalCapacity(), quota.getGlobalPerSecond(),
+                        nanoTime.getAsLong()));
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Take one request's worth of quota.
+     *
+     * @param clientKey Who is asking, e.g. "user:42" or "ip:10.0.0.7"
+     * @return 0 if the request is admitted, otherwise how many nanoseconds to
+     *         wait before retrying
+     */
+    public long tryAcquire(EndpointClass endpointClass, String clientKey) {
+        RateLimitProperties.Quota quota = properties.quotaFor(endpointClass);
+        if (quota == null) {
+            return 0;
+        }
+
+        long now = nanoTime.getAsLong();
+        Counters stats = counters.get(endpointClass);
+        TokenBucket client = clientBuckets.get(endpointClass).computeIfAbsent(clientKey,
+                key -> new TokenBucket(quota.getCapacity(), quota.getRefillPerSecond(), now));
+        long wait = client.tryAcquire(now);
+        if (wait > 0) {
+            stats.rejectedClient.increment();
+            return wait;
+        }
+
+        TokenBucket global = globalBuckets.get(endpointClass);
+        if (global != null) {
+            wait = global.tryAcquire(now);
+            if (wait > 0) {
+                // Not this client's fault; give its token back
+                client.release();
+                stats.rejectedGlobal.increment();
+                return wait;
+            }
+        }
+
+        stats.admitted.increment();
+        return 0;
+    }
+
+    /**
+     * Drop buckets that have refilled completely. A client coming back later
+     * gets a fresh, full bucket, which is the same thing. A request racing
+     * the sweep may get one extra token.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval:1m}")
+    public void sweep() {
+        long now = nanoTime.getAsLong();
+        for (ConcurrentHashMap<String, TokenBucket> buckets : clientBuckets.values()) {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> classStats = new LinkedHashMap<>();
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            RateLimitProperties.Quota quota = properties.quotaFor(endpointClass);
+            Counters stats = counters.get(endpointClass);
+            long admitted = stats.admitted.sum();
+            long shed = stats.rejectedClient.sum() + stats.rejectedGlobal.sum();
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("limited", quota != null);
+            if (quota != null) {
+                result.put("capacity", quota.getCapacity());
+                result.put("refillPerSecond", quota.getRefillPerSecond());
+                result.put("globalPerSecond", quota.getGlobalPerSecond());
+            }
+            result.put("clients", clientBuckets.get(endpointClass).size());
+            result.put("admitted", admitted);
+            result.put("rejectedClient", stats.rejectedClient.sum());
+            result.put("rejectedGlobal", stats.rejectedGlobal.sum());
+            result.put("shedRate", admitted + shed > 0 ? (double) shed / (admitted + shed) : 0.0);
+            classStats.put(endpointClass.name(), result);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("classes", classStats);
+        return result;
+    }
+
+    private static final class Counters {
+
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejectedClient = new LongAdder();
+        private final LongAdder rejectedGlobal = new LongAdder();
+    }
+}
@@ -0,0 +1,51 @@
+package com.diagnoai.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket held in a single {@link AtomicLong}: the time at which the
+ * bucket would be full again (the "theoretical arrival time" of the generic
+ * cell rate algorithm). Taking a token pushes that time forward by one
+ * refill interval with a compare-and-set, so callers never block each other.
+ */
+final class TokenBucket {
+
+    private final long refillIntervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(int capacity, double refillPerSecond, long now) {
+        this.refillIntervalNanos = Math.max(1, (long) (1e9 / refillPerSecond));
+        this.burstNanos = refillIntervalNanos * Math.max(1, capacity);
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * @return 0 if a token was taken, otherwise how long until one is available
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + refillIntervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Return a token taken by {@link #tryAcquire}, e.g. when a later check
+     * rejected the request anyway.
+     */
+    void release() {
+        fullAt.addAndGet(-refillIntervalNanos);
+    }
+
+    boolean isFull(long now) {
+        return fullAt.get() <= now;
+    }
+}
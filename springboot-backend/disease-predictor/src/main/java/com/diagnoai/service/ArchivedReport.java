@@ -0,0 +1,62 @@
+package com.diagnoai.service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+import com.diagnoai.dto.ReportSummary;
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+import com.diagnoai.prediction.PackedInput;
+import com.diagnoai.prediction.PredictionMessages;
+
+/**
+ * A report moved out of test_reports into the archive, with its columns as
+ * they were stored: input data as JSON or packed, the message as text or a
+ * template id.
+ */
+public record ArchivedReport(
+        long id,
+        long userId,
+        DiseaseType diseaseType,
+        int predictionResult,
+        Double probability,
+        String inputData,
+        byte[] inputPacked,
+        String predictionMessage,
+        Short messageTemplate,
+        LocalDateTime createdAt) {
+
+    // Listing order: newest first, the higher id first on equal times
+    public static final Comparator<ArchivedReport> NEWEST_FIRST = Comparator
+            .comparing(ArchivedReport::createdAt).thenComparingLong(ArchivedReport::id).reversed();
+
+    public String inputDataText() {
+        return inputData == null && inputPacked != null ? PackedInput.unpack(diseaseType, inputPacked) : inputData;
+    }
+
+    public String predictionMessageText() {
+        return predictionMessage == null && messageTemplate != null
+                ? PredictionMessages.render(messageTemplate, diseaseType, probability)
+                : predictionMessage;
+    }
+
+    public ReportSummary toSummary(String userName, String userEmail) {
+        return new ReportSummary(id, diseaseType, predictionResult, probability, predictionMessageText(), createdAt,
+                userName, userEmail);
+    }
+
+    /**
+     * The report as a detached entity, for code that reads reports as
+     * entities. It is never saved.
+     */
+    public TestReport toTestReport(User user) {
+        TestReport report = new TestReport(user, diseaseType, predictionResult, probability, inputData,
+                predictionMessage);
+        report.setId(id);
+        report.setInputPacked(inputPacked);
+        report.setMessageTemplate(messageTemplate);
+        report.setCreatedAt(createdAt);
+        return report;
+    }
+}
@@ -0,0 +1,164 @@
+package com.diagnoai.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.diagnoai.entity.UserRole;
+import com.diagnoai.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * In-memory copy of the user_relatives graph for access decisions. Each user
+ * is loaded on first use with their role and sorted id arrays of both link
+ * directions; after that, checks are binary searches with no database round
+ * trip. Changing a link must {@link #invalidate} both ends.
+ * <p>
+ * At most max-cached-users are held, the least used evicted first, and each
+ * for at most time-to-live, which bounds how long a link changed on another
+ * instance is still seen here.
+ */
+@Component
+public class FamilyGraph {
+
+    /**
+     * One user's links.
+     *
+     * @param relatives  Ids of the relatives this user added, sorted
+     * @param relativeOf Ids of the users who added this user as a relative, sorted
+     */
+    public record Links(UserRole role, long[] relatives, long[] relativeOf) {
+
+        public boolean hasRelative(long userId) {
+            return Arrays.binarySearch(relatives, userId) >= 0;
+        }
+
+        public boolean isRelativeOf(long userId) {
+            return Arrays.binarySearch(relativeOf, userId) >= 0;
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final int maxCachedUsers;
+    private final Duration timeToLive;
+
+    private final Cache<Long, Links> links;
+    // Bumped by every invalidation so a load that read the old links does not store them
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public FamilyGraph(UserRepository userRepository,
+            @Value("${app.access-graph.max-cached-users:100000}") int maxCachedUsers,
+            @Value("${app.access-graph.time-to-live:5m}") Duration timeToLive) {
+        this(userRepository, maxCachedUsers, timeToLive, Ticker.systemTicker());
+    }
+
+    FamilyGraph(UserRepository userRepository, int maxCachedUsers, Duration timeToLive, Ticker ticker) {
+        this.userRepository = userRepository;
+        this.maxCachedUsers = maxCachedUsers;
+        this.timeToLive = timeToLive;
+        this.links = Caffeine.newBuilder()
+                .maximumSize(maxCachedUsers)
+                .expireAfterWrite(timeToLive)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * @throws RuntimeException if there is no such user
+     */
+    public Links links(Long userId) {
+        return find(userId).orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    public Optional<Links> find(Long userId) {
+        Links cached = links.getIfPresent(userId);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+
+        long loadedAt = generation.get();
+        Optional<UserRole> role = userRepository.findRoleById(userId);
+        if (role.isEmpty()) {
+            return Optional.empty();
+        }
+        Links loaded = new Links(role.get(),
+                sorted(userRepository.findRelativeIdsByUserId(userId)),
+                sorted(userRepository.findIdsOfUsersWhoHaveAsRelative(userId)));
+        loads.increment();
+
+        links.asMap().compute(userId, (id, current) -> generation.get() == loadedAt ? loaded : current);
+        return Optional.of(loaded);
+    }
+
+    /**
+     * Whether either user added the other as a relative; false if the user
+     * does not exist.
+     */
+    public boolean areLinked(Long userId, Long otherUserId) {
+        return find(userId)
+                .map(userLinks -> userLinks.hasRelative(otherUserId) || userLinks.isRelativeOf(otherUserId))
+                .orElse(false);
+    }
+
+    /**
+     * Drop the cached links of the given users, now and again when the
+     * current transaction commits, so nobody keeps links read before it.
+     */
+    public void invalidate(Long... userIds) {
+        evict(userIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userIds);
+                }
+            });
+        }
+    }
+
+    private void evict(Long... userIds) {
+        generation.incrementAndGet();
+        for (Long userId : userIds) {
+            if (userId != null) {
+                links.invalidate(userId);
+            }
+        }
+        invalidations.increment();
+    }
+
+    private static long[] sorted(List<Long> ids) {
+        long[] array = ids.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(array);
+        return array;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedUsers", links.estimatedSize());
+        stats.put("maxCachedUsers", maxCachedUsers);
+        stats.put("timeToLiveSeconds", timeToLive.toSeconds());
+        stats.put("hits", hits.sum());
+        stats.put("loads", loads.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+}
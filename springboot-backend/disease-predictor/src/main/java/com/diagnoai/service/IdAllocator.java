@@ -0,0 +1,126 @@
+package com.diagnoai.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.stereotype.Component;
+
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Report and user ids, handed out in blocks from the id_blocks table by the
+ * generators Hibernate uses for the entities. With ids known before the
+ * insert, Hibernate batches inserts, which it cannot do for AUTO_INCREMENT
+ * ids. Rows inserted with plain JDBC take their ids from here as well, so
+ * they never collide with a block Hibernate holds.
+ * <p>
+ * Tables created before the switch hold AUTO_INCREMENT ids; on startup each
+ * block row is moved past the highest id in use, archived reports included.
+ */
+@Component
+@Slf4j
+public class IdAllocator {
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReportArchive reportArchive;
+
+    // Turns Hibernate's exceptions into Spring's, as repositories get them
+    private final HibernateJpaDialect jpaDialect = new HibernateJpaDialect();
+
+    private final LongAdder allocated = new LongAdder();
+
+    public IdAllocator(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate,
+            ReportArchive reportArchive) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.jdbcTemplate = jdbcTemplate;
+        this.reportArchive = reportArchive;
+    }
+
+    /**
+     * Move the block rows past the ids already in the tables. Safe to run
+     * while other instances allocate: a row is only ever raised.
+     */
+    @PostConstruct
+    public void align() {
+        align(User.class, "users", 0);
+        align(TestReport.class, "test_reports", reportArchive.maxId());
+    }
+
+    private void align(Class<?> entityClass, String table, long archivedMaxId) {
+        TableGenerator generator = generatorOf(entityClass);
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        // The next block read hands out the ids from the stored value less the block size, plus one
+        long next = Math.max(maxId, archivedMaxId) + generator.getIncrementSize();
+
+        String update = "UPDATE " + generator.getTableName() + " SET " + generator.getValueColumnName()
+                + " = ? WHERE " + generator.getSegmentColumnName() + " = ? AND " + generator.getValueColumnName()
+                + " < ?";
+        String count = "SELECT COUNT(*) FROM " + generator.getTableName() + " WHERE "
+                + generator.getSegmentColumnName() + " = ?";
+        String insert = "INSERT INTO " + generator.getTableName() + " (" + generator.getSegmentColumnName() + ", "
+                + generator.getValueColumnName() + ") VALUES (?, ?)";
+
+        if (jdbcTemplate.update(update, next, generator.getSegmentValue(), next) > 0) {
+            log.info("Moved {} id blocks past id {}", generator.getSegmentValue(), next - generator.getIncrementSize());
+            return;
+        }
+        if (jdbcTemplate.queryForObject(count, Integer.class, generator.getSegmentValue()) == 0) {
+            try {
+                jdbcTemplate.update(insert, generator.getSegmentValue(), next);
+            } catch (DuplicateKeyException e) {
+                // Another instance created it first
+                jdbcTemplate.update(update, next, generator.getSegmentValue(), next);
+            }
+        }
+    }
+
+    /**
+     * Ids for rows of the entity's table that are inserted without Hibernate.
+     *
+     * @throws DataAccessException if a block cannot be read, like any other
+     *         JDBC failure, so callers fall back as they do for those
+     */
+    public long[] next(Class<?> entityClass, int count) {
+        TableGenerator generator = generatorOf(entityClass);
+        long[] ids = new long[count];
+        // Blocks are read and advanced on a connection of their own, outside any running transaction
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            for (int i = 0; i < count; i++) {
+                ids[i] = ((Number) generator.generate((SharedSessionContractImplementor) session, null)).longValue();
+            }
+        } catch (PersistenceException e) {
+            DataAccessException translated = jpaDialect.translateExceptionIfPossible(e);
+            throw translated != null ? translated : e;
+        }
+        allocated.add(count);
+        return ids;
+    }
+
+    private TableGenerator generatorOf(Class<?> entityClass) {
+        return (TableGenerator) sessionFactory.getMappingMetamodel().getEntityDescriptor(entityClass).getGenerator();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("allocatedOutsideHibernate", allocated.sum());
+        stats.put("userBlockReads", generatorOf(User.class).getTableAccessCount());
+        stats.put("reportBlockReads", generatorOf(TestReport.class).getTableAccessCount());
+        return stats;
+    }
+}
@@ -0,0 +1,19 @@
+package com.diagnoai.service;
+
+import java.time.LocalDateTime;
+
+import com.diagnoai.entity.DiseaseType;
+
+/**
+ * A prediction report accepted for asynchronous persistence. Holds the owner
+ * by id only, so no {@code User} has to be loaded to store it.
+ */
+public record PendingReport(
+        Long userId,
+        DiseaseType diseaseType,
+        Integer predictionResult,
+        Double probability,
+        String inputData,
+        String predictionMessage,
+        LocalDateTime createdAt) {
+}
@@ -0,0 +1,606 @@
+package com.diagnoai.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diagnoai.entity.DiseaseType;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cold tier of the report history. The archiving job moves reports older
+ * than {@code app.reports.archive.age} out of test_reports into immutable
+ * segment files, so the live table only holds recent reports.
+ * <p>
+ * A segment is a pair of files. {@code NNNNNN.seg} holds one
+ * deflate-compressed block per user with that user's reports, newest first.
+ * {@code NNNNNN.idx} holds a header, one entry per block (owner, offset,
+ * length, time span, counts per disease and outcome) and every report id with
+ * its block, sorted by id. Both are memory-mapped. The block entries are
+ * also kept in memory per user, so finding a user's blocks never touches the
+ * disk, and a block is only inflated when it can hold a matching report.
+ * <p>
+ * A segment is published before its reports are deleted from test_reports,
+ * so a report can briefly be in both tiers; readers drop the duplicate by id.
+ */
+@Component
+@Slf4j
+public class ReportArchive {
+
+    private static final int MAGIC = 0x52415243; // "RARC"
+    private static final int VERSION_1 = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int BLOCK_ENTRY_BYTES = 40 + 4 * ReportTally.SLOTS;
+    private static final int ID_ENTRY_BYTES = 12;
+
+    // Which optional fields follow in a stored report
+    private static final int HAS_PROBABILITY = 1;
+    private static final int HAS_INPUT_PACKED = 2;
+    private static final int HAS_INPUT_TEXT = 4;
+    private static final int HAS_MESSAGE_TEMPLATE = 8;
+    private static final int HAS_MESSAGE_TEXT = 16;
+
+    private static final String SELECT_SQL = "SELECT id, user_id, disease_type, prediction_result, probability, "
+            + "input_data, input_packed, prediction_message, message_template, created_at FROM test_reports "
+            + "WHERE created_at < ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReportArchiveProperties properties;
+    private final Path directory;
+    private final ReentrantLock archiveLock = new ReentrantLock();
+
+    // Newest segment first
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    // Newest block first; lists are replaced, never changed
+    private final Map<Long, List<Block>> blocksByUser = new ConcurrentHashMap<>();
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder blockReads = new LongAdder();
+    private final AtomicLong lastRunArchived = new AtomicLong();
+    private final AtomicLong lastRunMs = new AtomicLong();
+
+    public ReportArchive(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ReportArchiveProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.directory = Paths.get(properties.getDirectory());
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the report archive in " + directory, e);
+        }
+    }
+
+    private static final class Segment {
+
+        private final int number;
+        private final MappedByteBuffer data;
+        private final MappedByteBuffer index;
+        private final int reportCount;
+        private final long bytes;
+        private final Block[] blocks;
+
+        private Segment(int number, MappedByteBuffer data, MappedByteBuffer index) {
+            this.number = number;
+            this.data = data;
+            this.index = index;
+            this.reportCount = index.getInt(12);
+            this.bytes = (long) data.capacity() + index.capacity();
+            this.blocks = new Block[index.getInt(8)];
+            for (int i = 0; i < blocks.length; i++) {
+                int entry = HEADER_BYTES + i * BLOCK_ENTRY_BYTES;
+                int[] tally = new int[ReportTally.SLOTS];
+                for (int slot = 0; slot < tally.length; slot++) {
+                    tally[slot] = index.getInt(entry + 40 + 4 * slot);
+                }
+                blocks[i] = new Block(this, index.getLong(entry), (int) index.getLong(entry + 8),
+                        index.getInt(entry + 16), index.getInt(entry + 20), index.getLong(entry + 24),
+                        index.getLong(entry + 32), tally);
+            }
+        }
+
+        // The block holding the report, or -1; a binary search over the mapped id table
+        private int blockOf(long reportId) {
+            int idTable = HEADER_BYTES + blocks.length * BLOCK_ENTRY_BYTES;
+            int low = 0;
+            int high = reportCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long id = index.getLong(idTable + mid * ID_ENTRY_BYTES);
+                if (id < reportId) {
+                    low = mid + 1;
+                } else if (id > reportId) {
+                    high = mid - 1;
+                } else {
+                    return index.getInt(idTable + mid * ID_ENTRY_BYTES + 8);
+                }
+            }
+            return -1;
+        }
+
+        private long lastId() {
+            int idTable = HEADER_BYTES + blocks.length * BLOCK_ENTRY_BYTES;
+            return reportCount == 0 ? 0 : index.getLong(idTable + (reportCount - 1) * ID_ENTRY_BYTES);
+        }
+    }
+
+    // Time span in epoch microseconds, rounded down
+    private record Block(Segment segment, long userId, int offset, int length, int count, long newestMicros,
+            long oldestMicros, int[] tally) {
+
+        private boolean holds(DiseaseType diseaseType) {
+            return diseaseType == null
+                    || tally[ReportTally.slot(diseaseType, 0)] + tally[ReportTally.slot(diseaseType, 1)] > 0;
+        }
+    }
+
+    // Next in line of a walk: a block not yet read, standing in for its newest report, or a report of a read one
+    private record Pending(Block block, ArchivedReport report) {
+
+        private long micros() {
+            return block != null ? block.newestMicros() : ReportArchive.micros(report.createdAt());
+        }
+    }
+
+    // Newest first; a block goes ahead of reports as new as its newest, which is rounded down
+    private static final Comparator<Pending> NEXT_IN_LINE = (a, b) -> {
+        int byTime = Long.compare(b.micros(), a.micros());
+        if (byTime != 0) {
+            return byTime;
+        }
+        if (a.block() != null || b.block() != null) {
+            return Boolean.compare(b.block() != null, a.block() != null);
+        }
+        return ArchivedReport.NEWEST_FIRST.compare(a.report(), b.report());
+    };
+
+    private void load() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Integer> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // Left by a run that died before publishing; its reports are still in test_reports
+                    Files.delete(file);
+                } else if (name.endsWith(".idx") && Files.exists(dataFile(number(name)))) {
+                    numbers.add(number(name));
+                }
+            }
+        }
+        numbers.sort(null);
+        for (int number : numbers) {
+            publish(open(number));
+        }
+        if (!segments.isEmpty()) {
+            log.info("Report archive: {} segments, {} reports", segments.size(), archivedReports());
+        }
+    }
+
+    private static int number(String fileName) {
+        return Integer.parseInt(fileName.substring(0, fileName.indexOf('.')));
+    }
+
+    private Path dataFile(int number) {
+        return directory.resolve(String.format("%06d.seg", number));
+    }
+
+    private Path indexFile(int number) {
+        return directory.resolve(String.format("%06d.idx", number));
+    }
+
+    private Segment open(int number) throws IOException {
+        MappedByteBuffer index = map(indexFile(number));
+        if (index.capacity() < HEADER_BYTES || index.getInt(0) != MAGIC || index.getInt(4) != VERSION_1) {
+            throw new IOException("Not a version " + VERSION_1 + " report archive index: " + indexFile(number));
+        }
+        return new Segment(number, map(dataFile(number)), index);
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        // The mapping stays valid once the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private void publish(Segment segment) {
+        for (Block block : segment.blocks) {
+            blocksByUser.merge(block.userId(), List.of(block), (existing, added) -> {
+                List<Block> blocks = new ArrayList<>(added);
+                blocks.addAll(existing);
+                return List.copyOf(blocks);
+            });
+        }
+        segments.add(0, segment);
+    }
+
+    /**
+     * Move every report older than the configured age into new segments,
+     * {@code segment-size} reports at a time.
+     */
+    @Scheduled(cron = "${app.reports.archive.cron:0 15 4 * * *}")
+    public void archive() {
+        if (!properties.isEnabled() || !archiveLock.tryLock()) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            LocalDateTime cutoff = LocalDateTime.now().minus(properties.getAge());
+            int segmentSize = properties.getSegmentSize();
+            long archived = 0;
+            List<ArchivedReport> batch;
+            do {
+                batch = jdbcTemplate.query(SELECT_SQL, ReportArchive::mapRow, cutoff, segmentSize);
+                // A previous run may have died between publishing a segment and deleting its reports
+                List<ArchivedReport> fresh = batch.stream().filter(report -> !contains(report.id())).toList();
+                if (!fresh.isEmpty()) {
+                    int number = segments.isEmpty() ? 1 : segments.get(0).number + 1;
+                    publish(write(number, fresh));
+                }
+                List<Object[]> ids = batch.stream().map(report -> new Object[] {report.id()}).toList();
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate("DELETE FROM test_reports WHERE id = ?", ids));
+                archived += batch.size();
+            } while (batch.size() == segmentSize);
+
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            runs.increment();
+            lastRunArchived.set(archived);
+            lastRunMs.set(elapsedMs);
+            log.info("Archived {} reports older than {} in {} ms", archived, cutoff, elapsedMs);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write a report archive segment", e);
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    private static ArchivedReport mapRow(ResultSet rs, int rowNum) throws SQLException {
+        double probability = rs.getDouble("probability");
+        Double storedProbability = rs.wasNull() ? null : probability;
+        short template = rs.getShort("message_template");
+        Short messageTemplate = rs.wasNull() ? null : template;
+        return new ArchivedReport(rs.getLong("id"), rs.getLong("user_id"),
+                DiseaseType.valueOf(rs.getString("disease_type")), rs.getInt("prediction_result"),
+                storedProbability, rs.getString("input_data"), rs.getBytes("input_packed"),
+                rs.getString("prediction_message"), messageTemplate,
+                rs.getObject("created_at", LocalDateTime.class));
+    }
+
+    private Segment write(int number, List<ArchivedReport> reports) throws IOException {
+        Map<Long, List<ArchivedReport>> byUser = new TreeMap<>();
+        for (ArchivedReport report : reports) {
+            byUser.computeIfAbsent(report.userId(), userId -> new ArrayList<>()).add(report);
+        }
+
+        ByteBuffer index = ByteBuffer.allocate(HEADER_BYTES + byUser.size() * BLOCK_ENTRY_BYTES
+                + reports.size() * ID_ENTRY_BYTES);
+        index.putInt(MAGIC).putInt(VERSION_1).putInt(byUser.size()).putInt(reports.size());
+        long[][] idsAndBlocks = new long[reports.size()][];
+
+        Files.createDirectories(directory);
+        Path dataTemp = directory.resolve(dataFile(number).getFileName() + ".tmp");
+        Path indexTemp = directory.resolve(indexFile(number).getFileName() + ".tmp");
+        try (FileChannel data = FileChannel.open(dataTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            int block = 0;
+            int report = 0;
+            for (Map.Entry<Long, List<ArchivedReport>> user : byUser.entrySet()) {
+                List<ArchivedReport> userReports = user.getValue();
+                userReports.sort(ArchivedReport.NEWEST_FIRST);
+                byte[] compressed = compress(userReports);
+                data.write(ByteBuffer.wrap(compressed));
+
+                int[] tally = new int[ReportTally.SLOTS];
+                for (ArchivedReport userReport : userReports) {
+                    tally[ReportTally.slot(userReport.diseaseType(), userReport.predictionResult())]++;
+                    idsAndBlocks[report++] = new long[] {userReport.id(), block};
+                }
+                index.putLong(user.getKey()).putLong(offset).putInt(compressed.length).putInt(userReports.size())
+                        .putLong(micros(userReports.get(0).createdAt()))
+                        .putLong(micros(userReports.get(userReports.size() - 1).createdAt()));
+                for (int count : tally) {
+                    index.putInt(count);
+                }
+                offset += compressed.length;
+                block++;
+            }
+            data.force(true);
+        }
+
+        Arrays.sort(idsAndBlocks, (a, b) -> Long.compare(a[0], b[0]));
+        for (long[] idAndBlock : idsAndBlocks) {
+            index.putLong(idAndBlock[0]).putInt((int) idAndBlock[1]);
+        }
+        index.flip();
+        try (FileChannel indexChannel = FileChannel.open(indexTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            indexChannel.write(index);
+            indexChannel.force(true);
+        }
+
+        // The index goes last: a segment only counts once both files are in place
+        Files.move(dataTemp, dataFile(number), StandardCopyOption.ATOMIC_MOVE);
+        Files.move(indexTemp, indexFile(number), StandardCopyOption.ATOMIC_MOVE);
+        return open(number);
+    }
+
+    private static byte[] compress(List<ArchivedReport> reports) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            for (ArchivedReport report : reports) {
+                int flags = (report.probability() != null ? HAS_PROBABILITY : 0)
+                        | (report.inputPacked() != null ? HAS_INPUT_PACKED : 0)
+                        | (report.inputData() != null ? HAS_INPUT_TEXT : 0)
+                        | (report.messageTemplate() != null ? HAS_MESSAGE_TEMPLATE : 0)
+                        | (report.predictionMessage() != null ? HAS_MESSAGE_TEXT : 0);
+                out.writeLong(report.id());
+                out.writeUTF(report.diseaseType().name());
+                out.writeInt(report.predictionResult());
+                out.writeByte(flags);
+                if (report.probability() != null) {
+                    out.writeDouble(report.probability());
+                }
+                out.writeLong(report.createdAt().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(report.createdAt().getNano());
+                if (report.inputPacked() != null) {
+                    writeBytes(out, report.inputPacked());
+                }
+                if (report.inputData() != null) {
+                    writeBytes(out, report.inputData().getBytes(StandardCharsets.UTF_8));
+                }
+                if (report.messageTemplate() != null) {
+                    out.writeShort(report.messageTemplate());
+                }
+                if (report.predictionMessage() != null) {
+                    writeBytes(out, report.predictionMessage().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private List<ArchivedReport> read(Block block) {
+        blockReads.increment();
+        byte[] compressed = new byte[block.length()];
+        block.segment().data.get(block.offset(), compressed);
+        List<ArchivedReport> reports = new ArrayList<>(block.count());
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+            for (int i = 0; i < block.count(); i++) {
+                long id = in.readLong();
+                DiseaseType diseaseType = DiseaseType.valueOf(in.readUTF());
+                int predictionResult = in.readInt();
+                int flags = in.readUnsignedByte();
+                Double probability = (flags & HAS_PROBABILITY) != 0 ? in.readDouble() : null;
+                LocalDateTime createdAt = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+                byte[] inputPacked = (flags & HAS_INPUT_PACKED) != 0 ? readBytes(in) : null;
+                String inputData = (flags & HAS_INPUT_TEXT) != 0
+                        ? new String(readBytes(in), StandardCharsets.UTF_8) : null;
+                Short messageTemplate = (flags & HAS_MESSAGE_TEMPLATE) != 0 ? in.readShort() : null;
+                String predictionMessage = (flags & HAS_MESSAGE_TEXT) != 0
+                        ? new String(readBytes(in), StandardCharsets.UTF_8) : null;
+                reports.add(new ArchivedReport(id, block.userId(), diseaseType, predictionResult, probability,
+                        inputData, inputPacked, predictionMessage, messageTemplate, createdAt));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt block in report archive segment " + block.segment().number, e);
+        }
+        return reports;
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static long micros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    public boolean hasReportsOf(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            if (blocksByUser.containsKey(userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Archived reports of the given users in listing order, positioned like
+     * the live listing: created at or after {@code from}, and before the
+     * ({@code before}, {@code beforeId}) position.
+     *
+     * @param diseaseType Only this disease, or null for all
+     * @param from        Lower bound, or null for none
+     * @param before      Upper bound, or null for none
+     * @param limit       Maximum number of reports
+     */
+    public List<ArchivedReport> find(Collection<Long> userIds, DiseaseType diseaseType, LocalDateTime from,
+            LocalDateTime before, long beforeId, int limit) {
+        List<ArchivedReport> found = new ArrayList<>();
+        if (limit > 0) {
+            walk(userIds, diseaseType, from, before, beforeId, report -> found.add(report) && found.size() < limit);
+        }
+        return found;
+    }
+
+    /**
+     * Archived reports of the given users in listing order, handed over one
+     * at a time: created at or after {@code from} and before {@code before}.
+     *
+     * @param diseaseType Only this disease, or null for all
+     * @param from        Lower bound, or null for none
+     * @param before      Upper bound, or null for none
+     */
+    public void forEachNewestFirst(Collection<Long> userIds, DiseaseType diseaseType, LocalDateTime from,
+            LocalDateTime before, Consumer<ArchivedReport> action) {
+        walk(userIds, diseaseType, from, before, Long.MIN_VALUE, report -> {
+            action.accept(report);
+            return true;
+        });
+    }
+
+    // Merges the users' blocks newest first. A block is only inflated once its newest report is next in line, so
+    // only blocks whose time spans overlap are held at once, and a walk stopped early leaves older blocks unread.
+    private void walk(Collection<Long> userIds, DiseaseType diseaseType, LocalDateTime from, LocalDateTime before,
+            long beforeId, Predicate<ArchivedReport> action) {
+        long fromMicros = from != null ? micros(from) : Long.MIN_VALUE;
+        long beforeMicros = before != null ? micros(before) : Long.MAX_VALUE;
+        PriorityQueue<Pending> queue = new PriorityQueue<>(NEXT_IN_LINE);
+        for (Long userId : userIds) {
+            for (Block block : blocksByUser.getOrDefault(userId, List.of())) {
+                if (block.newestMicros() >= fromMicros && block.oldestMicros() <= beforeMicros
+                        && block.holds(diseaseType)) {
+                    queue.add(new Pending(block, null));
+                }
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            Pending next = queue.poll();
+            if (next.report() != null) {
+                if (!action.test(next.report())) {
+                    return;
+                }
+                continue;
+            }
+            for (ArchivedReport report : read(next.block())) {
+                if ((diseaseType == null || report.diseaseType() == diseaseType)
+                        && (from == null || !report.createdAt().isBefore(from))
+                        && (before == null || report.createdAt().isBefore(before)
+                                || report.createdAt().isEqual(before) && report.id() < beforeId)) {
+                    queue.add(new Pending(null, report));
+                }
+            }
+        }
+    }
+
+    public Optional<ArchivedReport> findById(long reportId) {
+        for (Segment segment : segments) {
+            int block = segment.blockOf(reportId);
+            if (block >= 0) {
+                return read(segment.blocks[block]).stream().filter(report -> report.id() == reportId).findFirst();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The highest archived report id, or 0 when nothing is archived.
+     */
+    public long maxId() {
+        return segments.stream().mapToLong(Segment::lastId).max().orElse(0);
+    }
+
+    private boolean contains(long reportId) {
+        for (Segment segment : segments) {
+            if (segment.blockOf(reportId) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Every archived report of the given users, in no particular order.
+     */
+    public void forEach(Collection<Long> userIds, Consumer<ArchivedReport> action) {
+        for (Long userId : userIds) {
+            for (Block block : blocksByUser.getOrDefault(userId, List.of())) {
+                read(block).forEach(action);
+            }
+        }
+    }
+
+    /**
+     * Archived report counts per user, from the segment indexes alone.
+     */
+    public Map<Long, ReportTally> tallies() {
+        Map<Long, ReportTally> tallies = new LinkedHashMap<>();
+        blocksByUser.forEach((userId, blocks) -> {
+            long[] counts = new long[ReportTally.SLOTS];
+            for (Block block : blocks) {
+                for (int slot = 0; slot < counts.length; slot++) {
+                    counts[slot] += block.tally()[slot];
+                }
+            }
+            tallies.put(userId, new ReportTally(counts));
+        });
+        return tallies;
+    }
+
+    private long archivedReports() {
+        return segments.stream().mapToLong(segment -> segment.reportCount).sum();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("segments", segments.size());
+        stats.put("archivedReports", archivedReports());
+        stats.put("bytesOnDisk", segments.stream().mapToLong(segment -> segment.bytes).sum());
+        stats.put("users", blocksByUser.size());
+        stats.put("runs", runs.sum());
+        stats.put("lastRunArchived", lastRunArchived.get());
+        stats.put("lastRunMs", lastRunMs.get());
+        stats.put("blockReads", blockReads.sum());
+        return stats;
+    }
+}
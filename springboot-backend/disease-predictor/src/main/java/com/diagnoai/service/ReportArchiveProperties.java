@@ -0,0 +1,30 @@
+package com.diagnoai.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for moving old reports out of test_reports into local segment
+ * files ({@code app.reports.archive.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.reports.archive")
+public class ReportArchiveProperties {
+
+    // Off by default: the segments live on this instance's disk, so only one instance may archive
+    private boolean enabled = false;
+
+    private String directory = "data/report-archive";
+
+    // Reports older than this are moved on the next run
+    private Duration age = Duration.ofDays(365);
+
+    // When the archiving job runs
+    private String cron = "0 15 4 * * *";
+
+    // Reports per segment file; a run writes as many segments as it needs
+    private int segmentSize = 50_000;
+}
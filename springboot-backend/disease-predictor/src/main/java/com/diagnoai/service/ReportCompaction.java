@@ -0,0 +1,154 @@
+package com.diagnoai.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.prediction.PackedInput;
+import com.diagnoai.prediction.PredictionMessages;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves reports stored before the compact format to it: input data packed,
+ * stock messages replaced by their template id. Walks test_reports once in
+ * id order, a batch per tick, and stops when it reaches the end; reports
+ * saved since are written compactly already. Rows that cannot be compacted
+ * without changing what they read back are left as they are.
+ */
+@Component
+@Slf4j
+public class ReportCompaction {
+
+    private static final String SELECT_SQL = "SELECT id, disease_type, prediction_result, probability, input_data, "
+            + "prediction_message FROM test_reports "
+            + "WHERE id > ? AND (input_data IS NOT NULL OR prediction_message IS NOT NULL) ORDER BY id LIMIT ?";
+
+    // Whichever of the two columns is not being compacted keeps its current form
+    private static final String UPDATE_SQL = "UPDATE test_reports SET input_data = ?, "
+            + "input_packed = COALESCE(?, input_packed), prediction_message = ?, "
+            + "message_template = COALESCE(?, message_template) WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReportCompactionProperties properties;
+
+    private final AtomicLong lastId = new AtomicLong();
+    private volatile boolean complete;
+
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder packedInputs = new LongAdder();
+    private final LongAdder templatedMessages = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    public ReportCompaction(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ReportCompactionProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports.compaction.interval:1s}")
+    public void compactNextBatch() {
+        if (!properties.isEnabled() || complete) {
+            return;
+        }
+        Batch batch = transactionTemplate.execute(status -> compact(lastId.get(), properties.getBatchSize()));
+        // Counted once committed, so a failed batch is retried from the same place
+        lastId.set(batch.lastId());
+        scanned.add(batch.rows());
+        packedInputs.add(batch.packedInputs());
+        templatedMessages.add(batch.templatedMessages());
+        bytesSaved.add(batch.bytesSaved());
+        if (batch.rows() < properties.getBatchSize()) {
+            complete = true;
+            log.info("Report compaction finished: {} reports scanned, {} inputs packed, {} messages templated, "
+                    + "{} bytes saved", scanned.sum(), packedInputs.sum(), templatedMessages.sum(), bytesSaved.sum());
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Walk the table again from the start, e.g. after restoring reports
+     * written by an older version.
+     */
+    public void restart() {
+        lastId.set(0);
+        complete = false;
+    }
+
+    private record Batch(int rows, long lastId, long packedInputs, long templatedMessages, long bytesSaved) {
+    }
+
+    private Batch compact(long afterId, int batchSize) {
+        List<Object[]> updates = new ArrayList<>();
+        // rows, last id, packed inputs, templated messages, bytes saved
+        long[] totals = {0, afterId, 0, 0, 0};
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            long id = rs.getLong(1);
+            totals[0]++;
+            totals[1] = id;
+            DiseaseType diseaseType = DiseaseType.valueOf(rs.getString(2));
+            int predictionResult = rs.getInt(3);
+            double probabilityValue = rs.getDouble(4);
+            Double probability = rs.wasNull() ? null : probabilityValue;
+            String inputData = rs.getString(5);
+            String message = rs.getString(6);
+
+            byte[] packed = PackedInput.pack(diseaseType, inputData);
+            Short template = PredictionMessages.templateOf(diseaseType, predictionResult, probability, message);
+            if (packed == null && template == null) {
+                return;
+            }
+
+            if (packed != null) {
+                totals[2]++;
+                totals[4] += inputData.getBytes(StandardCharsets.UTF_8).length - packed.length;
+            }
+            if (template != null) {
+                totals[3]++;
+                totals[4] += message.getBytes(StandardCharsets.UTF_8).length - Short.BYTES;
+            }
+            updates.add(new Object[] {
+                packed == null ? inputData : null,
+                new SqlParameterValue(Types.VARBINARY, packed),
+                template == null ? message : null,
+                new SqlParameterValue(Types.SMALLINT, template),
+                id
+            });
+        }, afterId, batchSize);
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        }
+        return new Batch((int) totals[0], totals[1], totals[2], totals[3], totals[4]);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("complete", complete);
+        stats.put("lastId", lastId.get());
+        stats.put("scanned", scanned.sum());
+        stats.put("packedInputs", packedInputs.sum());
+        stats.put("templatedMessages", templatedMessages.sum());
+        stats.put("bytesSaved", bytesSaved.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,24 @@
+package com.diagnoai.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the background migration of stored reports to their compact
+ * form ({@code app.reports.compaction.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.reports.compaction")
+public class ReportCompactionProperties {
+
+    private boolean enabled = true;
+
+    // Reports read and rewritten per transaction
+    private int batchSize = 500;
+
+    // Pause between batches, to keep the migration out of the way of requests
+    private Duration interval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,22 @@
+package com.diagnoai.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the maintained report counters ({@code app.reports.counters.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.reports.counters")
+public class ReportCounterProperties {
+
+    // When the reconcile job recounts report_counts from test_reports
+    private String rebuildCron = "0 30 3 * * *";
+
+    // Fill an empty report_counts table at startup, e.g. right after upgrading
+    private boolean rebuildWhenEmpty = true;
+
+    // Users whose counts are kept in memory; beyond that the least used are evicted and read again when asked for
+    private int maxCachedUsers = 100_000;
+}
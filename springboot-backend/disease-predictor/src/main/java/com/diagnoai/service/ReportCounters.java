@@ -0,0 +1,260 @@
+package com.diagnoai.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diagnoai.entity.DiseaseType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Report counts per user, disease and outcome. Every report insert bumps the
+ * matching report_counts row in the same transaction, so the table always
+ * agrees with test_reports. Counts read from it are kept in memory, one
+ * lock-free array per user, and bumped again once the inserting transaction
+ * commits; past max-cached-users the least used users are evicted. A save racing the first read of a user can be counted twice or not
+ * at all in memory; the scheduled rebuild recounts the table and drops the
+ * memory copy, which reconciles that and anything written around this class.
+ */
+@Component
+@Slf4j
+public class ReportCounters {
+
+    private static final String UPSERT_SQL = "INSERT INTO report_counts "
+            + "(user_id, disease_type, prediction_result, report_count) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE report_count = report_count + VALUES(report_count)";
+
+    private static final String LOAD_SQL = "SELECT user_id, disease_type, prediction_result, report_count "
+            + "FROM report_counts WHERE user_id IN (:userIds)";
+
+    private static final String TOTAL_SQL = "SELECT COALESCE(SUM(report_count), 0) FROM report_counts";
+
+    private static final String REBUILD_SQL = "INSERT INTO report_counts "
+            + "(user_id, disease_type, prediction_result, report_count) "
+            + "SELECT user_id, disease_type, CASE WHEN prediction_result = 0 THEN 0 ELSE 1 END, COUNT(*) "
+            + "FROM test_reports GROUP BY user_id, disease_type, CASE WHEN prediction_result = 0 THEN 0 ELSE 1 END";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReportCounterProperties properties;
+    private final ReportArchive reportArchive;
+    private final ReportVersions reportVersions;
+
+    private final Cache<Long, AtomicLongArray> counts;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final AtomicLong lastRebuildMs = new AtomicLong();
+    private final AtomicLong lastRebuildDrift = new AtomicLong();
+
+    public ReportCounters(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ReportCounterProperties properties, ReportArchive reportArchive,
+            ReportVersions reportVersions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.reportArchive = reportArchive;
+        this.reportVersions = reportVersions;
+        this.counts = Caffeine.newBuilder().maximumSize(properties.getMaxCachedUsers()).build();
+    }
+
+    // One report_counts row
+    private record Key(Long userId, DiseaseType diseaseType, int predictionResult) {
+    }
+
+    /**
+     * Count inserted reports with one batched upsert. Must run in the
+     * inserting transaction; memory is updated only after it commits.
+     */
+    public void recordSaved(List<SavedReport> reports) {
+        // Several reports for the same user, disease and outcome become one row
+        Map<Key, Long> deltas = new LinkedHashMap<>();
+        for (SavedReport report : reports) {
+            Key key = new Key(report.userId(), report.diseaseType(), report.predictionResult() == 0 ? 0 : 1);
+            deltas.merge(key, 1L, Long::sum);
+        }
+
+        List<Object[]> rows = deltas.entrySet().stream()
+                .map(delta -> new Object[] {
+                    delta.getKey().userId(), delta.getKey().diseaseType().name(),
+                    delta.getKey().predictionResult(), delta.getValue()
+                })
+                .toList();
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+        recorded.add(reports.size());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(deltas);
+                }
+            });
+        } else {
+            apply(deltas);
+        }
+    }
+
+    private void apply(Map<Key, Long> deltas) {
+        deltas.forEach((key, delta) -> {
+            // Users not in memory yet read the committed row when they are first asked for
+            AtomicLongArray userCounts = counts.getIfPresent(key.userId());
+            if (userCounts != null) {
+                userCounts.addAndGet(ReportTally.slot(key.diseaseType(), key.predictionResult()), delta);
+            }
+        });
+    }
+
+    /**
+     * Combined counts of the given users.
+     */
+    public ReportTally tally(Collection<Long> userIds) {
+        return ReportTally.sum(tallies(userIds).values());
+    }
+
+    /**
+     * Counts of each of the given users. Users not in memory are read from
+     * report_counts in one query.
+     */
+    public Map<Long, ReportTally> tallies(Collection<Long> userIds) {
+        Map<Long, AtomicLongArray> cached = counts.getAllPresent(userIds);
+        Map<Long, AtomicLongArray> loaded = Map.of();
+        List<Long> missing = userIds.stream().filter(userId -> !cached.containsKey(userId)).toList();
+        if (!missing.isEmpty()) {
+            loaded = load(missing);
+        }
+        hits.add(userIds.size() - missing.size());
+
+        Map<Long, ReportTally> tallies = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            AtomicLongArray userCounts = cached.getOrDefault(userId, loaded.get(userId));
+            long[] snapshot = new long[ReportTally.SLOTS];
+            for (int slot = 0; userCounts != null && slot < snapshot.length; slot++) {
+                snapshot[slot] = userCounts.get(slot);
+            }
+            tallies.put(userId, new ReportTally(snapshot));
+        }
+        return tallies;
+    }
+
+    private Map<Long, AtomicLongArray> load(List<Long> userIds) {
+        Map<Long, AtomicLongArray> loaded = new HashMap<>();
+        for (Long userId : userIds) {
+            loaded.put(userId, new AtomicLongArray(ReportTally.SLOTS));
+        }
+        namedJdbcTemplate.query(LOAD_SQL, Map.of("userIds", userIds), rs -> {
+            int slot = ReportTally.slot(DiseaseType.valueOf(rs.getString("disease_type")),
+                    rs.getInt("prediction_result"));
+            loaded.get(rs.getLong("user_id")).addAndGet(slot, rs.getLong("report_count"));
+        });
+        loads.add(userIds.size());
+
+        loaded.forEach(counts.asMap()::putIfAbsent);
+        return loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (!properties.isRebuildWhenEmpty()) {
+            return;
+        }
+        Long total = jdbcTemplate.queryForObject(TOTAL_SQL, Long.class);
+        if (total == null || total == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recount report_counts from test_reports and the archive in one
+     * transaction and drop the in-memory copy.
+     */
+    @Scheduled(cron = "${app.reports.counters.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        long drift = transactionTemplate.execute(status -> {
+            Long before = jdbcTemplate.queryForObject(TOTAL_SQL, Long.class);
+            jdbcTemplate.update("DELETE FROM report_counts");
+            jdbcTemplate.update(REBUILD_SQL);
+            jdbcTemplate.batchUpdate(UPSERT_SQL, archivedRows());
+            Long after = jdbcTemplate.queryForObject(TOTAL_SQL, Long.class);
+            return Math.abs(after - before);
+        });
+        counts.invalidateAll();
+        // Counts served since the last rebuild may have been off; retag them all
+        reportVersions.bumpAll();
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        rebuilds.increment();
+        lastRebuildMs.set(elapsedMs);
+        lastRebuildDrift.set(drift);
+        if (drift > 0) {
+            log.warn("Report counters were off by {} reports; rebuilt in {} ms", drift, elapsedMs);
+        } else {
+            log.info("Report counters rebuilt in {} ms", elapsedMs);
+        }
+    }
+
+    // Archived reports of users that still exist, one row per non-zero count
+    private List<Object[]> archivedRows() {
+        Map<Long, ReportTally> tallies = reportArchive.tallies();
+        if (tallies.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> users = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM users", Long.class));
+        List<Object[]> rows = new ArrayList<>();
+        tallies.forEach((userId, tally) -> {
+            if (!users.contains(userId)) {
+                return;
+            }
+            for (DiseaseType diseaseType : DiseaseType.values()) {
+                for (int result = 0; result <= 1; result++) {
+                    long count = result == 0 ? tally.negative(diseaseType) : tally.positive(diseaseType);
+                    if (count > 0) {
+                        rows.add(new Object[] {userId, diseaseType.name(), result, count});
+                    }
+                }
+            }
+        });
+        return rows;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedUsers", counts.estimatedSize());
+        stats.put("maxCachedUsers", properties.getMaxCachedUsers());
+        stats.put("hits", hits.sum());
+        stats.put("loads", loads.sum());
+        stats.put("recorded", recorded.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMs", lastRebuildMs.get());
+        stats.put("lastRebuildDrift", lastRebuildDrift.get());
+        return stats;
+    }
+}
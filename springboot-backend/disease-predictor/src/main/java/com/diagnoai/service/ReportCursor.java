@@ -0,0 +1,36 @@
+package com.diagnoai.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a report listing ordered newest first: the creation time and
+ * id of the last report returned. The next page starts strictly after it, so
+ * reports saved in the meantime never shift or repeat entries.
+ */
+public record ReportCursor(LocalDateTime createdAt, Long id) {
+
+    /**
+     * @return An opaque URL-safe token for clients to send back
+     */
+    public String encode() {
+        String text = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static ReportCursor decode(String token) {
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = text.lastIndexOf('|');
+            return new ReportCursor(LocalDateTime.parse(text.substring(0, separator)),
+                    Long.valueOf(text.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
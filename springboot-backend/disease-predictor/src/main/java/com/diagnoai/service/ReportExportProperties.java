@@ -0,0 +1,19 @@
+package com.diagnoai.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for report history exports ({@code app.reports.export.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.reports.export")
+public class ReportExportProperties {
+
+    // Exports reading from the database at once; each holds a connection while it streams
+    private int maxConcurrent = 4;
+
+    // Rows per round trip on databases other than MySQL, which streams row by row
+    private int fetchSize = 500;
+}
@@ -0,0 +1,347 @@
+package com.diagnoai.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.prediction.PackedInput;
+import com.diagnoai.prediction.PredictionMessages;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Streams a report history straight from a forward-only, read-only result
+ * set to the client, one row at a time, so memory use does not depend on the
+ * size of the history. At most {@code max-concurrent} exports hold a database
+ * connection at once; others wait their turn on their own (virtual) thread.
+ * Archived reports follow the live ones, streamed in order from the
+ * archive as well.
+ * <p>
+ * A report being archived can be in both tiers for a moment. Only an archived
+ * id between the lowest and highest live ids written can be such a report,
+ * and those are looked up in test_reports, a fetch-size at a time, in the
+ * same repeatable-read snapshot the live rows came from.
+ */
+@Component
+public class ReportExporter {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private static final String[] COLUMNS = {
+        "id", "userName", "userEmail", "diseaseType", "predictionResult", "probability",
+        "predictionMessage", "inputData", "createdAt"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ReportExportProperties properties;
+    private final ReportArchive reportArchive;
+    private final TransactionTemplate snapshot;
+    private final Semaphore permits;
+
+    public ReportExporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ReportExportProperties properties, ReportArchive reportArchive) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.properties = properties;
+        this.reportArchive = reportArchive;
+        this.permits = new Semaphore(properties.getMaxConcurrent(), true);
+    }
+
+    /**
+     * Write the reports of the given users, newest first.
+     *
+     * @param diseaseType Only this disease, or null for all
+     * @param from        Only reports created at or after this time, or null
+     * @param to          Only reports created before this time, or null
+     */
+    public void export(Collection<Long> userIds, DiseaseType diseaseType, LocalDateTime from, LocalDateTime to,
+            Format format, OutputStream out) throws IOException {
+        RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new NdjsonWriter(out);
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to export", e);
+        }
+        try {
+            snapshot.executeWithoutResult(status -> {
+                LongSummaryStatistics liveIds = new LongSummaryStatistics();
+                jdbcTemplate.query(statement(userIds, diseaseType, from, to), (RowCallbackHandler) rs -> {
+                    Row row = Row.of(rs);
+                    liveIds.accept(row.id());
+                    write(writer, row);
+                });
+                if (reportArchive.hasReportsOf(userIds)) {
+                    writeArchived(userIds, diseaseType, from, to, liveIds, writer);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            permits.release();
+        }
+        writer.finish();
+    }
+
+    private static void write(RowWriter writer, Row row) {
+        try {
+            writer.write(row);
+        } catch (IOException e) {
+            // The client went away; abandon the cursor
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Archived reports are older than the live ones, so they follow them
+    private void writeArchived(Collection<Long> userIds, DiseaseType diseaseType, LocalDateTime from,
+            LocalDateTime to, LongSummaryStatistics liveIds, RowWriter writer) {
+        Map<Long, String[]> owners = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, full_name, email FROM users WHERE id IN (:userIds)",
+                Map.of("userIds", userIds), rs -> {
+                    owners.put(rs.getLong(1), new String[] {rs.getString(2), rs.getString(3)});
+                });
+        List<Row> chunk = new ArrayList<>();
+        reportArchive.forEachNewestFirst(userIds, diseaseType, from, to, report -> {
+            String[] owner = owners.get(report.userId());
+            if (owner == null) {
+                return;
+            }
+            chunk.add(Row.of(report, owner[0], owner[1]));
+            if (chunk.size() == properties.getFetchSize()) {
+                writeUnlessLive(chunk, liveIds, writer);
+            }
+        });
+        writeUnlessLive(chunk, liveIds, writer);
+    }
+
+    // Writes and clears the chunk, skipping reports that were also written from test_reports
+    private void writeUnlessLive(List<Row> chunk, LongSummaryStatistics liveIds, RowWriter writer) {
+        List<Long> suspects = chunk.stream().map(Row::id)
+                .filter(id -> id >= liveIds.getMin() && id <= liveIds.getMax())
+                .toList();
+        Set<Long> live = suspects.isEmpty() ? Set.of() : new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT id FROM test_reports WHERE id IN (:ids)", Map.of("ids", suspects), Long.class));
+        for (Row row : chunk) {
+            if (!live.contains(row.id())) {
+                write(writer, row);
+            }
+        }
+        chunk.clear();
+    }
+
+    private PreparedStatementCreator statement(Collection<Long> userIds, DiseaseType diseaseType,
+            LocalDateTime from, LocalDateTime to) {
+        StringBuilder sql = new StringBuilder("SELECT tr.id, u.full_name, u.email, tr.disease_type, ")
+                .append("tr.prediction_result, tr.probability, tr.prediction_message, tr.input_data, tr.created_at, ")
+                .append("tr.message_template, tr.input_packed ")
+                .append("FROM test_reports tr JOIN users u ON u.id = tr.user_id WHERE tr.user_id IN (")
+                .append(String.join(", ", Collections.nCopies(userIds.size(), "?")))
+                .append(")");
+        List<Object> args = new ArrayList<>(userIds);
+        if (diseaseType != null) {
+            sql.append(" AND tr.disease_type = ?");
+            args.add(diseaseType.name());
+        }
+        if (from != null) {
+            sql.append(" AND tr.created_at >= ?");
+            args.add(from);
+        }
+        if (to != null) {
+            sql.append(" AND tr.created_at < ?");
+            args.add(to);
+        }
+        sql.append(" ORDER BY tr.created_at DESC, tr.id DESC");
+
+        return connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize(connection));
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        };
+    }
+
+    private int fetchSize(Connection connection) throws SQLException {
+        // Connector/J buffers the whole result unless asked to stream with this sentinel
+        String product = connection.getMetaData().getDatabaseProductName();
+        return "MySQL".equalsIgnoreCase(product) ? Integer.MIN_VALUE : properties.getFetchSize();
+    }
+
+    // One exported report, from either tier
+    private record Row(long id, String userName, String userEmail, DiseaseType diseaseType, int predictionResult,
+            Double probability, String predictionMessage, String inputData, LocalDateTime createdAt) {
+
+        private static Row of(ResultSet rs) throws SQLException {
+            DiseaseType diseaseType = DiseaseType.valueOf(rs.getString(4));
+            double value = rs.getDouble(6);
+            Double probability = rs.wasNull() ? null : value;
+
+            // The stored message, or its template rendered
+            String message = rs.getString(7);
+            short template = rs.getShort(10);
+            if (message == null && !rs.wasNull()) {
+                message = PredictionMessages.render(template, diseaseType, probability);
+            }
+            // The stored JSON, or the packed input unpacked
+            String inputData = rs.getString(8);
+            byte[] packed = inputData == null ? rs.getBytes(11) : null;
+            if (packed != null) {
+                inputData = PackedInput.unpack(diseaseType, packed);
+            }
+            return new Row(rs.getLong(1), rs.getString(2), rs.getString(3), diseaseType, rs.getInt(5), probability,
+                    message, inputData, rs.getObject(9, LocalDateTime.class));
+        }
+
+        private static Row of(ArchivedReport report, String userName, String userEmail) {
+            return new Row(report.id(), userName, userEmail, report.diseaseType(), report.predictionResult(),
+                    report.probability(), report.predictionMessageText(), report.inputDataText(),
+                    report.createdAt());
+        }
+    }
+
+    private interface RowWriter {
+
+        void write(Row row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class NdjsonWriter implements RowWriter {
+
+        private final JsonGenerator json;
+
+        private NdjsonWriter(OutputStream out) throws IOException {
+            this.json = JSON_FACTORY.createGenerator(out);
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(Row row) throws IOException {
+            json.writeStartObject();
+            json.writeNumberField(COLUMNS[0], row.id());
+            json.writeStringField(COLUMNS[1], row.userName());
+            json.writeStringField(COLUMNS[2], row.userEmail());
+            json.writeStringField(COLUMNS[3], row.diseaseType().name());
+            json.writeNumberField(COLUMNS[4], row.predictionResult());
+            if (row.probability() == null) {
+                json.writeNullField(COLUMNS[5]);
+            } else {
+                json.writeNumberField(COLUMNS[5], row.probability());
+            }
+            json.writeStringField(COLUMNS[6], row.predictionMessage());
+            json.writeStringField(COLUMNS[7], row.inputData());
+            json.writeStringField(COLUMNS[8], String.valueOf(row.createdAt()));
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+
+    private static final class CsvWriter implements RowWriter {
+
+        private final Writer out;
+
+        private CsvWriter(OutputStream out) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.out.write(String.join(",", COLUMNS));
+            this.out.write("\r\n");
+        }
+
+        @Override
+        public void write(Row row) throws IOException {
+            out.write(Long.toString(row.id()));
+            Object[] values = {
+                row.userName(), row.userEmail(), row.diseaseType(), row.predictionResult(), row.probability(),
+                row.predictionMessage(), row.inputData(), row.createdAt()
+            };
+            for (Object value : values) {
+                out.write(',');
+                if (value != null) {
+                    writeField(value.toString());
+                }
+            }
+            out.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.diagnoai.service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.diagnoai.dto.ReportSummary;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+import com.diagnoai.entity.UserRole;
+import com.diagnoai.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes reports to open server-sent event streams as they are saved: to the
+ * owner and to everyone who may read the owner's reports. A stream is an
+ * async servlet response, so an idle one holds a connection but no thread.
+ * <p>
+ * Each stream has a bounded buffer, written by a virtual thread only while
+ * it has events. Publishing never waits on a client: a stream whose buffer
+ * is full when the next event arrives is closed, and its client reconnects
+ * and catches up from the report list.
+ */
+@Component
+@Slf4j
+public class ReportFeed {
+
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT = SseEmitter.event()
+            .comment("heartbeat").build();
+
+    private final FamilyGraph familyGraph;
+    private final UserRepository userRepository;
+    private final ReportFeedProperties properties;
+    private final Executor writers;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final LongAdder subscribed = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    @Autowired
+    public ReportFeed(FamilyGraph familyGraph, UserRepository userRepository, ReportFeedProperties properties) {
+        this(familyGraph, userRepository, properties,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("report-feed-", 1).factory()));
+    }
+
+    ReportFeed(FamilyGraph familyGraph, UserRepository userRepository, ReportFeedProperties properties,
+            Executor writers) {
+        this.familyGraph = familyGraph;
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.writers = writers;
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.emitter.complete()));
+        if (writers instanceof ExecutorService executor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Open a stream of the reports the user may read, from now on.
+     *
+     * @return Empty if the feed is off or this node has all the streams it takes
+     */
+    public Optional<SseEmitter> subscribe(Long userId) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        if (subscriberCount.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            refused.increment();
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(userId, emitter, properties.getBufferSize());
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> remove(subscriber));
+
+        // Added under the map's lock, so a concurrent remove cannot drop the list it goes into
+        List<Subscriber> ofUser = subscribers.compute(userId, (id, list) -> {
+            List<Subscriber> updated = list != null ? list : new CopyOnWriteArrayList<>();
+            updated.add(subscriber);
+            return updated;
+        });
+        // Trimmed on a snapshot, as other subscribes and removes may shrink the list meanwhile
+        List<Subscriber> snapshot = List.copyOf(ofUser);
+        for (int i = 0; i < snapshot.size() - properties.getMaxSubscribersPerUser(); i++) {
+            // Oldest first: most likely a tab the user has left
+            Subscriber oldest = snapshot.get(i);
+            remove(oldest);
+            oldest.emitter.complete();
+        }
+        subscribed.increment();
+
+        // Commits the response headers, so the client knows the stream is open
+        subscriber.offer(HEARTBEAT);
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Push reports just saved through JPA, once the saving transaction commits.
+     */
+    public void publishSaved(User owner, List<TestReport> reports) {
+        Long ownerId = owner.getId();
+        afterCommit(ownerId, () -> reports.stream().map(report -> new ReportSummary(report.getId(),
+                report.getDiseaseType(), report.getPredictionResult(), report.getProbability(),
+                report.getPredictionMessage(),
+                report.getCreatedAt() != null ? report.getCreatedAt() : LocalDateTime.now(),
+                owner.getFullName(), owner.getEmail())).toList());
+    }
+
+    /**
+     * Push reports the writer inserted in one batch, once it commits.
+     *
+     * @param ids The id of each report, in the same order
+     */
+    public void publishPending(List<PendingReport> reports, long[] ids) {
+        Map<Long, List<Integer>> byOwner = new LinkedHashMap<>();
+        for (int i = 0; i < reports.size(); i++) {
+            byOwner.computeIfAbsent(reports.get(i).userId(), id -> new ArrayList<>()).add(i);
+        }
+        byOwner.forEach((ownerId, owned) -> afterCommit(ownerId, () -> {
+            // From the second-level cache, and only when someone is listening
+            Optional<User> owner = userRepository.findById(ownerId);
+            return owned.stream().map(i -> {
+                PendingReport report = reports.get(i);
+                return new ReportSummary(ids[i], report.diseaseType(), report.predictionResult(),
+                        report.probability(), report.predictionMessage(), report.createdAt(),
+                        owner.map(User::getFullName).orElse(null), owner.map(User::getEmail).orElse(null));
+            }).toList();
+        }));
+    }
+
+    private void afterCommit(Long ownerId, Supplier<List<ReportSummary>> reports) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(ownerId, reports);
+                }
+            });
+        } else {
+            dispatch(ownerId, reports);
+        }
+    }
+
+    private void dispatch(Long ownerId, Supplier<List<ReportSummary>> reports) {
+        try {
+            List<Subscriber> recipients = recipients(ownerId);
+            if (recipients.isEmpty()) {
+                return;
+            }
+            for (ReportSummary report : reports.get()) {
+                // Serialized once, whatever the number of recipients
+                SseEmitter.SseEventBuilder builder = SseEmitter.event().name("report")
+                        .data(objectMapper.writeValueAsString(report));
+                if (report.id() != null) {
+                    builder.id(report.id().toString());
+                }
+                Set<ResponseBodyEmitter.DataWithMediaType> event = builder.build();
+                for (Subscriber subscriber : recipients) {
+                    subscriber.offer(event);
+                }
+                published.increment();
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            // The reports are saved either way; only the push is lost
+            log.warn("Failed to push reports of user {}: {}", ownerId, e.getMessage());
+        }
+    }
+
+    // Subscribed users who read the owner's reports: the rule of TestReportService.getAccessibleUserIds, inverted
+    private List<Subscriber> recipients(Long ownerId) {
+        List<Subscriber> recipients = new ArrayList<>(subscribers.getOrDefault(ownerId, List.of()));
+        Optional<FamilyGraph.Links> ownerLinks = familyGraph.find(ownerId);
+        if (ownerLinks.isEmpty()) {
+            return recipients;
+        }
+        for (long[] candidates : List.of(ownerLinks.get().relatives(), ownerLinks.get().relativeOf())) {
+            for (long candidateId : candidates) {
+                List<Subscriber> ofCandidate = subscribers.get(candidateId);
+                if (ofCandidate != null && !ofCandidate.isEmpty() && readsReportsOf(candidateId, ownerId)) {
+                    recipients.addAll(ofCandidate);
+                }
+            }
+        }
+        return recipients;
+    }
+
+    private boolean readsReportsOf(long userId, long ownerId) {
+        return familyGraph.find(userId).map(links -> links.role() == UserRole.USER
+                ? links.hasRelative(ownerId)
+                : links.role() == UserRole.RELATIVE && links.isRelativeOf(ownerId)).orElse(false);
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports.feed.heartbeat-interval:30s}")
+    public void heartbeat() {
+        subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.offer(HEARTBEAT)));
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscriber.closed.compareAndSet(false, true)) {
+            subscribers.computeIfPresent(subscriber.userId, (id, list) -> {
+                list.remove(subscriber);
+                return list.isEmpty() ? null : list;
+            });
+            subscriberCount.decrementAndGet();
+            subscriber.buffer.clear();
+        }
+    }
+
+    private final class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> buffer;
+        // Set while a writer is draining the buffer, so there is at most one per stream
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(Long userId, SseEmitter emitter, int bufferSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                evicted.increment();
+                remove(this);
+                emitter.complete();
+                return;
+            }
+            if (writing.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                while (!closed.get() && (event = buffer.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                        if (event != HEARTBEAT) {
+                            delivered.increment();
+                        }
+                    } catch (IOException | IllegalStateException e) {
+                        // The client went away
+                        disconnected.increment();
+                        remove(this);
+                        emitter.completeWithError(e);
+                    }
+                }
+                writing.set(false);
+                // An event offered after the last poll but before the flag cleared is written now
+            } while (!closed.get() && !buffer.isEmpty() && writing.compareAndSet(false, true));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("subscribers", subscriberCount.get());
+        stats.put("subscribedUsers", subscribers.size());
+        stats.put("subscribed", subscribed.sum());
+        stats.put("refused", refused.sum());
+        stats.put("published", published.sum());
+        stats.put("delivered", delivered.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("disconnected", disconnected.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,32 @@
+package com.diagnoai.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the live report stream ({@code app.reports.feed.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.reports.feed")
+public class ReportFeedProperties {
+
+    private boolean enabled = true;
+
+    // Open streams per node; more are refused with 503 until some close
+    private int maxSubscribers = 10000;
+
+    // Open streams per user (browser tabs); a new one beyond this closes their oldest
+    private int maxSubscribersPerUser = 4;
+
+    // Events waiting to be written to one stream; a subscriber that falls this far behind is dropped
+    private int bufferSize = 64;
+
+    // A stream is closed after this long and the client reconnects
+    private Duration timeout = Duration.ofMinutes(30);
+
+    // Comment sent on idle streams so proxies keep them open and dead clients are noticed
+    private Duration heartbeatInterval = Duration.ofSeconds(30);
+}
@@ -0,0 +1,19 @@
+package com.diagnoai.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for historical report imports ({@code app.reports.import.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.reports.import")
+public class ReportImportProperties {
+
+    // Reports saved per transaction; a multiple of hibernate.jdbc.batch_size keeps every batch full
+    private int chunkSize = 500;
+
+    // Rejected rows described in the response; the rest are only counted
+    private int maxErrors = 20;
+}
@@ -0,0 +1,200 @@
+package com.diagnoai.service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+import com.diagnoai.prediction.BulkRowReader;
+import com.diagnoai.prediction.PredictionMessages;
+import com.diagnoai.repository.TestReportRepository;
+import com.diagnoai.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads a user's past reports from CSV or NDJSON, in the columns the export
+ * writes, so an export can be imported again. Reports are saved a chunk per
+ * transaction; their ids come from id blocks, so each chunk reaches the
+ * database as full JDBC batches. Rows that do not make a valid report are
+ * counted and skipped.
+ * <p>
+ * Imported history is counted and trended like any saved report, but not
+ * pushed to open report streams.
+ */
+@Component
+@Slf4j
+public class ReportImporter {
+
+    private final TestReportRepository testReportRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReportImportProperties properties;
+    private final ReportCounters reportCounters;
+    private final ReportTrends reportTrends;
+    private final ReportVersions reportVersions;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LongAdder imported = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ReportImporter(TestReportRepository testReportRepository, UserRepository userRepository,
+            PlatformTransactionManager transactionManager, ReportImportProperties properties,
+            ReportCounters reportCounters, ReportTrends reportTrends, ReportVersions reportVersions) {
+        this.testReportRepository = testReportRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.reportCounters = reportCounters;
+        this.reportTrends = reportTrends;
+        this.reportVersions = reportVersions;
+    }
+
+    /**
+     * @param imported Reports saved
+     * @param rejected Rows skipped as invalid
+     * @param errors   Why, for the first few of them
+     */
+    public record Result(int imported, int rejected, List<String> errors, long elapsedMs) {
+
+        public double rowsPerSecond() {
+            return elapsedMs == 0 ? imported : imported * 1000.0 / elapsedMs;
+        }
+    }
+
+    /**
+     * Import every row of the reader as a report of the user. Chunks saved
+     * before a failure stay saved.
+     */
+    public Result importReports(Long userId, BulkRowReader reader) throws IOException {
+        long start = System.nanoTime();
+        List<TestReport> chunk = new ArrayList<>(properties.getChunkSize());
+        List<String> errors = new ArrayList<>();
+        int rowNumber = 0;
+        int saved = 0;
+        int skipped = 0;
+
+        Map<String, Object> row;
+        while ((row = reader.next()) != null) {
+            rowNumber++;
+            try {
+                chunk.add(toReport(row));
+            } catch (IllegalArgumentException | DateTimeParseException | JsonProcessingException e) {
+                skipped++;
+                if (errors.size() < properties.getMaxErrors()) {
+                    errors.add("Row " + rowNumber + ": " + e.getMessage());
+                }
+            }
+            if (chunk.size() == properties.getChunkSize()) {
+                saved += save(userId, chunk);
+                chunk = new ArrayList<>(properties.getChunkSize());
+            }
+        }
+        if (!chunk.isEmpty()) {
+            saved += save(userId, chunk);
+        }
+
+        imported.add(saved);
+        rejected.add(skipped);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Imported {} reports for user {} in {} ms ({} rows rejected)", saved, userId, elapsedMs, skipped);
+        return new Result(saved, skipped, errors, elapsedMs);
+    }
+
+    private int save(Long userId, List<TestReport> chunk) {
+        return transactionTemplate.execute(status -> {
+            User user = userRepository.getReferenceById(userId);
+            for (TestReport report : chunk) {
+                report.setUser(user);
+            }
+            testReportRepository.saveAll(chunk);
+
+            List<SavedReport> saved = chunk.stream().map(report -> SavedReport.of(userId, report)).toList();
+            reportCounters.recordSaved(saved);
+            reportTrends.recordSaved(saved);
+            reportVersions.recordSaved(saved);
+            return chunk.size();
+        });
+    }
+
+    private TestReport toReport(Map<String, Object> row) throws JsonProcessingException {
+        DiseaseType diseaseType = DiseaseType.valueOf(required(row, "diseaseType").toString().trim().toUpperCase());
+
+        int predictionResult = Integer.parseInt(required(row, "predictionResult").toString().trim());
+        if (predictionResult != 0 && predictionResult != 1) {
+            throw new IllegalArgumentException("predictionResult must be 0 or 1");
+        }
+
+        Double probability = null;
+        Object probabilityValue = optional(row, "probability");
+        if (probabilityValue != null) {
+            probability = Double.valueOf(probabilityValue.toString().trim());
+            if (!(probability >= 0 && probability <= 1)) {
+                throw new IllegalArgumentException("probability must be between 0 and 1");
+            }
+        }
+
+        // A JSON upload may carry the inputs as an object rather than as a JSON string
+        Object inputValue = optional(row, "inputData");
+        String inputData = inputValue == null || inputValue instanceof String
+                ? (String) inputValue
+                : objectMapper.writeValueAsString(inputValue);
+
+        Object messageValue = optional(row, "predictionMessage");
+        String predictionMessage = messageValue != null
+                ? messageValue.toString()
+                : PredictionMessages.createPredictionMessage(diseaseType, predictionResult, probability);
+
+        TestReport report = new TestReport(null, diseaseType, predictionResult, probability, inputData,
+                predictionMessage);
+        Object createdAt = optional(row, "createdAt");
+        if (createdAt != null) {
+            String value = createdAt.toString().trim();
+            report.setCreatedAt(value.length() == 10
+                    ? LocalDate.parse(value).atStartOfDay()
+                    : LocalDateTime.parse(value));
+        }
+        report.compact();
+        return report;
+    }
+
+    private static Object required(Map<String, Object> row, String column) {
+        Object value = optional(row, column);
+        if (value == null) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        return value;
+    }
+
+    // Blank CSV cells and the export's rendering of a missing value both mean no value
+    private static Object optional(Map<String, Object> row, String column) {
+        Object value = row.get(column);
+        if (value instanceof String text && (text.isBlank() || text.equals("null"))) {
+            return null;
+        }
+        return value;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("imported", imported.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("chunkSize", properties.getChunkSize());
+        return stats;
+    }
+}
@@ -0,0 +1,17 @@
+package com.diagnoai.service;
+
+import java.util.List;
+
+import com.diagnoai.dto.ReportSummary;
+
+/**
+ * One page of reports, newest first.
+ *
+ * @param nextCursor Where the next page starts, or null if this is the last one
+ */
+public record ReportPage(List<ReportSummary> reports, String nextCursor) {
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
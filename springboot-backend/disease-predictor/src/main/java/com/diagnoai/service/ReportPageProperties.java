@@ -0,0 +1,27 @@
+package com.diagnoai.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Page sizes of the report listings ({@code app.reports.page.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.reports.page")
+public class ReportPageProperties {
+
+    // Reports per page of /api/reports/page when no size is given
+    private int defaultSize = 50;
+
+    // Largest page any listing returns, whatever the client asks for
+    private int maxSize = 200;
+
+    // Reports returned by the plain list endpoints (my-reports, accessible-reports,
+    // by-disease) when no limit is given
+    private int listLimit = 100;
+
+    public int clamp(Integer requested, int fallback) {
+        return requested == null ? Math.min(fallback, maxSize) : Math.max(1, Math.min(requested, maxSize));
+    }
+}
@@ -0,0 +1,26 @@
+package com.diagnoai.service;
+
+import java.time.LocalDateTime;
+
+import com.diagnoai.entity.DiseaseType;
+
+/**
+ * One page request of a report listing.
+ *
+ * @param diseaseType Only reports of this disease, or null for all
+ * @param from        Only reports created at or after this time, or null
+ * @param to          Only reports created before this time, or null
+ * @param after       Continue after this position, or null for the first page
+ * @param size        Maximum number of reports to return
+ */
+public record ReportQuery(
+        DiseaseType diseaseType,
+        LocalDateTime from,
+        LocalDateTime to,
+        ReportCursor after,
+        int size) {
+
+    public static ReportQuery firstPage(int size) {
+        return new ReportQuery(null, null, null, null, size);
+    }
+}
@@ -0,0 +1,57 @@
+package com.diagnoai.service;
+
+import java.util.Collection;
+
+import com.diagnoai.entity.DiseaseType;
+
+/**
+ * Report counts of one or more users, per disease and outcome. Index
+ * {@code disease.ordinal() * 2 + outcome} holds the count for that disease
+ * with a negative (0) or positive (1) prediction.
+ */
+public record ReportTally(long[] counts) {
+
+    static final int SLOTS = DiseaseType.values().length * 2;
+
+    static int slot(DiseaseType diseaseType, int predictionResult) {
+        return diseaseType.ordinal() * 2 + (predictionResult == 0 ? 0 : 1);
+    }
+
+    public static ReportTally sum(Collection<ReportTally> tallies) {
+        long[] sum = new long[SLOTS];
+        for (ReportTally tally : tallies) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                sum[slot] += tally.counts[slot];
+            }
+        }
+        return new ReportTally(sum);
+    }
+
+    public long negative(DiseaseType diseaseType) {
+        return counts[slot(diseaseType, 0)];
+    }
+
+    public long positive(DiseaseType diseaseType) {
+        return counts[slot(diseaseType, 1)];
+    }
+
+    public long total(DiseaseType diseaseType) {
+        return negative(diseaseType) + positive(diseaseType);
+    }
+
+    public long positive() {
+        long sum = 0;
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            sum += positive(diseaseType);
+        }
+        return sum;
+    }
+
+    public long total() {
+        long sum = 0;
+        for (long count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+}
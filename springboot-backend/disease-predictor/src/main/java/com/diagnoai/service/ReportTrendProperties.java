@@ -0,0 +1,22 @@
+package com.diagnoai.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the maintained trend buckets ({@code app.reports.trends.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.reports.trends")
+public class ReportTrendProperties {
+
+    // When the reconcile job recomputes report_trends from test_reports
+    private String rebuildCron = "0 45 3 * * *";
+
+    // Fill an empty report_trends table at startup, e.g. right after upgrading
+    private boolean rebuildWhenEmpty = true;
+
+    // Users recomputed per transaction by the rebuild
+    private int rebuildChunkSize = 100;
+}
@@ -0,0 +1,267 @@
+package com.diagnoai.service;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diagnoai.entity.DiseaseType;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-user trend buckets of report counts, positives and probabilities at
+ * day, week and month resolution. Every report insert adds itself to its
+ * three buckets in the same transaction, so a chart reads one row per bucket
+ * however many reports fall into it. The scheduled rebuild recomputes the
+ * buckets from test_reports a chunk of users at a time.
+ */
+@Component
+@Slf4j
+public class ReportTrends {
+
+    public enum Resolution {
+        DAY(90),
+        WEEK(52),
+        MONTH(24);
+
+        // Buckets shown when the caller gives no start date
+        private final int defaultBuckets;
+
+        Resolution(int defaultBuckets) {
+            this.defaultBuckets = defaultBuckets;
+        }
+
+        public LocalDate bucketStart(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> date.withDayOfMonth(1);
+            };
+        }
+
+        public LocalDate defaultFrom(LocalDate to) {
+            return switch (this) {
+                case DAY -> to.minus(defaultBuckets, ChronoUnit.DAYS);
+                case WEEK -> to.minus(defaultBuckets, ChronoUnit.WEEKS);
+                case MONTH -> to.minus(defaultBuckets, ChronoUnit.MONTHS);
+            };
+        }
+    }
+
+    private static final String UPSERT_SQL = "INSERT INTO report_trends "
+            + "(user_id, resolution, disease_type, bucket_start, report_count, positive_count, "
+            + "probability_sum, probability_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE report_count = report_count + VALUES(report_count), "
+            + "positive_count = positive_count + VALUES(positive_count), "
+            + "probability_sum = probability_sum + VALUES(probability_sum), "
+            + "probability_count = probability_count + VALUES(probability_count)";
+
+    private static final String SERIES_SQL = "SELECT disease_type, bucket_start, report_count, positive_count, "
+            + "probability_sum, probability_count FROM report_trends "
+            + "WHERE user_id = ? AND resolution = ? AND bucket_start >= ? AND bucket_start <= ? "
+            + "ORDER BY disease_type, bucket_start";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReportTrendProperties properties;
+    private final ReportArchive reportArchive;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final AtomicLong lastRebuildMs = new AtomicLong();
+    private final AtomicLong lastRebuildUsers = new AtomicLong();
+
+    public ReportTrends(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ReportTrendProperties properties, ReportArchive reportArchive) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.reportArchive = reportArchive;
+    }
+
+    // One report_trends row
+    private record Key(Long userId, Resolution resolution, DiseaseType diseaseType, LocalDate bucketStart) {
+    }
+
+    // What a set of reports adds to one bucket
+    private static final class Bucket {
+
+        private long count;
+        private long positive;
+        private double probabilitySum;
+        private long probabilityCount;
+
+        private void add(int predictionResult, Double probability) {
+            count++;
+            if (predictionResult != 0) {
+                positive++;
+            }
+            if (probability != null) {
+                probabilitySum += probability;
+                probabilityCount++;
+            }
+        }
+    }
+
+    /**
+     * Add inserted reports to their buckets with one batched upsert. Must run
+     * in the inserting transaction.
+     */
+    public void recordSaved(List<SavedReport> reports) {
+        Map<Key, Bucket> buckets = new LinkedHashMap<>();
+        for (SavedReport report : reports) {
+            add(buckets, report.userId(), report.diseaseType(), report.predictionResult(),
+                    report.probability(), report.createdAt());
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows(buckets));
+        recorded.add(reports.size());
+    }
+
+    private static void add(Map<Key, Bucket> buckets, Long userId, DiseaseType diseaseType, int predictionResult,
+            Double probability, LocalDateTime createdAt) {
+        LocalDate day = createdAt.toLocalDate();
+        for (Resolution resolution : Resolution.values()) {
+            buckets.computeIfAbsent(new Key(userId, resolution, diseaseType, resolution.bucketStart(day)),
+                    key -> new Bucket()).add(predictionResult, probability);
+        }
+    }
+
+    private static List<Object[]> rows(Map<Key, Bucket> buckets) {
+        List<Object[]> rows = new ArrayList<>(buckets.size());
+        buckets.forEach((key, bucket) -> rows.add(new Object[] {
+            key.userId(), key.resolution().name(), key.diseaseType().name(), Date.valueOf(key.bucketStart()),
+            bucket.count, bucket.positive, bucket.probabilitySum, bucket.probabilityCount
+        }));
+        return rows;
+    }
+
+    /**
+     * The user's trend per disease over the buckets that start between the
+     * given days, both included.
+     *
+     * @param diseaseType Only this disease, or null for all
+     */
+    public Map<DiseaseType, TrendSeries> series(Long userId, Resolution resolution, DiseaseType diseaseType,
+            LocalDate from, LocalDate to) {
+        String sql = diseaseType == null ? SERIES_SQL : SERIES_SQL.replace("ORDER BY", "AND disease_type = ? ORDER BY");
+        Object[] args = diseaseType == null
+                ? new Object[] {userId, resolution.name(), Date.valueOf(resolution.bucketStart(from)), Date.valueOf(to)}
+                : new Object[] {userId, resolution.name(), Date.valueOf(resolution.bucketStart(from)), Date.valueOf(to),
+                    diseaseType.name()};
+
+        Map<DiseaseType, List<Point>> points = new EnumMap<>(DiseaseType.class);
+        jdbcTemplate.query(sql, rs -> {
+            points.computeIfAbsent(DiseaseType.valueOf(rs.getString(1)), d -> new ArrayList<>()).add(new Point(
+                    rs.getDate(2).toLocalDate().toString(), rs.getLong(3), rs.getLong(4), rs.getDouble(5),
+                    rs.getLong(6)));
+        }, args);
+        reads.increment();
+
+        Map<DiseaseType, TrendSeries> series = new EnumMap<>(DiseaseType.class);
+        points.forEach((disease, buckets) -> series.put(disease, columns(buckets)));
+        return series;
+    }
+
+    private record Point(String bucketStart, long count, long positive, double probabilitySum,
+            long probabilityCount) {
+    }
+
+    private static TrendSeries columns(List<Point> points) {
+        int size = points.size();
+        TrendSeries columns = new TrendSeries(new String[size], new long[size], new long[size], new Double[size]);
+        for (int i = 0; i < size; i++) {
+            Point point = points.get(i);
+            columns.bucketStart()[i] = point.bucketStart();
+            columns.count()[i] = point.count();
+            columns.positive()[i] = point.positive();
+            columns.meanProbability()[i] = point.probabilityCount() > 0
+                    ? point.probabilitySum() / point.probabilityCount()
+                    : null;
+        }
+        return columns;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (!properties.isRebuildWhenEmpty()) {
+            return;
+        }
+        List<Long> any = jdbcTemplate.queryForList("SELECT user_id FROM report_trends LIMIT 1", Long.class);
+        if (any.isEmpty()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recompute every user's buckets from test_reports and the archive, one
+     * transaction per chunk of users, and drop the buckets of users that no
+     * longer exist.
+     */
+    @Scheduled(cron = "${app.reports.trends.rebuild-cron:0 45 3 * * *}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+        int chunkSize = properties.getRebuildChunkSize();
+        for (int from = 0; from < userIds.size(); from += chunkSize) {
+            rebuild(userIds.subList(from, Math.min(from + chunkSize, userIds.size())));
+        }
+        jdbcTemplate.update("DELETE FROM report_trends WHERE user_id NOT IN (SELECT id FROM users)");
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        rebuilds.increment();
+        lastRebuildMs.set(elapsedMs);
+        lastRebuildUsers.set(userIds.size());
+        log.info("Report trends rebuilt for {} users in {} ms", userIds.size(), elapsedMs);
+    }
+
+    private void rebuild(List<Long> userIds) {
+        String placeholders = String.join(", ", Collections.nCopies(userIds.size(), "?"));
+        Object[] args = userIds.toArray();
+        transactionTemplate.executeWithoutResult(status -> {
+            // Deleting first holds the rows, so concurrent inserts add on top of the recount
+            jdbcTemplate.update("DELETE FROM report_trends WHERE user_id IN (" + placeholders + ")", args);
+            Map<Key, Bucket> buckets = new LinkedHashMap<>();
+            jdbcTemplate.query("SELECT user_id, disease_type, prediction_result, probability, created_at "
+                    + "FROM test_reports WHERE user_id IN (" + placeholders + ")", rs -> {
+                        double value = rs.getDouble(4);
+                        Double probability = rs.wasNull() ? null : value;
+                        add(buckets, rs.getLong(1), DiseaseType.valueOf(rs.getString(2)), rs.getInt(3),
+                                probability, rs.getObject(5, LocalDateTime.class));
+                    }, args);
+            reportArchive.forEach(userIds, report -> add(buckets, report.userId(), report.diseaseType(),
+                    report.predictionResult(), report.probability(), report.createdAt()));
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows(buckets));
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("recorded", recorded.sum());
+        stats.put("reads", reads.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMs", lastRebuildMs.get());
+        stats.put("lastRebuildUsers", lastRebuildUsers.get());
+        return stats;
+    }
+}
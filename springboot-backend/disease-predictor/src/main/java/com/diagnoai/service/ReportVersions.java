@@ -0,0 +1,122 @@
+package com.diagnoai.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A version per user that changes whenever what the report endpoints show
+ * for that user may have changed: a report saved for them, their name or
+ * email changed, or the counters recounted. An entity tag over the versions
+ * of every user a view covers tells whether a client's copy of that view is
+ * still current, without asking the database.
+ * <p>
+ * Versions live in memory and start over with every process, so each
+ * process tags with its own random epoch: a tag handed out before a restart
+ * never matches after it.
+ */
+@Component
+public class ReportVersions {
+
+    private final long epoch = new SecureRandom().nextLong();
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+    // Bumped when every user's reports may read differently
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder bumps = new LongAdder();
+
+    /**
+     * Bump the owners of reports just inserted, once the inserting
+     * transaction commits.
+     */
+    public void recordSaved(List<SavedReport> reports) {
+        bump(reports.stream().map(SavedReport::userId).distinct().toArray(Long[]::new));
+    }
+
+    /**
+     * Bump the given users, once the current transaction commits.
+     */
+    public void bump(Long... userIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(userIds);
+                }
+            });
+        } else {
+            apply(userIds);
+        }
+    }
+
+    private void apply(Long... userIds) {
+        for (Long userId : userIds) {
+            if (userId != null) {
+                versions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+            }
+        }
+        bumps.increment();
+    }
+
+    /**
+     * Bump every user, for changes that are not tied to particular users.
+     */
+    public void bumpAll() {
+        generation.incrementAndGet();
+        bumps.increment();
+    }
+
+    /**
+     * A strong entity tag for one view of the reports of the given users.
+     * Read it before reading the data the view shows: a save committing in
+     * between then makes the next tag differ, rather than leaving the old tag
+     * on the new data.
+     *
+     * @param view Identifies the endpoint and its parameters
+     */
+    public String etag(String view, Long requesterId, Collection<Long> userIds) {
+        long[] users = userIds.stream().mapToLong(Long::longValue).sorted().toArray();
+        ByteBuffer state = ByteBuffer.allocate(8 * (3 + 2 * users.length));
+        state.putLong(epoch).putLong(generation.get()).putLong(requesterId);
+        for (long userId : users) {
+            AtomicLong version = versions.get(userId);
+            state.putLong(userId).putLong(version != null ? version.get() : 0);
+        }
+
+        MessageDigest digest = sha256();
+        digest.update(view.getBytes(StandardCharsets.UTF_8));
+        digest.update(state.array());
+        return '"' + HexFormat.of().formatHex(Arrays.copyOf(digest.digest(), 16)) + '"';
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedUsers", versions.size());
+        stats.put("bumps", bumps.sum());
+        stats.put("generation", generation.get());
+        return stats;
+    }
+}
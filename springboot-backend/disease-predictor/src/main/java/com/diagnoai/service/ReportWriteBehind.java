@@ -0,0 +1,370 @@
+package com.diagnoai.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.prediction.PackedInput;
+import com.diagnoai.prediction.PredictionMessages;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind persistence for prediction reports. Request threads hand
+ * reports to a bounded queue; a single writer drains it into batched JDBC
+ * inserts that reference the owner by id. When the queue is full the
+ * configured backpressure policy applies, and batches that cannot be written
+ * are spilled to disk and replayed once the writer is idle again. Replay is
+ * at-least-once: a crash mid-replay can store a spilled report twice.
+ */
+@Component
+@Slf4j
+public class ReportWriteBehind implements SmartLifecycle {
+
+    private static final String INSERT_SQL = "INSERT INTO test_reports "
+            + "(user_id, disease_type, prediction_result, probability, input_data, input_packed, prediction_message, "
+            + "message_template, created_at, id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReportWriteBehindProperties properties;
+    private final ReportCounters reportCounters;
+    private final ReportTrends reportTrends;
+    private final ReportVersions reportVersions;
+    private final ReportFeed reportFeed;
+    private final IdAllocator idAllocator;
+    private final ObjectMapper spillMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final BlockingQueue<QueuedReport> queue;
+    private final ReentrantLock spillLock = new ReentrantLock();
+    private Path currentSpillFile;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final AtomicLong lastBatchLagMs = new AtomicLong();
+
+    public ReportWriteBehind(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ReportWriteBehindProperties properties, ReportCounters reportCounters, ReportTrends reportTrends,
+            ReportVersions reportVersions, ReportFeed reportFeed, IdAllocator idAllocator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.reportCounters = reportCounters;
+        this.reportTrends = reportTrends;
+        this.reportVersions = reportVersions;
+        this.reportFeed = reportFeed;
+        this.idAllocator = idAllocator;
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Accept a report for asynchronous persistence.
+     *
+     * @return false if the report was shed under backpressure
+     */
+    public boolean submit(PendingReport report) {
+        if (!running) {
+            // Not started yet or already shutting down: write on the caller's thread
+            write(List.of(report));
+            return true;
+        }
+
+        QueuedReport queued = new QueuedReport(report, System.nanoTime());
+        boolean accepted;
+        switch (properties.getBackpressure()) {
+            case BLOCK -> {
+                try {
+                    accepted = queue.offer(queued, properties.getBlockTimeout().toNanos(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    accepted = false;
+                }
+            }
+            case SPILL -> {
+                accepted = queue.offer(queued);
+                if (!accepted) {
+                    spill(List.of(report));
+                    return true;
+                }
+            }
+            default -> accepted = queue.offer(queued);
+        }
+
+        if (!accepted) {
+            shed.increment();
+            return false;
+        }
+        enqueued.increment();
+        return true;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "report-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        // The writer keeps going until the queue is empty
+        running = false;
+        try {
+            writer.join(properties.getStopTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            List<QueuedReport> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            log.warn("Report writer did not finish in time; spilling {} queued reports", remaining.size());
+            spill(remaining.stream().map(QueuedReport::report).toList());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the web server has stopped accepting requests
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+        long idleNanos = properties.getFlushInterval().toNanos();
+        int batchSize = properties.getBatchSize();
+
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedReport first = queue.poll(idleNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    if (running) {
+                        replaySpill();
+                    }
+                    continue;
+                }
+
+                List<QueuedReport> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                lastBatchLagMs.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - first.enqueuedNanos()));
+
+                write(batch.stream().map(QueuedReport::report).toList());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Report writer error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void write(List<PendingReport> reports) {
+        try {
+            insert(reports);
+            written.add(reports.size());
+        } catch (DataIntegrityViolationException e) {
+            // One bad row (e.g. a deleted user) fails the whole batch; retry row by row to isolate it
+            for (PendingReport report : reports) {
+                try {
+                    insert(List.of(report));
+                    written.increment();
+                } catch (DataIntegrityViolationException rowException) {
+                    dropped.increment();
+                    log.error("Dropping report for user {}: {}", report.userId(), rowException.getMessage());
+                } catch (DataAccessException rowException) {
+                    spill(List.of(report));
+                }
+            }
+        } catch (DataAccessException e) {
+            failedBatches.increment();
+            log.error("Failed to write {} reports, spilling to disk: {}", reports.size(), e.getMessage());
+            spill(reports);
+        }
+    }
+
+    private void insert(List<PendingReport> reports) {
+        // Taken before the transaction opens: a block read needs a connection of its own
+        long[] ids = idAllocator.next(TestReport.class, reports.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    PendingReport report = reports.get(i);
+                    ps.setLong(1, report.userId());
+                    ps.setString(2, report.diseaseType().name());
+                    ps.setInt(3, report.predictionResult());
+                    if (report.probability() != null) {
+                        ps.setDouble(4, report.probability());
+                    } else {
+                        ps.setNull(4, Types.DOUBLE);
+                    }
+                    // Stored compactly where that reads back unchanged, as TestReport.compact() does
+                    byte[] packed = PackedInput.pack(report.diseaseType(), report.inputData());
+                    ps.setString(5, packed == null ? report.inputData() : null);
+                    ps.setBytes(6, packed);
+                    Short template = PredictionMessages.templateOf(report.diseaseType(), report.predictionResult(),
+                            report.probability(), report.predictionMessage());
+                    ps.setString(7, template == null ? report.predictionMessage() : null);
+                    if (template != null) {
+                        ps.setShort(8, template);
+                    } else {
+                        ps.setNull(8, Types.SMALLINT);
+                    }
+                    ps.setObject(9, report.createdAt());
+                    ps.setLong(10, ids[i]);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return reports.size();
+                }
+            });
+            List<SavedReport> saved = reports.stream().map(SavedReport::of).toList();
+            reportCounters.recordSaved(saved);
+            reportTrends.recordSaved(saved);
+            reportVersions.recordSaved(saved);
+            reportFeed.publishPending(reports, ids);
+        });
+    }
+
+    private void spill(List<PendingReport> reports) {
+        spillLock.lock();
+        try {
+            Path directory = Paths.get(properties.getSpillDirectory());
+            if (currentSpillFile == null) {
+                Files.createDirectories(directory);
+                currentSpillFile = directory.resolve("spill-" + System.currentTimeMillis() + ".ndjson");
+            }
+            try (BufferedWriter out = Files.newBufferedWriter(currentSpillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (PendingReport report : reports) {
+                    out.write(spillMapper.writeValueAsString(report));
+                    out.newLine();
+                }
+            }
+            spilled.add(reports.size());
+        } catch (IOException e) {
+            dropped.add(reports.size());
+            log.error("Failed to spill {} reports to disk; they are lost: {}", reports.size(), e.getMessage());
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    private void replaySpill() {
+        Path directory = Paths.get(properties.getSpillDirectory());
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        List<Path> files = new ArrayList<>();
+        spillLock.lock();
+        try {
+            // Start a new spill file so the ones listed here are no longer appended to
+            currentSpillFile = null;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "spill-*.ndjson")) {
+                stream.forEach(files::add);
+            }
+        } catch (IOException e) {
+            log.error("Failed to list spill directory {}: {}", directory, e.getMessage());
+            return;
+        } finally {
+            spillLock.unlock();
+        }
+
+        files.sort(null);
+        for (Path file : files) {
+            try {
+                List<PendingReport> reports = new ArrayList<>();
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        reports.add(spillMapper.readValue(line, PendingReport.class));
+                    }
+                }
+                for (int from = 0; from < reports.size(); from += properties.getBatchSize()) {
+                    // Failed batches are spilled again into the new file
+                    write(reports.subList(from, Math.min(from + properties.getBatchSize(), reports.size())));
+                }
+                replayed.add(reports.size());
+                Files.delete(file);
+            } catch (IOException e) {
+                log.error("Failed to replay spill file {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        QueuedReport oldest = queue.peek();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("backpressure", properties.getBackpressure().name());
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", properties.getCapacity());
+        stats.put("oldestQueuedMs", oldest != null
+                ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.enqueuedNanos()) : 0);
+        stats.put("lastBatchLagMs", lastBatchLagMs.get());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("written", written.sum());
+        stats.put("shed", shed.sum());
+        stats.put("spilled", spilled.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        return stats;
+    }
+
+    private record QueuedReport(PendingReport report, long enqueuedNanos) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.diagnoai.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for write-behind persistence of prediction reports
+ * ({@code app.reports.write-behind.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.reports.write-behind")
+public class ReportWriteBehindProperties {
+
+    public enum Backpressure {
+        BLOCK,  // wait up to block-timeout for room, then shed
+        SHED,   // drop the report immediately
+        SPILL   // append the report to a spill file, replayed later
+    }
+
+    private boolean enabled = false;
+
+    // Reports waiting to be written before backpressure applies
+    private int capacity = 10_000;
+
+    // Maximum rows per batched insert
+    private int batchSize = 200;
+
+    // How long the writer idles before checking for spilled reports
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    private Backpressure backpressure = Backpressure.SPILL;
+
+    private Duration blockTimeout = Duration.ofMillis(100);
+
+    // How long shutdown waits for the writer to empty the queue before spilling the rest
+    private Duration stopTimeout = Duration.ofSeconds(30);
+
+    // Where SPILL writes overflow and failed batches
+    private String spillDirectory = "data/report-spill";
+}
@@ -0,0 +1,29 @@
+package com.diagnoai.service;
+
+import java.time.LocalDateTime;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+
+/**
+ * A report that was just inserted, as far as the maintained summaries
+ * (counters and trend buckets) care.
+ */
+public record SavedReport(
+        Long userId,
+        DiseaseType diseaseType,
+        int predictionResult,
+        Double probability,
+        LocalDateTime createdAt) {
+
+    public static SavedReport of(Long userId, TestReport report) {
+        return new SavedReport(userId, report.getDiseaseType(), report.getPredictionResult(),
+                report.getProbability(),
+                report.getCreatedAt() != null ? report.getCreatedAt() : LocalDateTime.now());
+    }
+
+    public static SavedReport of(PendingReport report) {
+        return new SavedReport(report.userId(), report.diseaseType(), report.predictionResult(),
+                report.probability(), report.createdAt());
+    }
+}
@@ -1,16 +1,23 @@
 package com.diagnoai.service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.diagnoai.dto.ReportSummary;
 import com.diagnoai.entity.DiseaseType;
 import com.diagnoai.entity.TestReport;
 import com.diagnoai.entity.User;
@@ -25,8 +32,18 @@ import lombok.RequiredArgsConstructor;
 @Transactional
 public class TestReportService {
 
+    // Bounds for open-ended date filters, within the range of a MySQL DATETIME
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     private final TestReportRepository testReportRepository;
     private final UserRepository userRepository;
+    private final ReportCounters reportCounters;
+    private final ReportTrends reportTrends;
+    private final ReportArchive reportArchive;
+    private final ReportVersions reportVersions;
+    private final ReportFeed reportFeed;
+    private final FamilyGraph familyGraph;
 
     public TestReport saveTestReport(Long userId, DiseaseType diseaseType,
             Integer predictionResult, Double probability,
@@ -36,8 +53,40 @@ public class TestReportService {
 
         TestReport testReport = new TestReport(user, diseaseType, predictionResult,
                 probability, inputData, predictionMessage);
+        testReport.compact();
 
-        return testReportRepository.save(testReport);
+        TestReport saved = testReportRepository.save(testReport);
+        recordSaved(user, List.of(saved));
+        return saved;
+    }
+
+    /**
+     * Save several reports for one user in a single transaction.
+     *
+     * @param userId  The owner of every report
+     * @param reports New reports; their user is set here
+     * @return The saved reports, in the same order
+     */
+    public List<TestReport> saveTestReports(Long userId, List<TestReport> reports) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        for (TestReport report : reports) {
+            report.setUser(user);
+            report.compact();
+        }
+        List<TestReport> saved = testReportRepository.saveAll(reports);
+        recordSaved(user, saved);
+        return saved;
+    }
+
+    // Keep the summary tables in step, inside the inserting transaction, and push the reports once it commits
+    private void recordSaved(User user, List<TestReport> reports) {
+        List<SavedReport> saved = reports.stream().map(report -> SavedReport.of(user.getId(), report)).toList();
+        reportCounters.recordSaved(saved);
+        reportTrends.recordSaved(saved);
+        reportVersions.recordSaved(saved);
+        reportFeed.publishSaved(user, reports);
     }
 
     public List<TestReport> getUserTestReports(Long userId) {
@@ -54,92 +103,145 @@ public class TestReportService {
         return testReportRepository.findByUserAndDiseaseTypeOrderByCreatedAtDesc(user, diseaseType);
     }
 
-    public List<TestReport> getAccessibleTestReports(Long requesterId) {
-        try {
-            User requester = userRepository.findById(requesterId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            Set<Long> accessibleUserIds = new HashSet<>();
-
-            // Always include the requester's own ID
-            accessibleUserIds.add(requesterId);
-
-            // If user is a main USER, add their relatives' IDs
-            if (requester.getRole() == UserRole.USER) {
-                try {
-                    List<User> relatives = userRepository.findRelativesByUserId(requesterId);
-                    if (relatives != null) {
-                        for (User relative : relatives) {
-                            accessibleUserIds.add(relative.getId());
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error getting relatives for user " + requesterId + ": " + e.getMessage());
-                }
-            }
+    /**
+     * One page of the reports the requester may see: their own, plus their
+     * relatives' for a main user, or the reports of the users who added them
+     * for a relative.
+     */
+    @Transactional(readOnly = true)
+    public ReportPage getAccessibleTestReports(Long requesterId, ReportQuery query) {
+        return findPage(accessibleUserIds(requesterId), query);
+    }
 
-            // If user is a RELATIVE, add IDs of users who added them as relative
-            if (requester.getRole() == UserRole.RELATIVE) {
-                try {
-                    List<User> mainUsers = userRepository.findUsersWhoHaveAsRelative(requesterId);
-                    if (mainUsers != null) {
-                        for (User mainUser : mainUsers) {
-                            accessibleUserIds.add(mainUser.getId());
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error getting main users for relative " + requesterId + ": " + e.getMessage());
-                }
-            }
+    /**
+     * One page of the user's own reports.
+     */
+    @Transactional(readOnly = true)
+    public ReportPage getUserTestReports(Long userId, ReportQuery query) {
+        return findPage(List.of(userId), query);
+    }
 
-            // Get all reports for accessible user IDs in one query
-            if (accessibleUserIds.isEmpty()) {
-                return new ArrayList<>();
-            }
+    private ReportPage findPage(Collection<Long> userIds, ReportQuery query) {
+        // Open-ended filters become bounds the index can range over
+        LocalDateTime from = query.from() != null ? query.from() : EARLIEST;
+        LocalDateTime before = query.to() != null ? query.to() : LATEST;
+        Long beforeId = Long.MIN_VALUE;
+        ReportCursor after = query.after();
+        if (after != null && after.createdAt().isBefore(before)) {
+            before = after.createdAt();
+            beforeId = after.id();
+        }
 
-            List<Long> userIdsList = new ArrayList<>(accessibleUserIds);
-            List<TestReport> reports = testReportRepository.findByUserIdsOrderByCreatedAtDesc(userIdsList);
+        // One extra row tells whether there is a next page
+        List<ReportSummary> reports = testReportRepository.findSummaryPageByUserIds(userIds, query.diseaseType(),
+                from, before, beforeId, Limit.of(query.size() + 1));
+        if (reportArchive.hasReportsOf(userIds)) {
+            reports = withArchived(reports, userIds, query, from, before, beforeId);
+        }
+        if (reports.size() <= query.size()) {
+            return new ReportPage(reports, null);
+        }
 
-            return reports != null ? reports : new ArrayList<>();
+        List<ReportSummary> page = new ArrayList<>(reports.subList(0, query.size()));
+        ReportSummary last = page.get(page.size() - 1);
+        return new ReportPage(page, new ReportCursor(last.createdAt(), last.id()).encode());
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error getting accessible test reports for user " + requesterId + ": " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
+    // Merges archived reports into a page of live ones, still at most size + 1 rows
+    private List<ReportSummary> withArchived(List<ReportSummary> live, Collection<Long> userIds, ReportQuery query,
+            LocalDateTime from, LocalDateTime before, Long beforeId) {
+        int limit = query.size() + 1;
+        // Archived reports older than a full live page cannot make it in
+        LocalDateTime archivedFrom = live.size() == limit && live.get(limit - 1).createdAt().isAfter(from)
+                ? live.get(limit - 1).createdAt()
+                : from;
+        List<ArchivedReport> archived = reportArchive.find(userIds, query.diseaseType(), archivedFrom, before,
+                beforeId, limit);
+        if (archived.isEmpty()) {
+            return live;
+        }
+
+        Map<Long, User> owners = new HashMap<>();
+        userRepository.findAllById(archived.stream().map(ArchivedReport::userId).distinct().toList())
+                .forEach(owner -> owners.put(owner.getId(), owner));
+        Set<Long> seen = new HashSet<>();
+        List<ReportSummary> merged = new ArrayList<>(live.size() + archived.size());
+        for (ReportSummary report : live) {
+            seen.add(report.id());
+            merged.add(report);
         }
+        for (ArchivedReport report : archived) {
+            User owner = owners.get(report.userId());
+            // Archived reports of deleted users and those still being moved out of test_reports are skipped
+            if (owner != null && seen.add(report.id())) {
+                merged.add(report.toSummary(owner.getFullName(), owner.getEmail()));
+            }
+        }
+        merged.sort(Comparator.comparing(ReportSummary::createdAt).thenComparing(ReportSummary::id).reversed());
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
     }
 
-    public Optional<TestReport> getTestReportById(Long reportId) {
-        return testReportRepository.findById(reportId);
+    /**
+     * Ids of the users whose reports the requester may see, themselves included.
+     */
+    public Set<Long> getAccessibleUserIds(Long requesterId) {
+        return accessibleUserIds(requesterId);
     }
 
-    public boolean hasAccessToReport(Long userId, Long reportId) {
-        Optional<TestReport> reportOpt = testReportRepository.findById(reportId);
-        if (reportOpt.isEmpty()) {
-            return false;
-        }
+    // Answered from the family graph; only the first use per user reads the database
+    private Set<Long> accessibleUserIds(Long requesterId) {
+        FamilyGraph.Links links = familyGraph.links(requesterId);
 
-        TestReport report = reportOpt.get();
-        Long reportUserId = report.getUser().getId();
+        Set<Long> accessibleUserIds = new HashSet<>();
 
-        // Check if user owns the report
-        if (userId.equals(reportUserId)) {
-            return true;
+        // Always include the requester's own ID
+        accessibleUserIds.add(requesterId);
+
+        // If user is a main USER, add their relatives' IDs
+        if (links.role() == UserRole.USER) {
+            for (long relativeId : links.relatives()) {
+                accessibleUserIds.add(relativeId);
+            }
         }
 
-        // Check if user has access through relatives relationship
-        List<Long> relativeIds = userRepository.findRelativesByUserId(userId).stream()
-                .map(User::getId)
-                .collect(Collectors.toList());
+        // If user is a RELATIVE, add IDs of users who added them as relative
+        if (links.role() == UserRole.RELATIVE) {
+            for (long mainUserId : links.relativeOf()) {
+                accessibleUserIds.add(mainUserId);
+            }
+        }
 
-        return relativeIds.contains(reportUserId);
+        return accessibleUserIds;
     }
 
-    public Long getUserTestCount(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    /**
+     * The report with its owner, read in one query, or from the archive once
+     * it has been moved out of test_reports.
+     */
+    public Optional<TestReport> getTestReportById(Long reportId) {
+        return testReportRepository.findWithUserById(reportId)
+                .or(() -> reportArchive.findById(reportId).flatMap(archived ->
+                        userRepository.findById(archived.userId()).map(archived::toTestReport)));
+    }
+
+    public boolean hasAccessToReport(Long userId, Long reportId) {
+        return testReportRepository.findOwnerIdById(reportId)
+                .or(() -> reportArchive.findById(reportId).map(ArchivedReport::userId))
+                .map(ownerId -> canReadReportsOf(userId, ownerId))
+                .orElse(false);
+    }
 
-        return testReportRepository.countByUser(user);
+    public boolean hasAccessToReport(Long userId, TestReport report) {
+        return canReadReportsOf(userId, report.getUser().getId());
+    }
+
+    // A user reads their own reports and those of the relatives they added
+    private boolean canReadReportsOf(Long userId, Long ownerId) {
+        return userId.equals(ownerId) || familyGraph.links(userId).hasRelative(ownerId);
+    }
+
+    public Long getUserTestCount(Long userId) {
+        return reportCounters.tally(List.of(userId)).total();
     }
 
     /**
@@ -148,10 +250,10 @@ public class TestReportService {
      * @param userId The user ID
      * @return Count of accessible reports
      */
+    @Transactional(readOnly = true)
     public Long getAccessibleTestReportsCount(Long userId) {
         try {
-            List<TestReport> accessibleReports = getAccessibleTestReports(userId);
-            return accessibleReports != null ? (long) accessibleReports.size() : 0L;
+            return reportCounters.tally(accessibleUserIds(userId)).total();
         } catch (Exception e) {
             // Log the error and return 0 instead of throwing
             System.err.println("Error getting accessible test reports count for user " + userId + ": " + e.getMessage());
@@ -161,10 +263,39 @@ public class TestReportService {
     }
 
     public Long getUserTestCountByDisease(Long userId, DiseaseType diseaseType) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        return reportCounters.tally(List.of(userId)).total(diseaseType);
+    }
 
-        return testReportRepository.countByUserAndDiseaseType(user, diseaseType);
+    /**
+     * Report counts of every user whose reports the requester may see, read
+     * from the maintained counters only.
+     *
+     * @return Counts per user id, the requester first
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, ReportTally> getAccessibleReportTallies(Long requesterId) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        userIds.add(requesterId);
+        userIds.addAll(accessibleUserIds(requesterId));
+        return reportCounters.tallies(userIds);
+    }
+
+    /**
+     * A user's risk trend per disease, read from the maintained trend buckets.
+     *
+     * @param userId The requester or one of the users whose reports they may see
+     * @param from   First day to include; null for the resolution's default span
+     * @param to     Last day to include; null for today
+     */
+    @Transactional(readOnly = true)
+    public Map<DiseaseType, TrendSeries> getReportTrends(Long requesterId, Long userId,
+            ReportTrends.Resolution resolution, DiseaseType diseaseType, LocalDate from, LocalDate to) {
+        if (!accessibleUserIds(requesterId).contains(userId)) {
+            throw new RuntimeException("Access denied to this user's reports");
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : resolution.defaultFrom(end);
+        return reportTrends.series(userId, resolution, diseaseType, start, end);
     }
 
     public List<TestReport> getUserTestReportsByDateRange(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
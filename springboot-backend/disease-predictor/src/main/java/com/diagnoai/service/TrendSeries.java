@@ -0,0 +1,17 @@
+package com.diagnoai.service;
+
+/**
+ * One disease's trend as parallel arrays, one entry per non-empty bucket in
+ * time order.
+ *
+ * @param bucketStart     First day of each bucket (yyyy-MM-dd)
+ * @param count           Reports in each bucket
+ * @param positive        Positive predictions in each bucket
+ * @param meanProbability Mean probability in each bucket, or null when no report had one
+ */
+public record TrendSeries(
+        String[] bucketStart,
+        long[] count,
+        long[] positive,
+        Double[] meanProbability) {
+}
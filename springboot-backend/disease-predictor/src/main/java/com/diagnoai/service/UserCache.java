@@ -0,0 +1,107 @@
+package com.diagnoai.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.diagnoai.config.UserCacheProperties;
+import com.diagnoai.entity.User;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Explicit eviction and statistics for the second-level cache of users.
+ * Hibernate updates cached users and the owning side of a relative link on
+ * its own, but not the inverse collection, and not changes made with native
+ * SQL; code that changes users or links evicts them here as well.
+ */
+@Component
+public class UserCache {
+
+    private static final String RELATIVES_ROLE = User.class.getName() + ".relatives";
+    private static final String RELATIVE_OF_ROLE = User.class.getName() + ".relativeOf";
+
+    private final Cache cache;
+    private final CacheManager cacheManager;
+    private final UserCacheProperties properties;
+
+    private final LongAdder invalidations = new LongAdder();
+
+    public UserCache(EntityManagerFactory entityManagerFactory, CacheManager userCacheManager,
+            UserCacheProperties properties) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.cacheManager = userCacheManager;
+        this.properties = properties;
+    }
+
+    /**
+     * Drop the cached state of the given users, now and again when the
+     * current transaction completes.
+     */
+    public void evictUsers(Long... userIds) {
+        afterCompletionToo(() -> {
+            for (Long userId : userIds) {
+                if (userId != null) {
+                    cache.evictEntityData(User.class, userId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop both relative collections of the given users, now and again when
+     * the current transaction completes.
+     */
+    public void evictRelatives(Long... userIds) {
+        afterCompletionToo(() -> {
+            for (Long userId : userIds) {
+                if (userId != null) {
+                    cache.evictCollectionData(RELATIVES_ROLE, userId);
+                    cache.evictCollectionData(RELATIVE_OF_ROLE, userId);
+                }
+            }
+        });
+    }
+
+    // A reader that loaded the old state before the commit cannot leave it behind
+    private void afterCompletionToo(Runnable eviction) {
+        eviction.run();
+        invalidations.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("invalidations", invalidations.sum());
+        for (String region : cacheManager.getCacheNames()) {
+            com.github.benmanes.caffeine.cache.Cache<?, ?> regionCache = cacheManager.getCache(region)
+                    .unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+            CacheStats stats = regionCache.stats();
+            Map<String, Object> regionStats = new LinkedHashMap<>();
+            regionStats.put("size", regionCache.estimatedSize());
+            regionStats.put("hits", stats.hitCount());
+            regionStats.put("misses", stats.missCount());
+            regionStats.put("hitRate", stats.hitRate());
+            regionStats.put("evictions", stats.evictionCount());
+            result.put(region, regionStats);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,429 @@
+package com.diagnoai.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.diagnoai.entity.User;
+import com.diagnoai.entity.UserRole;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory search over the names of active users. Names are folded to
+ * lowercase ASCII words, and every word is indexed by its trigrams, padded
+ * with {@code $} at both ends so the first trigrams stand for prefixes. A
+ * query collects the users sharing a trigram with any of its words, then
+ * ranks them: every query word must match some word of the name exactly,
+ * as a prefix, as a substring, or within one or two edits, and the closer
+ * matches rank first. A typo can leave a word with no trigram in common with
+ * the name it was meant for ("jhon" and "john"), so a query that matches
+ * nothing is tried again against every name with a word starting with the
+ * same letter as one of its words.
+ * <p>
+ * The index is loaded on first use and rebuilt on a schedule. UserService
+ * updates it as users are created and changed, once their transaction
+ * commits.
+ */
+@Component
+@Slf4j
+public class UserNameIndex {
+
+    private static final String LOAD_SQL = "SELECT id, username, full_name, email, phone_number, gender, age, "
+            + "role, created_at FROM users WHERE is_active = TRUE";
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+
+    // Further words of a query only slow it down without narrowing it much
+    private static final int MAX_QUERY_WORDS = 5;
+
+    /**
+     * One user as a search returns them, as of when they were indexed.
+     */
+    public record Entry(Long id, String username, String fullName, String email, String phoneNumber, String gender,
+            Integer age, UserRole role, LocalDateTime createdAt) {
+
+        static Entry of(User user) {
+            return new Entry(user.getId(), user.getUsername(), user.getFullName(), user.getEmail(),
+                    user.getPhoneNumber(), user.getGender(), user.getAge(), user.getRole(), user.getCreatedAt());
+        }
+    }
+
+    /**
+     * One page of matches, best first.
+     *
+     * @param page  Zero-based page number
+     * @param size  Matches per page
+     * @param total Number of matches over all pages
+     */
+    public record Page(List<Entry> users, int page, int size, int total) {
+
+        public boolean hasMore() {
+            return (long) (page + 1) * size < total;
+        }
+    }
+
+    // An indexed user with the words of their name
+    private record Indexed(Entry entry, String[] words) {
+    }
+
+    private record Match(Entry entry, double score) {
+    }
+
+    private static final Comparator<Match> BEST_FIRST = Comparator.comparingDouble(Match::score).reversed()
+            .thenComparing(match -> match.entry().fullName(), String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(match -> match.entry().id());
+
+    // One generation of the index; rebuilt wholesale, updated in place in between
+    private static final class Index {
+
+        private final Map<Long, Indexed> users = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+        private void put(Entry entry, boolean active) {
+            Indexed previous = users.remove(entry.id());
+            if (previous != null) {
+                for (String trigram : trigrams(previous.words())) {
+                    postings.computeIfPresent(trigram, (key, ids) -> {
+                        ids.remove(entry.id());
+                        return ids.isEmpty() ? null : ids;
+                    });
+                }
+            }
+            if (!active || entry.fullName() == null) {
+                return;
+            }
+            Indexed indexed = new Indexed(entry, words(entry.fullName()));
+            for (String trigram : trigrams(indexed.words())) {
+                postings.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(entry.id());
+            }
+            users.put(entry.id(), indexed);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserSearchProperties properties;
+
+    private final Object lock = new Object();
+    // Held across the table read; a lock rather than a monitor so a virtual thread waiting on it is not pinned
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Index index;
+    // Changes made while a rebuild reads the table, applied again to the rebuilt index
+    private Queue<Runnable> duringRebuild;
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder widenedSearches = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final AtomicLong lastRebuildMs = new AtomicLong();
+
+    public UserNameIndex(JdbcTemplate jdbcTemplate, UserSearchProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * @param page Zero-based page number
+     * @param size Matches per page, or null for the default; clamped to the
+     *             configured maximum
+     */
+    public Page search(String query, int page, Integer size) {
+        long start = System.nanoTime();
+        int pageSize = properties.clamp(size);
+        long offset = (long) Math.max(page, 0) * pageSize;
+        Index current = index();
+        String[] queryWords = words(query);
+        if (queryWords.length > MAX_QUERY_WORDS) {
+            queryWords = Arrays.copyOf(queryWords, MAX_QUERY_WORDS);
+        }
+
+        Map<Long, Indexed> candidates = new HashMap<>();
+        for (String word : queryWords) {
+            collect(current, queryTrigrams(current, word), candidates);
+        }
+        List<Match> matches = rank(queryWords, candidates);
+        if (matches.isEmpty() && candidates.size() < current.users.size()) {
+            for (String word : queryWords) {
+                collect(current, queryTrigrams(current, word.substring(0, 1)), candidates);
+            }
+            matches = rank(queryWords, candidates);
+            widenedSearches.increment();
+        }
+        List<Entry> users = matches.stream().skip(offset).limit(pageSize).map(Match::entry).toList();
+
+        searches.increment();
+        searchNanos.add(System.nanoTime() - start);
+        return new Page(users, Math.max(page, 0), pageSize, matches.size());
+    }
+
+    private static void collect(Index index, Set<String> trigrams, Map<Long, Indexed> candidates) {
+        for (String trigram : trigrams) {
+            for (Long id : index.postings.getOrDefault(trigram, Set.of())) {
+                Indexed indexed = index.users.get(id);
+                if (indexed != null) {
+                    candidates.putIfAbsent(id, indexed);
+                }
+            }
+        }
+    }
+
+    private static List<Match> rank(String[] queryWords, Map<Long, Indexed> candidates) {
+        List<Match> matches = new ArrayList<>();
+        for (Indexed candidate : candidates.values()) {
+            double score = score(queryWords, candidate.words());
+            if (score > 0) {
+                matches.add(new Match(candidate.entry(), score));
+            }
+        }
+        matches.sort(BEST_FIRST);
+        return matches;
+    }
+
+    /**
+     * Index the user's current name and details, or drop them if they are
+     * no longer active. Applied once the current transaction commits.
+     */
+    public void update(User user) {
+        Entry entry = Entry.of(user);
+        boolean active = !Boolean.FALSE.equals(user.getIsActive());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(entry, active);
+                }
+            });
+        } else {
+            apply(entry, active);
+        }
+    }
+
+    private void apply(Entry entry, boolean active) {
+        synchronized (lock) {
+            if (duringRebuild != null) {
+                duringRebuild.add(() -> index.put(entry, active));
+            }
+            // Before the first load there is nothing to update; the load reads the committed row
+            if (index != null) {
+                index.put(entry, active);
+            }
+        }
+        updates.increment();
+    }
+
+    private Index index() {
+        Index current = index;
+        if (current == null) {
+            rebuildLock.lock();
+            try {
+                if (index == null) {
+                    rebuild();
+                }
+                current = index;
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reload every active user from the table and swap the result in.
+     */
+    @Scheduled(fixedDelayString = "${app.users.search.refresh-interval:15m}",
+            initialDelayString = "${app.users.search.refresh-interval:15m}")
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            synchronized (lock) {
+                duringRebuild = new ConcurrentLinkedQueue<>();
+            }
+            Index rebuilt = new Index();
+            try {
+                jdbcTemplate.query(LOAD_SQL, rs -> {
+                    rebuilt.put(entry(rs), true);
+                });
+                synchronized (lock) {
+                    index = rebuilt;
+                    duringRebuild.forEach(Runnable::run);
+                }
+            } finally {
+                synchronized (lock) {
+                    duringRebuild = null;
+                }
+            }
+
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            rebuilds.increment();
+            lastRebuildMs.set(elapsedMs);
+            log.info("User name index rebuilt with {} users in {} ms", rebuilt.users.size(), elapsedMs);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private static Entry entry(ResultSet rs) throws SQLException {
+        String role = rs.getString(8);
+        return new Entry(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                rs.getString(6), rs.getObject(7, Integer.class), role != null ? UserRole.valueOf(role) : null,
+                rs.getObject(9, LocalDateTime.class));
+    }
+
+    // Lowercase ASCII words: "José  O'Neil" becomes [jose, o, neil]
+    static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        String trimmed = SEPARATORS.matcher(folded).replaceAll(" ").trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split(" ");
+    }
+
+    private static Set<String> trigrams(String[] words) {
+        Set<String> trigrams = new HashSet<>();
+        for (String word : words) {
+            String padded = '$' + word + '$';
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    // A single letter is only ever a prefix: every trigram that starts a word with it
+    private static Set<String> queryTrigrams(Index index, String word) {
+        if (word.length() > 1) {
+            return trigrams(new String[] {word});
+        }
+        String start = "$" + word;
+        Set<String> trigrams = new HashSet<>();
+        for (String trigram : index.postings.keySet()) {
+            if (trigram.startsWith(start)) {
+                trigrams.add(trigram);
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * @return The mean of each query word's best match against the name's
+     *         words, or 0 if some query word matches none of them
+     */
+    static double score(String[] queryWords, String[] nameWords) {
+        double total = 0;
+        for (String queryWord : queryWords) {
+            double best = 0;
+            for (String nameWord : nameWords) {
+                best = Math.max(best, wordScore(queryWord, nameWord));
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total / queryWords.length;
+    }
+
+    private static double wordScore(String queryWord, String nameWord) {
+        if (nameWord.equals(queryWord)) {
+            return 1.0;
+        }
+        if (nameWord.startsWith(queryWord)) {
+            return 0.8 + 0.1 * queryWord.length() / nameWord.length();
+        }
+        if (queryWord.length() >= 3 && nameWord.contains(queryWord)) {
+            return 0.6;
+        }
+        // Short words have too many neighbours one edit away
+        int allowed = queryWord.length() < 4 ? 0 : queryWord.length() < 8 ? 1 : 2;
+        if (allowed == 0) {
+            return 0;
+        }
+        // A typo in the whole word, or in a prefix of it typed so far
+        String prefix = nameWord.substring(0, Math.min(nameWord.length(), queryWord.length()));
+        int edits = Math.min(distance(queryWord, nameWord, allowed), distance(queryWord, prefix, allowed));
+        return edits <= allowed ? 0.5 - 0.1 * edits : 0;
+    }
+
+    /**
+     * Edits (insertions, deletions, substitutions and swaps of neighbours)
+     * between the words, or {@code max + 1} once it is certain to exceed max.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Index current = index;
+        stats.put("loaded", current != null);
+        stats.put("indexedUsers", current != null ? current.users.size() : 0);
+        stats.put("trigrams", current != null ? current.postings.size() : 0);
+        long count = searches.sum();
+        stats.put("searches", count);
+        stats.put("meanSearchMicros", count > 0 ? searchNanos.sum() / count / 1_000 : 0);
+        stats.put("widenedSearches", widenedSearches.sum());
+        stats.put("updates", updates.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMs", lastRebuildMs.get());
+        return stats;
+    }
+}
@@ -0,0 +1,28 @@
+package com.diagnoai.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the in-memory user name search ({@code app.users.search.*}).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.users.search")
+public class UserSearchProperties {
+
+    // Results per page of /api/users/search when no size is given
+    private int defaultSize = 20;
+
+    // Largest page the search returns, whatever the client asks for
+    private int maxSize = 50;
+
+    // How often the index is rebuilt from the users table, for changes made around UserService
+    private Duration refreshInterval = Duration.ofMinutes(15);
+
+    public int clamp(Integer requested) {
+        return requested == null ? Math.min(defaultSize, maxSize) : Math.max(1, Math.min(requested, maxSize));
+    }
+}
@@ -23,6 +23,10 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final FamilyGraph familyGraph;
+    private final UserCache userCache;
+    private final UserNameIndex userNameIndex;
+    private final ReportVersions reportVersions;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -44,7 +48,9 @@ public class UserService implements UserDetailsService {
         User user = new User(username, fullName, email, passwordEncoder.encode(password));
         user.setRole(UserRole.USER);
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userNameIndex.update(savedUser);
+        return savedUser;
     }
 
     @Transactional
@@ -65,6 +71,9 @@ public class UserService implements UserDetailsService {
         // Add the relationship using direct database operations to avoid loading complex object graphs
         // Insert the relationship directly into the join table
         userRepository.addRelativeRelationship(mainUser.getId(), savedRelative.getId());
+        familyGraph.invalidate(mainUser.getId(), savedRelative.getId());
+        userCache.evictRelatives(mainUser.getId(), savedRelative.getId());
+        userNameIndex.update(savedRelative);
 
         return savedRelative;
     }
@@ -82,7 +91,14 @@ public class UserService implements UserDetailsService {
     }
 
     public User updateUser(User user) {
-        return userRepository.save(user);
+        // The role may have changed
+        familyGraph.invalidate(user.getId());
+        userCache.evictUsers(user.getId());
+        User savedUser = userRepository.save(user);
+        userNameIndex.update(savedUser);
+        // Reports show their owner's name and email
+        reportVersions.bump(savedUser.getId());
+        return savedUser;
     }
 
     public void addRelative(Long userId, Long relativeId) {
@@ -93,6 +109,8 @@ public class UserService implements UserDetailsService {
 
         user.addRelative(relative);
         userRepository.save(user);
+        familyGraph.invalidate(userId, relativeId);
+        userCache.evictRelatives(userId, relativeId);
     }
 
     public void removeRelative(Long userId, Long relativeId) {
@@ -103,14 +121,23 @@ public class UserService implements UserDetailsService {
 
         user.removeRelative(relative);
         userRepository.save(user);
+        familyGraph.invalidate(userId, relativeId);
+        userCache.evictRelatives(userId, relativeId);
     }
 
     public List<User> getRelatives(Long userId) {
         return userRepository.findRelativesByUserId(userId);
     }
 
-    public List<User> searchUsersByName(String name) {
-        return userRepository.findByFullNameContainingAndIsActiveTrue(name);
+    /**
+     * Active users whose name matches, best match first, answered from the
+     * in-memory name index.
+     *
+     * @param page Zero-based page number
+     * @param size Matches per page, or null for the default
+     */
+    public UserNameIndex.Page searchUsers(String name, int page, Integer size) {
+        return userNameIndex.search(name, page, size);
     }
 
     public boolean hasAccessToUser(Long requesterId, Long targetUserId) {
@@ -118,19 +145,8 @@ public class UserService implements UserDetailsService {
             return true;
         }
 
-        // Check if requester has target as a relative
-        List<User> requesterRelatives = userRepository.findRelativesByUserId(requesterId);
-        boolean hasAsRelative = requesterRelatives.stream()
-                .anyMatch(relative -> relative.getId().equals(targetUserId));
-
-        if (hasAsRelative) {
-            return true;
-        }
-
-        // Check if target has requester as a relative
-        List<User> targetRelatives = userRepository.findRelativesByUserId(targetUserId);
-        return targetRelatives.stream()
-                .anyMatch(relative -> relative.getId().equals(requesterId));
+        // Either has the other as a relative
+        return familyGraph.areLinked(requesterId, targetUserId);
     }
 
     /**
@@ -141,7 +157,8 @@ public class UserService implements UserDetailsService {
      */
     public boolean hasRelativeAccess(Long relativeId) {
         // Find all users who have this relative in their relatives list
-        List<User> mainUsers = userRepository.findUsersWhoHaveAsRelative(relativeId);
-        return !mainUsers.isEmpty();
+        return familyGraph.find(relativeId)
+                .map(links -> links.relativeOf().length > 0)
+                .orElse(false);
     }
 }
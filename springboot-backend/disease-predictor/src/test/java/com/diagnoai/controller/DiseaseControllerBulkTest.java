@@ -0,0 +1,126 @@
+package com.diagnoai.controller;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mockito;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.diagnoai.config.SecurityConfig;
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.User;
+import com.diagnoai.prediction.BulkPredictionService;
+import com.diagnoai.prediction.BulkRowReader;
+import com.diagnoai.prediction.PredictionClient;
+import com.diagnoai.prediction.PredictionService;
+import com.diagnoai.security.AuthEntryPointJwt;
+import com.diagnoai.security.JwtUtils;
+import com.diagnoai.security.RateLimitProperties;
+import com.diagnoai.security.RateLimiter;
+import com.diagnoai.service.ReportWriteBehind;
+import com.diagnoai.service.UserPrincipal;
+import com.diagnoai.service.UserService;
+
+/**
+ * The bulk endpoint through the real security chain, including the async
+ * dispatch that completes a streamed response.
+ */
+@WebMvcTest(DiseaseController.class)
+@Import({SecurityConfig.class, AuthEntryPointJwt.class, RateLimiter.class,
+    RateLimitProperties.class})
+class DiseaseControllerBulkTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private PredictionService predictionService;
+
+    @MockitoBean
+    private PredictionClient predictionClient;
+
+    @MockitoBean
+    private BulkPredictionService bulkPredictionService;
+
+    @MockitoBean
+    private ReportWriteBehind reportWriteBehind;
+
+    @MockitoBean
+    private JwtUtils jwtUtils;
+
+    @MockitoBean
+    private UserService userService;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        User user = new User("alice", "Alice", "alice@example.com", "secret");
+        user.setId(1L);
+        when(jwtUtils.validateJwtToken("token")).thenReturn(true);
+        when(jwtUtils.getUserNameFromJwtToken("token")).thenReturn("alice");
+        when(userService.loadUserByUsername("alice")).thenReturn(UserPrincipal.create(user));
+    }
+
+    @Test
+    void predictBulk_Authenticated_StreamedResponseCompletes() throws Exception {
+        // Given
+        when(bulkPredictionService.openReader(any(), any())).thenReturn(Mockito.mock(BulkRowReader.class));
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write("{\"row\":1,\"prediction\":1}\n{\"summary\":true}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(bulkPredictionService).score(eq(DiseaseType.DIABETES), any(), eq(1L), any());
+
+        // When
+        MvcResult started = mockMvc.perform(post("/api/predict/diabetes/bulk")
+                .header("Authorization", "Bearer token")
+                .contentType("text/csv")
+                .content("Glucose\n148\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then - the dispatch that ends the stream is let through, not refused
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"row\":1,\"prediction\":1}\n{\"summary\":true}\n"));
+    }
+
+    @Test
+    void predictBulk_UnknownDisease_ErrorStreamedAsJson() throws Exception {
+        // When
+        MvcResult started = mockMvc.perform(post("/api/predict/flu/bulk")
+                .header("Authorization", "Bearer token")
+                .contentType("text/csv")
+                .content("Glucose\n148\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\":\"Error: Unknown disease type: flu\"}"));
+    }
+
+    @Test
+    void predictBulk_NoToken_Unauthorized() throws Exception {
+        mockMvc.perform(post("/api/predict/diabetes/bulk").contentType("text/csv").content("Glucose\n148\n"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,154 @@
+package com.diagnoai.controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.diagnoai.dto.MessageResponse;
+import com.diagnoai.service.ReportVersions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ReportResponseCacheTest {
+
+    private static final Set<Long> USERS = Set.of(1L, 2L);
+
+    private ReportVersions reportVersions;
+    private ReportResponseCache responseCache;
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        reportVersions = new ReportVersions();
+        responseCache = new ReportResponseCache(reportVersions, new ObjectMapper(),
+                new ReportResponseCacheProperties());
+    }
+
+    @Test
+    void respond_MatchingIfNoneMatch_NotModifiedWithoutRendering() {
+        // Given
+        ResponseEntity<?> first = respond(null, null);
+        String etag = first.getHeaders().getETag();
+
+        // When
+        ResponseEntity<?> second = respond(etag, null);
+        ResponseEntity<?> weak = respond("\"other\", W/" + etag, null);
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, weak.getStatusCode());
+        assertEquals(etag, second.getHeaders().getETag());
+        assertNull(second.getBody());
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void respond_SameVersion_CachedBytesReused() {
+        // Given
+        ResponseEntity<?> first = respond(null, null);
+
+        // When
+        ResponseEntity<?> second = respond(null, null);
+
+        // Then
+        assertEquals(1, renders.get());
+        assertArrayEquals((byte[]) first.getBody(), (byte[]) second.getBody());
+        assertEquals("cursor", second.getHeaders().getFirst(TestReportController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void respond_CoveredUserBumped_NewTagAndRendered() {
+        // Given
+        String etag = respond(null, null).getHeaders().getETag();
+
+        // When
+        reportVersions.bump(2L);
+        ResponseEntity<?> after = respond(etag, null);
+
+        // Then
+        assertEquals(HttpStatus.OK, after.getStatusCode());
+        assertNotEquals(etag, after.getHeaders().getETag());
+        assertEquals(2, renders.get());
+
+        // When - a user outside the view changes
+        reportVersions.bump(3L);
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, respond(after.getHeaders().getETag(), null).getStatusCode());
+    }
+
+    @Test
+    void respond_LargeBodyAndGzipAccepted_GzippedBytes() throws IOException {
+        // Given
+        ResponseEntity<?> plain = respond(null, null);
+
+        // When
+        ResponseEntity<?> gzipped = respond(null, "gzip, deflate");
+
+        // Then
+        assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream((byte[]) gzipped.getBody()))) {
+            assertArrayEquals((byte[]) plain.getBody(), in.readAllBytes());
+        }
+        assertTrue(((byte[]) gzipped.getBody()).length < ((byte[]) plain.getBody()).length);
+    }
+
+    @Test
+    void respond_GzippedAndPlain_TaggedApartAndBothRevalidate() {
+        // Given
+        String plainTag = respond(null, null).getHeaders().getETag();
+        String gzipTag = respond(null, "gzip").getHeaders().getETag();
+
+        // When
+        ResponseEntity<?> plainAgain = respond(plainTag, null);
+        ResponseEntity<?> gzipAgain = respond(gzipTag, "gzip");
+
+        // Then
+        assertNotEquals(plainTag, gzipTag);
+        assertEquals(plainTag.substring(0, plainTag.length() - 1) + "-gz\"", gzipTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, plainAgain.getStatusCode());
+        assertEquals(plainTag, plainAgain.getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_MODIFIED, gzipAgain.getStatusCode());
+        assertEquals(gzipTag, gzipAgain.getHeaders().getETag());
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void respond_ErrorResponse_PassedThroughAndNotKept() {
+        // When
+        ResponseEntity<?> error = responseCache.respond(1L, "view", USERS, null, null, () -> {
+            renders.incrementAndGet();
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: failed"));
+        });
+        respond(null, null);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+        assertNull(error.getHeaders().getETag());
+        assertEquals(2, renders.get());
+    }
+
+    private ResponseEntity<?> respond(String ifNoneMatch, String acceptEncoding) {
+        return responseCache.respond(1L, "view", USERS, ifNoneMatch, acceptEncoding, () -> {
+            renders.incrementAndGet();
+            return ResponseEntity.ok()
+                    .header(TestReportController.NEXT_CURSOR_HEADER, "cursor")
+                    .body(Collections.nCopies(200, List.of("report", 42)));
+        });
+    }
+}
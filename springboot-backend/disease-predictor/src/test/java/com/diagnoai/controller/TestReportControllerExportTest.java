@@ -0,0 +1,149 @@
+package com.diagnoai.controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.diagnoai.config.SecurityConfig;
+import com.diagnoai.entity.User;
+import com.diagnoai.repository.UserRepository;
+import com.diagnoai.security.AuthEntryPointJwt;
+import com.diagnoai.security.JwtUtils;
+import com.diagnoai.security.RateLimitProperties;
+import com.diagnoai.security.RateLimiter;
+import com.diagnoai.service.ReportExporter;
+import com.diagnoai.service.ReportFeed;
+import com.diagnoai.service.ReportImporter;
+import com.diagnoai.service.ReportPageProperties;
+import com.diagnoai.service.TestReportService;
+import com.diagnoai.service.UserPrincipal;
+import com.diagnoai.service.UserService;
+
+/**
+ * Exports through the real security chain, including the async dispatch
+ * that completes the streamed download.
+ */
+@WebMvcTest(TestReportController.class)
+@Import({SecurityConfig.class, AuthEntryPointJwt.class, RateLimiter.class, RateLimitProperties.class,
+    ReportPageProperties.class})
+class TestReportControllerExportTest {
+
+    private static final String ROWS = "{\"id\":2,\"diseaseType\":\"HEART\"}\n{\"id\":1,\"diseaseType\":\"DIABETES\"}\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private TestReportService testReportService;
+
+    @MockitoBean
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private ReportExporter reportExporter;
+
+    @MockitoBean
+    private ReportResponseCache responseCache;
+
+    @MockitoBean
+    private ReportFeed reportFeed;
+
+    @MockitoBean
+    private ReportImporter reportImporter;
+
+    @MockitoBean
+    private JwtUtils jwtUtils;
+
+    @MockitoBean
+    private UserService userService;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws Exception {
+        User user = new User("alice", "Alice", "alice@example.com", "secret");
+        user.setId(1L);
+        when(jwtUtils.validateJwtToken("token")).thenReturn(true);
+        when(jwtUtils.getUserNameFromJwtToken("token")).thenReturn("alice");
+        when(userService.loadUserByUsername("alice")).thenReturn(UserPrincipal.create(user));
+        when(testReportService.getAccessibleUserIds(1L)).thenReturn(Set.of(1L, 2L));
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(5);
+            out.write(ROWS.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(reportExporter).export(eq(Set.of(1L, 2L)), isNull(), isNull(), isNull(),
+                eq(ReportExporter.Format.NDJSON), any());
+    }
+
+    @Test
+    void exportTestReports_Authenticated_DownloadCompletes() throws Exception {
+        // When
+        MvcResult started = mockMvc.perform(get("/api/reports/export").header("Authorization", "Bearer token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then - the dispatch that ends the download is let through, not refused
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"reports.ndjson\""))
+                .andExpect(content().string(ROWS));
+    }
+
+    @Test
+    void exportTestReports_GzipAccepted_GzippedDownloadCompletes() throws Exception {
+        // When
+        MvcResult started = mockMvc.perform(get("/api/reports/export")
+                .header("Authorization", "Bearer token")
+                .header("Accept-Encoding", "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult completed = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+
+        // Then
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(completed.getResponse().getContentAsByteArray()))) {
+            assertEquals(ROWS, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void exportTestReports_UnknownFormat_ErrorStreamedAsJson() throws Exception {
+        // When
+        MvcResult started = mockMvc.perform(get("/api/reports/export")
+                .param("format", "xml")
+                .header("Authorization", "Bearer token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType("application/json"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.diagnoai.prediction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.service.TestReportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+class BulkPredictionServiceTest {
+
+    private static final String HEADER = "Pregnancies,Glucose,BloodPressure,SkinThickness,Insulin,BMI,DiabetesPedigreeFunction,Age\n";
+
+    @Mock
+    private PredictionClient predictionClient;
+
+    @Mock
+    private TestReportService testReportService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private BulkPredictionService bulkPredictionService;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        BulkPredictionProperties properties = new BulkPredictionProperties();
+        properties.setChunkSize(2);
+        bulkPredictionService = new BulkPredictionService(predictionClient, testReportService, objectMapper, properties,
+                new ModelGuard(new ModelGuardProperties()), new LocalModels(new LocalModelProperties(), objectMapper));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void score_CsvRows_StreamsResultPerRowAndPersistsPerChunk() throws Exception {
+        // Given
+        String csv = HEADER
+                + "6,148,72,35,0,33.6,0.627,50\n"
+                + "1,85,66,29,0,26.6,0.351,31\n"
+                + "8,not-a-number,64,0,0,23.3,0.672,32\n"
+                + "1,89,66,23,94,28.1,0.167,21\n";
+        when(predictionClient.predictBatch(eq(DiseaseType.DIABETES), anyList()))
+                .thenAnswer(invocation -> {
+                    List<double[]> rows = invocation.getArgument(1);
+                    List<Map<String, Object>> responses = new ArrayList<>();
+                    rows.forEach(row -> responses.add(Map.of("prediction", 1)));
+                    return responses;
+                });
+        when(testReportService.saveTestReports(eq(7L), anyList())).thenAnswer(invocation -> invocation.getArgument(1));
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BulkRowReader reader = bulkPredictionService.openReader("text/csv",
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))) {
+            bulkPredictionService.score(DiseaseType.DIABETES, reader, 7L, out);
+        }
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, lines.length);
+        Map<String, Object> summary = (Map<String, Object>) objectMapper.readValue(lines[4], Map.class).get("summary");
+        assertEquals(4, summary.get("rows"));
+        assertEquals(3, summary.get("scored"));
+        assertEquals(1, summary.get("failed"));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("\"error\":\"Glucose must be a number\""));
+        verify(predictionClient, times(2)).predictBatch(eq(DiseaseType.DIABETES), anyList());
+        verify(testReportService, times(2)).saveTestReports(eq(7L), any());
+    }
+
+    @Test
+    void openReader_JsonBodyNotAnArray_Rejected() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> bulkPredictionService.openReader("application/json",
+                        new ByteArrayInputStream("{\"Age\": 50}".getBytes(StandardCharsets.UTF_8))));
+        assertEquals("Expected a JSON array of rows", exception.getMessage());
+    }
+}
@@ -0,0 +1,84 @@
+package com.diagnoai.prediction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.diagnoai.entity.DiseaseType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Scores every row of each model's dataset with the in-process engine and
+ * compares against the probabilities the Python model produced for the same
+ * rows. Both files come from {@code python export_models.py} in
+ * flask-ml-api/ml; the test is skipped for models that have not been exported.
+ */
+class LocalModelParityTest {
+
+    private static final Path ML_DIRECTORY = Paths.get("../../flask-ml-api/ml");
+    private static final Map<DiseaseType, String> DATASETS = Map.of(
+            DiseaseType.DIABETES, "diabetes.csv",
+            DiseaseType.HEART, "heart_disease_data.csv",
+            DiseaseType.STROKE, "healthcare-dataset-stroke-data.csv",
+            DiseaseType.PARKINSONS, "parkinsons.csv");
+
+    @ParameterizedTest
+    @EnumSource(DiseaseType.class)
+    void predictProbability_MatchesPythonModelOnDataset(DiseaseType diseaseType) throws IOException {
+        // Given
+        String name = diseaseType.name().toLowerCase();
+        Path modelFile = ML_DIRECTORY.resolve("models/" + name + "_model.json");
+        Path parityFile = ML_DIRECTORY.resolve("models/" + name + "_parity.csv");
+        assumeTrue(Files.isRegularFile(modelFile) && Files.isRegularFile(parityFile),
+                "Run export_models.py in flask-ml-api/ml to export the " + name + " model");
+
+        TreeEnsembleModel model;
+        try (InputStream in = Files.newInputStream(modelFile)) {
+            model = TreeEnsembleModel.fromXGBoostJson(new ObjectMapper(), in);
+        }
+        Map<Integer, Map<String, Object>> expected = new HashMap<>();
+        try (BulkRowReader reader = BulkRowReader.csv(Files.newInputStream(parityFile))) {
+            for (Map<String, Object> row = reader.next(); row != null; row = reader.next()) {
+                expected.put(Integer.valueOf(row.get("row").toString()), row);
+            }
+        }
+
+        // When / Then
+        int compared = 0;
+        FeatureSet schema = FeatureSet.forDisease(diseaseType);
+        float[] features = new float[model.getFeatureCount()];
+        try (BulkRowReader dataset = BulkRowReader.csv(
+                Files.newInputStream(ML_DIRECTORY.resolve("dataSets/" + DATASETS.get(diseaseType))))) {
+            int index = 0;
+            for (Map<String, Object> row = dataset.next(); row != null; row = dataset.next(), index++) {
+                Map<String, Object> python = expected.get(index);
+                if (python == null) {
+                    continue;
+                }
+                double[] vector = schema.toVector(row);
+                for (int i = 0; i < features.length; i++) {
+                    features[i] = (float) vector[i];
+                }
+                float probability = model.predictProbability(features);
+
+                assertEquals(Double.parseDouble(python.get("probability").toString()), probability, 1e-5,
+                        name + " row " + index);
+                assertEquals(Integer.parseInt(python.get("prediction").toString()),
+                        TreeEnsembleModel.toClass(probability), name + " row " + index);
+                compared++;
+            }
+        }
+        assertEquals(expected.size(), compared);
+        assertTrue(compared > 0);
+    }
+}
@@ -0,0 +1,189 @@
+package com.diagnoai.prediction;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.diagnoai.entity.DiseaseType;
+
+@ExtendWith(OutputCaptureExtension.class)
+class ModelGuardTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private ModelGuardProperties properties;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        properties = new ModelGuardProperties();
+        properties.setEnabled(true);
+        properties.setSlidingWindowSize(4);
+        properties.setMinimumCalls(4);
+        properties.setFailureRateThreshold(50);
+        properties.setOpenDuration(Duration.ofSeconds(30));
+        properties.setHalfOpenProbes(2);
+    }
+
+    @Test
+    void call_FailingModel_OpensAndRecoversThroughHalfOpen() {
+        // Given
+        ModelGuard modelGuard = new ModelGuard(properties, clock::get);
+        call(modelGuard, DiseaseType.PARKINSONS, true);
+        call(modelGuard, DiseaseType.PARKINSONS, true);
+        call(modelGuard, DiseaseType.PARKINSONS, false);
+        call(modelGuard, DiseaseType.PARKINSONS, false);
+
+        // When
+        ModelUnavailableException rejected = assertThrows(ModelUnavailableException.class,
+                () -> modelGuard.call(DiseaseType.PARKINSONS, () -> "not called"));
+
+        // Then
+        assertEquals(ModelUnavailableException.Reason.CIRCUIT_OPEN, rejected.getReason());
+        assertEquals(Duration.ofSeconds(30), rejected.getRetryAfter());
+        assertEquals("ok", modelGuard.call(DiseaseType.DIABETES, () -> "ok"));
+
+        // When the open duration has passed, the probes succeed
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        call(modelGuard, DiseaseType.PARKINSONS, true);
+        call(modelGuard, DiseaseType.PARKINSONS, true);
+
+        // Then
+        assertEquals("CLOSED", state(modelGuard, DiseaseType.PARKINSONS));
+    }
+
+    @Test
+    void call_OpenedAndRecovered_EachTransitionLoggedOnce(CapturedOutput output) {
+        // Given
+        ModelGuard modelGuard = new ModelGuard(properties, clock::get);
+        for (int i = 0; i < 4; i++) {
+            call(modelGuard, DiseaseType.STROKE, false);
+        }
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        // When
+        call(modelGuard, DiseaseType.STROKE, true);
+        call(modelGuard, DiseaseType.STROKE, true);
+
+        // Then
+        assertEquals(1, occurrences(output, "STROKE model moved from CLOSED to OPEN"));
+        assertEquals(1, occurrences(output, "STROKE model moved from OPEN to HALF_OPEN"));
+        assertEquals(1, occurrences(output, "STROKE model moved from HALF_OPEN to CLOSED"));
+        assertEquals(3, occurrences(output, "STROKE model moved from"));
+    }
+
+    @Test
+    void call_FailedProbe_ReopensBreaker() {
+        // Given
+        ModelGuard modelGuard = new ModelGuard(properties, clock::get);
+        for (int i = 0; i < 4; i++) {
+            call(modelGuard, DiseaseType.HEART, false);
+        }
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        // When
+        call(modelGuard, DiseaseType.HEART, false);
+
+        // Then
+        assertEquals("OPEN", state(modelGuard, DiseaseType.HEART));
+        assertThrows(ModelUnavailableException.class, () -> modelGuard.call(DiseaseType.HEART, () -> "not called"));
+    }
+
+    @Test
+    void call_CallAdmittedWhileClosedEndsDuringHalfOpen_NotCountedAsProbe() throws Exception {
+        // Given - a call admitted while closed is still running when the breaker opens and half-opens
+        properties.setSlowCallThreshold(Duration.ofMinutes(5));
+        ModelGuard modelGuard = new ModelGuard(properties, clock::get);
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread straggler = Thread.ofVirtual().start(() -> modelGuard.call(DiseaseType.DIABETES, () -> {
+            inCall.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        assertTrue(inCall.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            call(modelGuard, DiseaseType.DIABETES, false);
+        }
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        call(modelGuard, DiseaseType.DIABETES, true);
+
+        // When
+        release.countDown();
+        straggler.join();
+
+        // Then - one of two probes has succeeded, so the breaker waits for the second
+        assertEquals("HALF_OPEN", state(modelGuard, DiseaseType.DIABETES));
+        call(modelGuard, DiseaseType.DIABETES, true);
+        assertEquals("CLOSED", state(modelGuard, DiseaseType.DIABETES));
+    }
+
+    @Test
+    void call_BulkheadFull_RejectsWithoutWaiting() throws Exception {
+        // Given
+        properties.setMaxConcurrentCalls(1);
+        ModelGuard modelGuard = new ModelGuard(properties);
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> modelGuard.call(DiseaseType.STROKE, () -> {
+            inCall.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        assertTrue(inCall.await(5, TimeUnit.SECONDS));
+
+        // When
+        ModelUnavailableException rejected = assertThrows(ModelUnavailableException.class,
+                () -> modelGuard.call(DiseaseType.STROKE, () -> "not called"));
+
+        // Then
+        assertEquals(ModelUnavailableException.Reason.BULKHEAD_FULL, rejected.getReason());
+        release.countDown();
+        holder.join();
+        assertEquals("ok", modelGuard.call(DiseaseType.STROKE, () -> "ok"));
+    }
+
+    private static void call(ModelGuard modelGuard, DiseaseType diseaseType, boolean succeed) {
+        try {
+            modelGuard.call(diseaseType, () -> {
+                if (!succeed) {
+                    throw new ResourceAccessException("Read timed out");
+                }
+                return "ok";
+            });
+        } catch (ResourceAccessException e) {
+            // Expected for failing calls
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String state(ModelGuard modelGuard, DiseaseType diseaseType) {
+        Map<String, Object> diseases = (Map<String, Object>) modelGuard.getStats().get("diseases");
+        return (String) ((Map<String, Object>) diseases.get(diseaseType.name())).get("state");
+    }
+
+    private static int occurrences(CapturedOutput output, String text) {
+        return output.getOut().split(Pattern.quote(text), -1).length - 1;
+    }
+}
@@ -0,0 +1,57 @@
+package com.diagnoai.prediction;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.diagnoai.entity.DiseaseType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class PackedInputTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void pack_StoredInputOfEachDisease_UnpacksToTheSameJson() throws Exception {
+        for (DiseaseType diseaseType : DiseaseType.values()) {
+            // Given - the JSON the prediction endpoint stores, with negative and fractional values
+            FeatureSet schema = FeatureSet.forDisease(diseaseType);
+            double[] vector = new double[schema.size()];
+            for (int i = 0; i < vector.length; i++) {
+                FeatureSet.Feature feature = schema.feature(i);
+                vector[i] = switch (feature.kind()) {
+                    case CATEGORY -> feature.categories().values().iterator().next();
+                    case NUMBER -> feature.min() < 0 ? -4.123456789 : feature.max() * 0.37;
+                    default -> feature.max();
+                };
+            }
+            String json = mapper.writeValueAsString(schema.toInputMap(vector));
+
+            // When
+            byte[] packed = PackedInput.pack(diseaseType, json);
+
+            // Then
+            assertEquals(json, PackedInput.unpack(diseaseType, packed), diseaseType.name());
+            assertTrue(packed.length < json.getBytes(StandardCharsets.UTF_8).length / 2,
+                    diseaseType + ": " + packed.length + " bytes");
+        }
+    }
+
+    @Test
+    void pack_InputThatWouldReadBackDifferently_KeptAsJson() {
+        // Given / When / Then - a fraction for an integer feature, an unknown label, an extra key, not JSON
+        assertNull(PackedInput.pack(DiseaseType.HEART, "{\"age\":40.5,\"sex\":1,\"cp\":0,\"trestbps\":120,"
+                + "\"chol\":200,\"fbs\":0,\"restecg\":0,\"thalach\":150,\"exang\":0,\"oldpeak\":1.5,"
+                + "\"slope\":1,\"ca\":0,\"thal\":2}"));
+        assertNull(PackedInput.pack(DiseaseType.STROKE, "{\"gender\":\"Unknown\",\"age\":50,\"hypertension\":0,"
+                + "\"heart_disease\":0,\"ever_married\":\"Yes\",\"work_type\":\"Private\","
+                + "\"Residence_type\":\"Urban\",\"avg_glucose_level\":90,\"bmi\":25,\"smoking_status\":\"smokes\"}"));
+        assertNull(PackedInput.pack(DiseaseType.DIABETES, "{\"Pregnancies\":1,\"Glucose\":100,\"BloodPressure\":70,"
+                + "\"SkinThickness\":20,\"Insulin\":80,\"BMI\":30,\"DiabetesPedigreeFunction\":0.5,\"Age\":40,"
+                + "\"note\":\"fasting\"}"));
+        assertNull(PackedInput.pack(DiseaseType.DIABETES, "glucose=100"));
+    }
+}
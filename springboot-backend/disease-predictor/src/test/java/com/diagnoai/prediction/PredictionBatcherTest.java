@@ -0,0 +1,95 @@
+package com.diagnoai.prediction;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.RestClientException;
+
+import com.diagnoai.entity.DiseaseType;
+
+@ExtendWith(MockitoExtension.class)
+class PredictionBatcherTest {
+
+    @Mock
+    private PredictionClient predictionClient;
+
+    private PredictionBatcher predictionBatcher;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        PredictionBatchProperties properties = new PredictionBatchProperties();
+        properties.setEnabled(true);
+        properties.setWindow(Duration.ofMillis(50));
+        properties.setMaxBatchSize(8);
+        predictionBatcher = new PredictionBatcher(predictionClient, new PredictionClientProperties(), properties,
+                new MockEnvironment());
+        predictionBatcher.start();
+    }
+
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        predictionBatcher.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_ConcurrentRequests_CoalescedAndFannedOut() {
+        // Given - echo each row's first feature back as its prediction
+        when(predictionClient.predictBatch(eq(DiseaseType.DIABETES), any())).thenAnswer(invocation -> {
+            List<double[]> rows = invocation.getArgument(1);
+            List<Map<String, Object>> responses = new ArrayList<>();
+            for (double[] row : rows) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("prediction", (int) row[0]);
+                responses.add(response);
+            }
+            return responses;
+        });
+
+        // When
+        List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            results.add(predictionBatcher.submit(DiseaseType.DIABETES, new double[] {i}));
+        }
+
+        // Then
+        for (int i = 0; i < 16; i++) {
+            assertEquals(i, results.get(i).join().get("prediction"));
+        }
+        verify(predictionClient, atMost(4)).predictBatch(eq(DiseaseType.DIABETES), any());
+        assertTrue((long) predictionBatcher.getStats().get("batches") >= 2);
+    }
+
+    @Test
+    void predict_BatchFailure_PropagatesToEveryCaller() {
+        // Given
+        when(predictionClient.predictBatch(eq(DiseaseType.HEART), any()))
+                .thenThrow(new RestClientException("model server down"));
+
+        // When & Then
+        RestClientException exception = assertThrows(RestClientException.class,
+                () -> predictionBatcher.predict(DiseaseType.HEART, new double[] {63}));
+        assertEquals("model server down", exception.getMessage());
+    }
+}
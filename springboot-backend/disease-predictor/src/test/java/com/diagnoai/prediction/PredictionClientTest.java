@@ -0,0 +1,235 @@
+package com.diagnoai.prediction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.diagnoai.entity.DiseaseType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the client against two stub model server replicas on local ports.
+ */
+class PredictionClientTest {
+
+    private StubReplica replicaA;
+    private StubReplica replicaB;
+    private PredictionClient predictionClient;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        replicaA = new StubReplica();
+        replicaB = new StubReplica();
+    }
+
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        if (predictionClient != null) {
+            predictionClient.close();
+        }
+        replicaA.stop();
+        replicaB.stop();
+    }
+
+    @Test
+    void predict_SpreadsAcrossReplicasAndSkipsOneThatFailsHealthCheck() {
+        // Given
+        predictionClient = new PredictionClient(properties());
+        for (int i = 0; i < 50; i++) {
+            predictionClient.predict(DiseaseType.DIABETES, new double[] {6, 148, 72, 35, 0, 33.6, 0.627, 50});
+        }
+        assertTrue(replicaA.predictions.get() > 0);
+        assertTrue(replicaB.predictions.get() > 0);
+
+        // When
+        replicaA.stop();
+        predictionClient.checkReplicaHealth();
+        int servedByB = replicaB.predictions.get();
+        for (int i = 0; i < 20; i++) {
+            predictionClient.predict(DiseaseType.DIABETES, new double[] {6, 148, 72, 35, 0, 33.6, 0.627, 50});
+        }
+
+        // Then
+        assertEquals(servedByB + 20, replicaB.predictions.get());
+    }
+
+    @Test
+    void predict_SlowReplica_HedgedToTheOther() {
+        // Given
+        PredictionClientProperties properties = properties();
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setMinSamples(10);
+        properties.getHedging().setPercentile(90);
+        properties.getHedging().setMinDelay(Duration.ofMillis(200));
+        properties.getHedging().setBudgetBurst(20);
+        predictionClient = new PredictionClient(properties);
+        for (int i = 0; i < 10; i++) {
+            predictionClient.predict(DiseaseType.HEART, new double[] {63, 1, 3, 145, 233, 1, 0, 150, 0, 2.3, 0, 0, 1});
+        }
+
+        // When
+        replicaA.delayMillis.set(3000);
+        int servedByA = replicaA.predictions.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            predictionClient.predict(DiseaseType.HEART, new double[] {63, 1, 3, 145, 233, 1, 0, 150, 0, 2.3, 0, 0, 1});
+        }
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // Then
+        assertTrue(elapsedMillis < 3000, "took " + elapsedMillis + " ms");
+        assertTrue(replicaA.predictions.get() > servedByA, "no call reached the slow replica");
+        // The winning hedge is counted just after its caller is released
+        long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+        while (hedgesWon(DiseaseType.HEART) == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(hedgesWon(DiseaseType.HEART) > 0, () -> predictionClient.getStats().toString());
+    }
+
+    @Test
+    void predict_HedgeWins_LosingAttemptAborted() {
+        // Given
+        PredictionClientProperties properties = properties();
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setMinSamples(10);
+        properties.getHedging().setMinDelay(Duration.ofMillis(100));
+        properties.getHedging().setBudgetBurst(20);
+        predictionClient = new PredictionClient(properties);
+        for (int i = 0; i < 10; i++) {
+            predictionClient.predict(DiseaseType.STROKE, new double[] {1, 67, 0, 1, 1, 2, 1, 228.69, 36.6, 1});
+        }
+        replicaA.delayMillis.set(3000);
+
+        // When - until a call went to the slow replica first and the hedge beat it
+        for (int i = 0; i < 20 && hedgesWon(DiseaseType.STROKE) == 0; i++) {
+            predictionClient.predict(DiseaseType.STROKE, new double[] {1, 67, 0, 1, 1, 2, 1, 228.69, 36.6, 1});
+        }
+
+        // Then - the slow request is called off long before it would have answered
+        assertTrue(hedgesWon(DiseaseType.STROKE) > 0, () -> predictionClient.getStats().toString());
+        long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+        while (((Number) pool().get("leased")).intValue() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(0, ((Number) pool().get("leased")).intValue(), () -> predictionClient.getStats().toString());
+        Map<String, Object> slowReplica = replica(replicaA.baseUrl());
+        assertEquals(0, slowReplica.get("outstanding"));
+        assertEquals(0L, slowReplica.get("failures"));
+        assertEquals(true, slowReplica.get("healthy"));
+    }
+
+    @Test
+    void predict_ModelSlowEverywhere_HedgesCappedByBudget() {
+        // Given - no hedges are earned, two are saved up
+        PredictionClientProperties properties = properties();
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setMinSamples(10);
+        properties.getHedging().setPercentile(50);
+        properties.getHedging().setMinDelay(Duration.ofMillis(150));
+        properties.getHedging().setBudgetPercent(0);
+        properties.getHedging().setBudgetBurst(2);
+        predictionClient = new PredictionClient(properties);
+        for (int i = 0; i < 20; i++) {
+            predictionClient.predict(DiseaseType.DIABETES, new double[] {6, 148, 72, 35, 0, 33.6, 0.627, 50});
+        }
+
+        // When - every call runs past the hedge delay
+        replicaA.delayMillis.set(500);
+        replicaB.delayMillis.set(500);
+        int served = replicaA.predictions.get() + replicaB.predictions.get();
+        for (int i = 0; i < 5; i++) {
+            predictionClient.predict(DiseaseType.DIABETES, new double[] {6, 148, 72, 35, 0, 33.6, 0.627, 50});
+        }
+
+        // Then
+        Map<String, Object> diabetes = disease(DiseaseType.DIABETES);
+        assertEquals(2L, diabetes.get("hedges"));
+        assertEquals(3L, diabetes.get("hedgesOverBudget"));
+        assertEquals(served + 7, replicaA.predictions.get() + replicaB.predictions.get());
+    }
+
+    private long hedgesWon(DiseaseType diseaseType) {
+        return (Long) disease(diseaseType).get("hedgesWon");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> disease(DiseaseType diseaseType) {
+        Map<String, Object> diseases = (Map<String, Object>) predictionClient.getStats().get("diseases");
+        return (Map<String, Object>) diseases.get(diseaseType.name());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> replica(String baseUrl) {
+        return (Map<String, Object>) ((Map<String, Object>) predictionClient.getStats().get("replicas")).get(baseUrl);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> pool() {
+        return (Map<String, Object>) predictionClient.getStats().get("pool");
+    }
+
+    private PredictionClientProperties properties() {
+        PredictionClientProperties properties = new PredictionClientProperties();
+        properties.setReplicas(List.of(replicaA.baseUrl(), replicaB.baseUrl()));
+        properties.setReadTimeout(Duration.ofSeconds(5));
+        return properties;
+    }
+
+    private static final class StubReplica {
+
+        private final HttpServer server;
+        private final AtomicInteger predictions = new AtomicInteger();
+        private final AtomicLong delayMillis = new AtomicLong(5);
+
+        private StubReplica() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/models", exchange -> respond(exchange, "{\"diabetes\": \"stub\"}"));
+            server.createContext("/predict/", exchange -> {
+                predictions.incrementAndGet();
+                try {
+                    Thread.sleep(delayMillis.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange, "{\"prediction\": 1}");
+            });
+            server.start();
+        }
+
+        private String baseUrl() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        private void stop() {
+            server.stop(0);
+        }
+
+        private static void respond(HttpExchange exchange, String json) throws IOException {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.diagnoai.prediction;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.client.RestClientException;
+
+import com.diagnoai.entity.DiseaseType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+class PredictionServiceTest {
+
+    @Mock
+    private PredictionClient predictionClient;
+
+    @Mock
+    private PredictionBatcher predictionBatcher;
+
+    private ModelVersionTracker modelVersionTracker;
+
+    private final PredictionClientProperties clientProperties = new PredictionClientProperties();
+
+    private PredictionService predictionService;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        PredictionCache predictionCache = new PredictionCache(new PredictionCacheProperties());
+        modelVersionTracker = new ModelVersionTracker(predictionClient, predictionCache);
+        predictionService = new PredictionService(predictionClient, predictionBatcher, predictionCache, modelVersionTracker,
+                new ModelGuard(new ModelGuardProperties()), new LocalModels(new LocalModelProperties(), new ObjectMapper()),
+                clientProperties);
+    }
+
+    @Test
+    void predict_EquivalentInputs_ServedFromCache() throws IOException {
+        // Given
+        when(predictionClient.predict(eq(DiseaseType.DIABETES), any())).thenReturn(response(1, "v1"));
+
+        FeatureSet schema = FeatureSet.forDisease(DiseaseType.DIABETES);
+        double[] first = read(schema, "{\"Pregnancies\": 6, \"Glucose\": 148, \"BloodPressure\": 72, "
+                + "\"SkinThickness\": 35, \"Insulin\": 0, \"BMI\": 33.60, \"DiabetesPedigreeFunction\": 0.627, \"Age\": 50}");
+        double[] second = read(schema, "{\"Age\": 50.0, \"DiabetesPedigreeFunction\": \"0.627\", \"BMI\": \"33.6\", "
+                + "\"Insulin\": 0, \"SkinThickness\": 35, \"BloodPressure\": 72, \"Glucose\": 148.0, \"Pregnancies\": 6}");
+
+        // When
+        predictionService.predict(DiseaseType.DIABETES, first);
+        Map<String, Object> result = predictionService.predict(DiseaseType.DIABETES, second);
+
+        // Then
+        assertEquals(1, result.get("prediction"));
+        verify(predictionClient, times(1)).predict(eq(DiseaseType.DIABETES), any());
+    }
+
+    @Test
+    void predict_ReturnedMapIsPrivateCopy() {
+        // Given
+        when(predictionClient.predict(eq(DiseaseType.HEART), any())).thenReturn(response(0, "v1"));
+        double[] input = {63, 1, 3, 145, 233, 1, 0, 150, 0, 2.3, 0, 0, 1};
+
+        // When
+        predictionService.predict(DiseaseType.HEART, input).put("message", "mutated");
+        Map<String, Object> result = predictionService.predict(DiseaseType.HEART, input);
+
+        // Then
+        assertFalse(result.containsKey("message"));
+    }
+
+    @Test
+    void predict_ModelVersionChange_InvalidatesCache() {
+        // Given
+        when(predictionClient.predict(eq(DiseaseType.STROKE), any()))
+                .thenReturn(response(0, "v1"))
+                .thenReturn(response(1, "v2"));
+        double[] input = {1, 67, 0, 1, 1, 2, 1, 228.69, 36.6, 0};
+        predictionService.predict(DiseaseType.STROKE, input);
+
+        // When
+        when(predictionClient.fetchModelVersions(any())).thenReturn(Map.of("stroke", "v2"));
+        modelVersionTracker.refresh();
+        Map<String, Object> result = predictionService.predict(DiseaseType.STROKE, input);
+
+        // Then
+        assertEquals(1, result.get("prediction"));
+        verify(predictionClient, times(2)).predict(eq(DiseaseType.STROKE), any());
+    }
+
+    @Test
+    void predict_IdenticalConcurrentRequests_ShareOneModelServerCall() throws Exception {
+        // Given - the first call is held until the second request is waiting on it
+        CountDownLatch called = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(predictionClient.predict(eq(DiseaseType.DIABETES), any())).thenAnswer(invocation -> {
+            called.countDown();
+            release.await();
+            return response(1, "v1");
+        });
+        double[] input = {6, 148, 72, 35, 0, 33.6, 0.627, 50};
+
+        // When
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Map<String, Object>> first = executor.submit(() -> predictionService.predict(DiseaseType.DIABETES, input));
+            called.await();
+            Future<Map<String, Object>> second = executor.submit(() -> predictionService.predict(DiseaseType.DIABETES, input));
+            while ((long) predictionService.getStats().get("collapsed") == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            // Then
+            assertEquals(1, first.get().get("prediction"));
+            assertEquals(1, second.get().get("prediction"));
+            assertNotSame(first.get(), second.get());
+        }
+        verify(predictionClient, times(1)).predict(eq(DiseaseType.DIABETES), any());
+        assertEquals(0.5, predictionService.getStats().get("collapseRate"));
+    }
+
+    @Test
+    void predict_SharedCallThrowsError_WaitingRequestFailsToo() throws Exception {
+        // Given - the first call dies with an Error once the second request waits on it
+        CountDownLatch called = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(predictionClient.predict(eq(DiseaseType.HEART), any())).thenAnswer(invocation -> {
+            called.countDown();
+            release.await();
+            throw new StackOverflowError();
+        });
+        double[] input = {63, 1, 3, 145, 233, 1, 0, 150, 0, 2.3, 0, 0, 1};
+
+        // When
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Map<String, Object>> first = executor.submit(() -> predictionService.predict(DiseaseType.HEART, input));
+            called.await();
+            Future<Map<String, Object>> second = executor.submit(() -> predictionService.predict(DiseaseType.HEART, input));
+            while ((long) predictionService.getStats().get("collapsed") == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            // Then
+            ExecutionException leader = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, leader.getCause());
+            ExecutionException waiter = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(RestClientException.class, waiter.getCause());
+        }
+    }
+
+    @Test
+    void predict_SharedCallOutlivesClientTimeout_WaitingRequestGivesUp() throws Exception {
+        // Given
+        clientProperties.setConnectionRequestTimeout(Duration.ofMillis(50));
+        clientProperties.setReadTimeout(Duration.ofMillis(50));
+        CountDownLatch called = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(predictionClient.predict(eq(DiseaseType.STROKE), any())).thenAnswer(invocation -> {
+            called.countDown();
+            release.await();
+            return response(1, "v1");
+        });
+        double[] input = {1, 67, 0, 1, 1, 2, 1, 228.69, 36.6, 1};
+
+        // When
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Map<String, Object>> first = executor.submit(() -> predictionService.predict(DiseaseType.STROKE, input));
+            called.await();
+
+            // Then
+            RestClientException timedOut = assertThrows(RestClientException.class,
+                    () -> predictionService.predict(DiseaseType.STROKE, input));
+            assertEquals("Timed out waiting for STROKE prediction", timedOut.getMessage());
+            release.countDown();
+            assertEquals(1, first.get().get("prediction"));
+        }
+    }
+
+    @Test
+    void read_InvalidFields_AllReportedTogether() {
+        // Given
+        FeatureSet schema = FeatureSet.forDisease(DiseaseType.STROKE);
+        String body = "{\"gender\": \"Male\", \"age\": 67, \"hypertension\": 2, \"heart_disease\": true, "
+                + "\"ever_married\": \"Yes\", \"work_type\": 2, \"Residence_type\": \"Urban\", "
+                + "\"avg_glucose_level\": \"high\", \"smoking_status\": \"never smoked\", \"extra\": [1, 2]}";
+
+        // When
+        FeatureValidationException e = assertThrows(FeatureValidationException.class, () -> read(schema, body));
+
+        // Then
+        assertEquals(List.of(
+                "hypertension must be 0 or 1",
+                "work_type must be one of [Private, Self-employed, Govt_job, children, Never_worked]",
+                "avg_glucose_level must be a number",
+                "bmi is missing"), e.getErrors());
+    }
+
+    private static double[] read(FeatureSet schema, String json) throws IOException {
+        return FeatureVectorReader.read(schema, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Map<String, Object> response(int prediction, String version) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("prediction", prediction);
+        response.put("model_version", version);
+        return response;
+    }
+}
@@ -0,0 +1,91 @@
+package com.diagnoai.prediction;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class TreeEnsembleModelTest {
+
+    // Two stumps in the layout of booster.save_model("model.json"): tree 0 splits on
+    // feature 0 at 5 (missing goes left), tree 1 on feature 1 at 2 (missing goes right)
+    private static final String MODEL_JSON = """
+            {"learner": {
+              "learner_model_param": {"base_score": "5E-1", "num_class": "0", "num_feature": "2"},
+              "objective": {"name": "binary:logistic"},
+              "gradient_booster": {"name": "gbtree", "model": {"trees": [
+                {"left_children": [1, -1, -1], "right_children": [2, -1, -1],
+                 "split_indices": [0, 0, 0], "split_conditions": [5.0, -0.4, 0.6],
+                 "default_left": [1, 0, 0], "split_type": [0, 0, 0]},
+                {"left_children": [1, -1, -1], "right_children": [2, -1, -1],
+                 "split_indices": [1, 0, 0], "split_conditions": [2.0, 0.1, 0.3],
+                 "default_left": [0, 0, 0], "split_type": [0, 0, 0]}
+              ]}}
+            }, "version": [1, 7, 6]}
+            """;
+
+    private TreeEnsembleModel model;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        model = TreeEnsembleModel.fromXGBoostJson(new ObjectMapper(),
+                new ByteArrayInputStream(MODEL_JSON.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void predictProbability_SumsLeavesOnTheBaseMargin() {
+        // Given
+        float[] belowBoth = {4.0f, 1.0f};
+        float[] aboveBoth = {5.0f, 2.0f};
+        float[] missing = {Float.NaN, Float.NaN};
+
+        // When / Then
+        assertEquals(sigmoid(-0.4f + 0.1f), model.predictProbability(belowBoth), 1e-7);
+        assertEquals(sigmoid(0.6f + 0.3f), model.predictProbability(aboveBoth), 1e-7);
+        assertEquals(sigmoid(-0.4f + 0.3f), model.predictProbability(missing), 1e-7);
+        assertEquals(0, TreeEnsembleModel.toClass(model.predictProbability(belowBoth)));
+        assertEquals(1, TreeEnsembleModel.toClass(model.predictProbability(aboveBoth)));
+    }
+
+    @Test
+    void predictProbabilities_MatchesSingleRowScoring() {
+        // Given
+        int rowCount = 150;
+        float[] rows = new float[rowCount * 2];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i * 2] = i % 10;
+            rows[i * 2 + 1] = i % 4;
+        }
+        float[] out = new float[rowCount];
+
+        // When
+        model.predictProbabilities(rows, rowCount, out);
+
+        // Then
+        for (int i = 0; i < rowCount; i++) {
+            float[] row = {rows[i * 2], rows[i * 2 + 1]};
+            assertEquals(model.predictProbability(row), out[i]);
+        }
+    }
+
+    @Test
+    void fromXGBoostJson_UnsupportedObjective_Rejected() {
+        // Given
+        String multiclass = MODEL_JSON.replace("binary:logistic", "multi:softprob");
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> TreeEnsembleModel.fromXGBoostJson(new ObjectMapper(),
+                new ByteArrayInputStream(multiclass.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static float sigmoid(float margin) {
+        return (float) (1.0 / (1.0 + Math.exp(-margin)));
+    }
+}
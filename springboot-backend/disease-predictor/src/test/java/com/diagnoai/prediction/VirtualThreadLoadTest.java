@@ -0,0 +1,132 @@
+package com.diagnoai.prediction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.diagnoai.entity.DiseaseType;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Compares a fixed platform thread pool (Tomcat's default of 200 workers)
+ * against one virtual thread per request, both calling a stub model server
+ * that answers after a fixed delay. Run with {@code mvn test -Ploadtest}.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class VirtualThreadLoadTest {
+
+    private static final int REQUESTS = 5000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int MAX_CONNECTIONS = 1000;
+    private static final Duration MODEL_LATENCY = Duration.ofMillis(500);
+
+    static {
+        // The JDK stub server otherwise closes all but 200 idle keep-alive connections
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(MAX_CONNECTIONS));
+    }
+
+    private HttpServer stubServer;
+    private PredictionClient predictionClient;
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger peakConcurrent = new AtomicInteger();
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() throws IOException {
+        stubServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        stubServer.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        stubServer.createContext("/predict/", exchange -> {
+            peakConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                exchange.getRequestBody().readAllBytes();
+                Thread.sleep(MODEL_LATENCY);
+                byte[] body = "{\"prediction\": 1, \"model_version\": \"stub\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        });
+        stubServer.start();
+
+        PredictionClientProperties properties = new PredictionClientProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + stubServer.getAddress().getPort());
+        // Under virtual threads the connection pool, not the thread count, is the ceiling
+        properties.setMaxConnections(MAX_CONNECTIONS);
+        properties.setMaxConnectionsPerRoute(MAX_CONNECTIONS);
+        properties.setConnectionRequestTimeout(Duration.ofSeconds(30));
+        properties.setReadTimeout(Duration.ofSeconds(30));
+        predictionClient = new PredictionClient(properties);
+    }
+
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        predictionClient.close();
+        stubServer.stop(0);
+    }
+
+    @Test
+    void compareThroughputOfPlatformAndVirtualThreads() throws Exception {
+        // Open the pooled connections and warm up the JIT so neither run pays for it
+        run(Executors.newVirtualThreadPerTaskExecutor(), MAX_CONNECTIONS);
+
+        Result platform = run(Executors.newFixedThreadPool(PLATFORM_THREADS), REQUESTS);
+        Result virtual = run(Executors.newVirtualThreadPerTaskExecutor(), REQUESTS);
+
+        System.out.printf("%nModel latency %d ms, %d requests, %d pooled connections%n",
+                MODEL_LATENCY.toMillis(), REQUESTS, MAX_CONNECTIONS);
+        System.out.printf("  platform pool (%d threads): %,8.0f req/s, peak concurrency %d%n",
+                PLATFORM_THREADS, platform.throughput(), platform.peakConcurrency());
+        System.out.printf("  virtual threads:             %,8.0f req/s, peak concurrency %d%n%n",
+                virtual.throughput(), virtual.peakConcurrency());
+
+        assertEquals(REQUESTS, platform.completed());
+        assertEquals(REQUESTS, virtual.completed());
+    }
+
+    private Result run(ExecutorService executor, int requests) throws Exception {
+        peakConcurrent.set(0);
+        double[] features = {6, 148, 72, 35, 0, 33.6, 0.627, 50};
+
+        long start = System.nanoTime();
+        List<Future<Map<String, Object>>> futures = new ArrayList<>(requests);
+        try (executor) {
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(() -> predictionClient.predict(DiseaseType.DIABETES, features)));
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        int completed = 0;
+        for (Future<Map<String, Object>> future : futures) {
+            if (future.get() != null) {
+                completed++;
+            }
+        }
+        return new Result(completed, requests / (elapsedNanos / 1e9), peakConcurrent.get());
+    }
+
+    private record Result(int completed, double throughput, int peakConcurrency) {
+    }
+}
@@ -0,0 +1,132 @@
+package com.diagnoai.security;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private RateLimitProperties properties;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setEnabled(true);
+    }
+
+    @Test
+    void tryAcquire_BurstSpent_RejectsUntilRefilled() {
+        // Given
+        properties.getClasses().put(EndpointClass.PREDICT, quota(3, 2, 0, 0));
+        RateLimiter rateLimiter = new RateLimiter(properties, clock::get);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(EndpointClass.PREDICT, "user:1"));
+        }
+
+        // When
+        long wait = rateLimiter.tryAcquire(EndpointClass.PREDICT, "user:1");
+
+        // Then
+        assertEquals(Duration.ofMillis(500).toNanos(), wait);
+        assertEquals(0, rateLimiter.tryAcquire(EndpointClass.PREDICT, "user:2"));
+        assertEquals(0, rateLimiter.tryAcquire(EndpointClass.REPORTS, "user:1"));
+
+        // When half a second has passed, one token is back
+        clock.addAndGet(Duration.ofMillis(500).toNanos());
+
+        // Then
+        assertEquals(0, rateLimiter.tryAcquire(EndpointClass.PREDICT, "user:1"));
+        assertTrue(rateLimiter.tryAcquire(EndpointClass.PREDICT, "user:1") > 0);
+    }
+
+    @Test
+    void tryAcquire_ClassLimitReached_ShedsWithoutChargingClient() {
+        // Given
+        properties.getClasses().put(EndpointClass.PREDICT, quota(5, 1, 2, 1));
+        RateLimiter rateLimiter = new RateLimiter(properties, clock::get);
+        rateLimiter.tryAcquire(EndpointClass.PREDICT, "user:1");
+        rateLimiter.tryAcquire(EndpointClass.PREDICT, "user:2");
+
+        // When
+        long wait = rateLimiter.tryAcquire(EndpointClass.PREDICT, "user:3");
+
+        // Then
+        assertEquals(Duration.ofSeconds(1).toNanos(), wait);
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals(0, rateLimiter.tryAcquire(EndpointClass.PREDICT, "user:3"));
+        Map<String, Object> stats = stats(rateLimiter, EndpointClass.PREDICT);
+        assertEquals(3L, stats.get("admitted"));
+        assertEquals(1L, stats.get("rejectedGlobal"));
+
+        // When every bucket of the class has refilled, they are swept
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        rateLimiter.sweep();
+
+        // Then
+        assertEquals(0, stats(rateLimiter, EndpointClass.PREDICT).get("clients"));
+    }
+
+    @Test
+    void tryAcquire_ConcurrentCallers_AdmitExactlyTheBurst() throws Exception {
+        // Given
+        properties.getClasses().put(EndpointClass.REPORTS, quota(100, 0.001, 0, 0));
+        RateLimiter rateLimiter = new RateLimiter(properties, clock::get);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<Integer>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int admitted = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (rateLimiter.tryAcquire(EndpointClass.REPORTS, "user:1") == 0) {
+                            admitted++;
+                        }
+                    }
+                    return admitted;
+                }));
+            }
+            start.countDown();
+        }
+
+        // Then
+        int admitted = 0;
+        for (Future<Integer> result : results) {
+            admitted += result.get();
+        }
+        assertEquals(100, admitted);
+        assertEquals(7900L, stats(rateLimiter, EndpointClass.REPORTS).get("rejectedClient"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> stats(RateLimiter rateLimiter, EndpointClass endpointClass) {
+        Map<String, Object> classes = (Map<String, Object>) rateLimiter.getStats().get("classes");
+        return (Map<String, Object>) classes.get(endpointClass.name());
+    }
+
+    private static RateLimitProperties.Quota quota(int capacity, double refillPerSecond, int globalCapacity,
+            double globalPerSecond) {
+        RateLimitProperties.Quota quota = new RateLimitProperties.Quota();
+        quota.setCapacity(capacity);
+        quota.setRefillPerSecond(refillPerSecond);
+        quota.setGlobalCapacity(globalCapacity);
+        quota.setGlobalPerSecond(globalPerSecond);
+        return quota;
+    }
+}
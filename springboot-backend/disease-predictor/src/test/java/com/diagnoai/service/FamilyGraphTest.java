@@ -0,0 +1,94 @@
+package com.diagnoai.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.diagnoai.entity.UserRole;
+import com.diagnoai.repository.UserRepository;
+
+@ExtendWith(MockitoExtension.class)
+class FamilyGraphTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private FamilyGraph familyGraph;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        familyGraph = new FamilyGraph(userRepository, 100, Duration.ofMinutes(5), now::get);
+    }
+
+    @Test
+    void areLinked_RepeatedChecks_LoadedOnce() {
+        // Given
+        when(userRepository.findRoleById(1L)).thenReturn(Optional.of(UserRole.USER));
+        when(userRepository.findRelativeIdsByUserId(1L)).thenReturn(List.of(5L, 3L));
+        when(userRepository.findIdsOfUsersWhoHaveAsRelative(1L)).thenReturn(List.of());
+
+        // When / Then
+        assertTrue(familyGraph.areLinked(1L, 3L));
+        assertTrue(familyGraph.areLinked(1L, 5L));
+        assertFalse(familyGraph.areLinked(1L, 4L));
+        verify(userRepository, times(1)).findRelativeIdsByUserId(1L);
+    }
+
+    @Test
+    void areLinked_UnknownUser_False() {
+        // Given
+        when(userRepository.findRoleById(9L)).thenReturn(Optional.empty());
+
+        // When / Then
+        assertFalse(familyGraph.areLinked(9L, 1L));
+    }
+
+    @Test
+    void invalidate_RelativeRemoved_NextCheckReloads() {
+        // Given
+        when(userRepository.findRoleById(1L)).thenReturn(Optional.of(UserRole.USER));
+        when(userRepository.findRelativeIdsByUserId(1L)).thenReturn(List.of(3L), List.of());
+        when(userRepository.findIdsOfUsersWhoHaveAsRelative(1L)).thenReturn(List.of());
+        assertTrue(familyGraph.areLinked(1L, 3L));
+
+        // When
+        familyGraph.invalidate(1L, 3L);
+
+        // Then
+        assertFalse(familyGraph.areLinked(1L, 3L));
+        verify(userRepository, times(2)).findRelativeIdsByUserId(1L);
+    }
+
+    @Test
+    void areLinked_EntryOlderThanTimeToLive_Reloaded() {
+        // Given - the link was removed on another instance, so nothing here invalidated it
+        when(userRepository.findRoleById(1L)).thenReturn(Optional.of(UserRole.USER));
+        when(userRepository.findRelativeIdsByUserId(1L)).thenReturn(List.of(3L), List.of());
+        when(userRepository.findIdsOfUsersWhoHaveAsRelative(1L)).thenReturn(List.of());
+        assertTrue(familyGraph.areLinked(1L, 3L));
+        now.addAndGet(Duration.ofMinutes(4).toNanos());
+        assertTrue(familyGraph.areLinked(1L, 3L));
+
+        // When
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        // Then
+        assertFalse(familyGraph.areLinked(1L, 3L));
+        verify(userRepository, times(2)).findRelativeIdsByUserId(1L);
+    }
+}
@@ -0,0 +1,214 @@
+package com.diagnoai.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.diagnoai.dto.ReportSummary;
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+import com.diagnoai.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Archiving against a real schema and a temporary segment directory.
+ * Transactions commit, so every test works on its own user.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:archive;MODE=MySQL",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.show-sql=false",
+    "app.reports.archive.enabled=true",
+    "app.reports.archive.age=30d"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TestReportService.class, ReportCounters.class, ReportCounterProperties.class, ReportTrends.class,
+    ReportTrendProperties.class, FamilyGraph.class, ReportArchive.class, ReportArchiveProperties.class,
+    ReportVersions.class, ReportFeed.class, ReportFeedProperties.class, ReportExporter.class,
+    ReportExportProperties.class})
+class ReportArchiveTest {
+
+    private static final Path DIRECTORY;
+
+    static {
+        try {
+            DIRECTORY = Files.createTempDirectory("report-archive");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) {
+        registry.add("app.reports.archive.directory", DIRECTORY::toString);
+    }
+
+    @Autowired
+    private TestReportService testReportService;
+
+    @Autowired
+    private ReportArchive reportArchive;
+
+    @Autowired
+    private ReportCounters reportCounters;
+
+    @Autowired
+    private ReportExporter reportExporter;
+
+    @Autowired
+    private ReportArchiveProperties properties;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void archive_OldReports_ListedAfterLiveOnesAcrossPages() {
+        // Given - three recent reports and four from last year
+        Long userId = user("paged");
+        for (int i = 0; i < 7; i++) {
+            testReportService.saveTestReport(userId, DiseaseType.HEART, i % 2, 0.1 * i, "{}", "report " + i);
+        }
+        jdbcTemplate.update("UPDATE test_reports SET created_at = DATEADD('DAY', -400 + id % 7, CURRENT_TIMESTAMP) "
+                + "WHERE user_id = ? AND prediction_message IN ('report 0', 'report 1', 'report 2', 'report 3')",
+                userId);
+        List<Long> expected = testReportService.getUserTestReports(userId, ReportQuery.firstPage(10)).reports()
+                .stream().map(ReportSummary::id).toList();
+
+        // When
+        reportArchive.archive();
+
+        // Then
+        assertEquals(3L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM test_reports WHERE user_id = ?", Long.class, userId));
+        ReportPage first = testReportService.getUserTestReports(userId, ReportQuery.firstPage(4));
+        ReportPage second = testReportService.getUserTestReports(userId,
+                new ReportQuery(null, null, null, ReportCursor.decode(first.nextCursor()), 4));
+        List<Long> listed = Stream.concat(first.reports().stream(), second.reports().stream())
+                .map(ReportSummary::id).toList();
+        assertEquals(expected, listed);
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void archive_OldReport_StillFoundAndCounted() {
+        // Given
+        Long userId = user("lookup");
+        TestReport old = testReportService.saveTestReport(userId, DiseaseType.DIABETES, 1, 0.8, "{}", "old");
+        testReportService.saveTestReport(userId, DiseaseType.DIABETES, 0, 0.3, "{}", "new");
+        jdbcTemplate.update("UPDATE test_reports SET created_at = DATEADD('DAY', -90, CURRENT_TIMESTAMP) WHERE id = ?",
+                old.getId());
+
+        // When
+        reportArchive.archive();
+        reportCounters.rebuild();
+
+        // Then
+        TestReport found = testReportService.getTestReportById(old.getId()).orElseThrow();
+        assertEquals("old", found.getPredictionMessage());
+        assertEquals(userId, found.getUser().getId());
+        assertTrue(testReportService.hasAccessToReport(userId, old.getId()));
+        ReportTally tally = reportCounters.tally(List.of(userId));
+        assertEquals(1, tally.positive(DiseaseType.DIABETES));
+        assertEquals(1, tally.negative(DiseaseType.DIABETES));
+    }
+
+    @Test
+    void archive_RerunAndReopen_NothingArchivedTwice() {
+        // Given
+        Long userId = user("reopen");
+        TestReport old = testReportService.saveTestReport(userId, DiseaseType.STROKE, 0, null, "{}", "old");
+        jdbcTemplate.update("UPDATE test_reports SET created_at = DATEADD('DAY', -60, CURRENT_TIMESTAMP) WHERE id = ?",
+                old.getId());
+        reportArchive.archive();
+
+        // When - a second run finds nothing, a fresh instance reads the same segments
+        reportArchive.archive();
+        ReportArchive reopened = new ReportArchive(jdbcTemplate, transactionManager, properties);
+
+        // Then
+        List<ArchivedReport> found = reopened.find(List.of(userId), null, null, null, Long.MIN_VALUE, 10);
+        assertEquals(1, found.size());
+        assertEquals(old.getId(), found.get(0).id());
+        assertNull(found.get(0).probability());
+        assertFalse(reopened.hasReportsOf(List.of(user("other"))));
+    }
+
+    @Test
+    void export_ArchivedSpansOverlapAndOneStillLive_InOrderOnce() throws Exception {
+        // Given - two runs whose blocks overlap in time
+        Long userId = user("export");
+        long oldest = old(userId, 400);
+        long older = old(userId, 200);
+        long recent = testReportService.saveTestReport(userId, DiseaseType.HEART, 0, 0.2, "{}", "recent").getId();
+        reportArchive.archive();
+        long between = old(userId, 300);
+        reportArchive.archive();
+        // Back in test_reports, as between publishing a segment and deleting its rows
+        jdbcTemplate.update("INSERT INTO test_reports (id, user_id, disease_type, prediction_result, "
+                + "prediction_message, created_at) VALUES (?, ?, 'HEART', 0, 'old', "
+                + "DATEADD('DAY', -200, CURRENT_TIMESTAMP))", older, userId);
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            reportExporter.export(List.of(userId), null, null, null, ReportExporter.Format.NDJSON, out);
+        } finally {
+            jdbcTemplate.update("DELETE FROM test_reports WHERE id = ?", older);
+        }
+
+        // Then
+        ObjectMapper mapper = new ObjectMapper();
+        List<Long> exported = Arrays.stream(out.toString().split("\n"))
+                .map(line -> {
+                    try {
+                        return mapper.readTree(line).get("id").asLong();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .toList();
+        assertEquals(List.of(recent, older, between, oldest), exported);
+    }
+
+    private long old(Long userId, int days) {
+        long id = testReportService.saveTestReport(userId, DiseaseType.HEART, 0, 0.2, "{}", "old").getId();
+        jdbcTemplate.update("UPDATE test_reports SET created_at = DATEADD('DAY', ?, CURRENT_TIMESTAMP) WHERE id = ?",
+                -days, id);
+        return id;
+    }
+
+    private Long user(String name) {
+        return userRepository.save(new User(name, name, name + "@example.com", "secret")).getId();
+    }
+}
@@ -0,0 +1,104 @@
+package com.diagnoai.service;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+import com.diagnoai.prediction.PredictionMessages;
+import com.diagnoai.repository.TestReportRepository;
+import com.diagnoai.repository.UserRepository;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:compaction;MODE=MySQL",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.show-sql=false",
+    "app.reports.compaction.batch-size=2",
+    "app.reports.compaction.interval=1h"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReportCompaction.class, ReportCompactionProperties.class})
+class ReportCompactionTest {
+
+    private static final String DIABETES_INPUT = "{\"Pregnancies\":2,\"Glucose\":148.0,\"BloodPressure\":72.0,"
+            + "\"SkinThickness\":35.0,\"Insulin\":0.0,\"BMI\":33.6,\"DiabetesPedigreeFunction\":0.627,\"Age\":50}";
+
+    @Autowired
+    private ReportCompaction reportCompaction;
+
+    @Autowired
+    private TestReportRepository testReportRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void compactNextBatch_LegacyRows_CompactedWhereTheyReadBackUnchanged() {
+        // Given - rows as stored before the compact format
+        Long userId = userRepository.save(new User("legacy", "legacy", "legacy@example.com", "secret")).getId();
+        String stockMessage = PredictionMessages.createPredictionMessage(DiseaseType.DIABETES, 1, 0.82);
+        long stock = legacyReport(userId, 1, 0.82, DIABETES_INPUT, stockMessage);
+        long custom = legacyReport(userId, 0, 0.1, "{\"Glucose\":\"high\"}", "Entered by hand");
+        long partial = legacyReport(userId, 0, 0.3, "{\"Glucose\":\"high\"}",
+                PredictionMessages.createPredictionMessage(DiseaseType.DIABETES, 0, 0.3));
+
+        // When - the pass at startup found no reports, so walk the table again
+        reportCompaction.restart();
+        while (!reportCompaction.isComplete()) {
+            reportCompaction.compactNextBatch();
+        }
+
+        // Then - stored compactly, read back as before
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT input_data, input_packed, prediction_message, message_template FROM test_reports WHERE id = ?",
+                stock);
+        assertNull(row.get("INPUT_DATA"));
+        assertNotNull(row.get("INPUT_PACKED"));
+        assertNull(row.get("PREDICTION_MESSAGE"));
+        assertEquals(1, ((Number) row.get("MESSAGE_TEMPLATE")).intValue());
+        TestReport report = testReportRepository.findById(stock).orElseThrow();
+        assertEquals(DIABETES_INPUT, report.getInputData());
+        assertEquals(stockMessage, report.getPredictionMessage());
+
+        TestReport untouched = testReportRepository.findById(custom).orElseThrow();
+        assertEquals("{\"Glucose\":\"high\"}", untouched.getInputData());
+        assertEquals("Entered by hand", untouched.getPredictionMessage());
+        assertNull(untouched.getMessageTemplate());
+
+        TestReport messageOnly = testReportRepository.findById(partial).orElseThrow();
+        assertEquals("{\"Glucose\":\"high\"}", messageOnly.getInputData());
+        assertNull(messageOnly.getInputPacked());
+        assertEquals(PredictionMessages.LOW_RISK_TEMPLATE, messageOnly.getMessageTemplate());
+        assertTrue((Boolean) reportCompaction.getStats().get("complete"));
+        assertEquals(3L, reportCompaction.getStats().get("scanned"));
+    }
+
+    private long legacyReport(Long userId, int predictionResult, double probability, String inputData,
+            String message) {
+        // Ids are not generated by the table; keep clear of the blocks Hibernate hands out
+        long id = 1_000_000 + jdbcTemplate.queryForObject("SELECT COUNT(*) FROM test_reports", Long.class);
+        jdbcTemplate.update("INSERT INTO test_reports (id, user_id, disease_type, prediction_result, probability, "
+                + "input_data, prediction_message, created_at) VALUES (?, ?, 'DIABETES', ?, ?, ?, ?, CURRENT_TIMESTAMP)",
+                id, userId, predictionResult, probability, inputData, message);
+        return id;
+    }
+}
@@ -0,0 +1,147 @@
+package com.diagnoai.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+import com.diagnoai.repository.UserRepository;
+
+/**
+ * Counters against a real schema. Transactions commit, so every test works
+ * on its own user.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:counters;MODE=MySQL",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TestReportService.class, ReportCounters.class, ReportCounterProperties.class, ReportTrends.class,
+    ReportTrendProperties.class, FamilyGraph.class, ReportArchive.class, ReportArchiveProperties.class,
+    ReportVersions.class, ReportFeed.class, ReportFeedProperties.class})
+class ReportCountersTest {
+
+    @Autowired
+    private TestReportService testReportService;
+
+    @Autowired
+    private ReportCounters reportCounters;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReportArchive reportArchive;
+
+    @Autowired
+    private ReportVersions reportVersions;
+
+    @Test
+    void saveTestReport_CachedUser_CountsUpdatedWithoutReload() {
+        // Given - the user's counts are already in memory
+        Long userId = user("cached");
+        testReportService.saveTestReport(userId, DiseaseType.HEART, 1, 0.9, "{}", "ok");
+        assertEquals(1, reportCounters.tally(List.of(userId)).total());
+
+        // When
+        testReportService.saveTestReport(userId, DiseaseType.HEART, 0, 0.1, "{}", "ok");
+        testReportService.saveTestReports(userId, List.of(
+                new TestReport(null, DiseaseType.STROKE, 1, 0.7, "{}", "ok"),
+                new TestReport(null, DiseaseType.STROKE, 1, 0.8, "{}", "ok")));
+
+        // Then
+        ReportTally tally = reportCounters.tally(List.of(userId));
+        assertEquals(4, tally.total());
+        assertEquals(1, tally.positive(DiseaseType.HEART));
+        assertEquals(1, tally.negative(DiseaseType.HEART));
+        assertEquals(2, tally.positive(DiseaseType.STROKE));
+        assertEquals(4, testReportService.getAccessibleTestReportsCount(userId));
+    }
+
+    @Test
+    void saveTestReport_RolledBack_NotCounted() {
+        // Given
+        Long userId = user("rollback");
+        reportCounters.tally(List.of(userId));
+
+        // When
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    testReportService.saveTestReport(userId, DiseaseType.DIABETES, 1, 0.9, "{}", "ok");
+                    throw new IllegalStateException("rolled back");
+                }));
+
+        // Then
+        assertEquals(0, reportCounters.tally(List.of(userId)).total());
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM report_counts WHERE user_id = ?", Long.class, userId));
+    }
+
+    @Test
+    void rebuild_DriftedTable_RecountedFromReports() {
+        // Given - the summary row was changed behind the counters' back
+        Long userId = user("drift");
+        testReportService.saveTestReport(userId, DiseaseType.DIABETES, 0, 0.2, "{}", "ok");
+        testReportService.saveTestReport(userId, DiseaseType.DIABETES, 0, 0.3, "{}", "ok");
+        jdbcTemplate.update("UPDATE report_counts SET report_count = 7 WHERE user_id = ?", userId);
+
+        // When
+        reportCounters.rebuild();
+
+        // Then
+        assertEquals(2, reportCounters.tally(List.of(userId)).negative(DiseaseType.DIABETES));
+        assertEquals(5L, reportCounters.getStats().get("lastRebuildDrift"));
+    }
+
+    @Test
+    void tally_MoreUsersThanFit_BusyUserTakesAnIdleOnesPlace() {
+        // Given - room for two users, both taken by users asked for once
+        ReportCounterProperties properties = new ReportCounterProperties();
+        properties.setMaxCachedUsers(2);
+        ReportCounters counters = new ReportCounters(jdbcTemplate, transactionManager, properties, reportArchive,
+                reportVersions);
+        counters.tally(List.of(user("idle-1")));
+        counters.tally(List.of(user("idle-2")));
+        Long busy = user("busy");
+        testReportService.saveTestReport(busy, DiseaseType.HEART, 1, 0.9, "{}", "ok");
+
+        // When - the third user keeps being asked for
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while ((long) counters.getStats().get("hits") == 0 && System.nanoTime() < deadline) {
+            counters.tally(List.of(busy));
+        }
+
+        // Then - served from memory rather than loaded on every request
+        assertTrue((long) counters.getStats().get("hits") > 0, () -> counters.getStats().toString());
+        assertEquals(1, counters.tally(List.of(busy)).total());
+    }
+
+    private Long user(String name) {
+        return userRepository.save(new User(name, name, name + "@example.com", "secret")).getId();
+    }
+}
@@ -0,0 +1,95 @@
+package com.diagnoai.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+import com.diagnoai.entity.UserRole;
+import com.diagnoai.repository.TestReportRepository;
+import com.diagnoai.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:export;MODE=MySQL",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReportExporter.class, ReportExportProperties.class, ReportArchive.class, ReportArchiveProperties.class})
+class ReportExporterTest {
+
+    @Autowired
+    private ReportExporter reportExporter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestReportRepository testReportRepository;
+
+    @Test
+    void export_Ndjson_OneLinePerReportNewestFirst() throws Exception {
+        // Given
+        User owner = user("ndjson");
+        User stranger = user("stranger");
+        TestReport older = report(owner, DiseaseType.HEART, "first");
+        TestReport newer = report(owner, DiseaseType.STROKE, "second");
+        report(stranger, DiseaseType.HEART, "not yours");
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportExporter.export(List.of(owner.getId()), null, null, null, ReportExporter.Format.NDJSON, out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode first = mapper.readTree(lines[0]);
+        assertEquals(newer.getId(), first.get("id").asLong());
+        assertEquals("ndjson@example.com", first.get("userEmail").asText());
+        assertEquals("STROKE", first.get("diseaseType").asText());
+        assertEquals(older.getId(), mapper.readTree(lines[1]).get("id").asLong());
+    }
+
+    @Test
+    void export_Csv_QuotesFieldsWithSeparators() throws Exception {
+        // Given
+        User owner = user("csv");
+        report(owner, DiseaseType.DIABETES, "Low risk, \"keep it up\"");
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportExporter.export(List.of(owner.getId()), DiseaseType.DIABETES, null, null,
+                ReportExporter.Format.CSV, out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("id,userName,userEmail,diseaseType"));
+        assertTrue(lines[1].contains(",\"Low risk, \"\"keep it up\"\"\","), lines[1]);
+    }
+
+    private User user(String name) {
+        User user = new User(name, name + " Name", name + "@example.com", "secret");
+        user.setRole(UserRole.USER);
+        return userRepository.save(user);
+    }
+
+    private TestReport report(User owner, DiseaseType diseaseType, String message) {
+        return testReportRepository.saveAndFlush(new TestReport(owner, diseaseType, 0, 0.25, "{\"age\":40}", message));
+    }
+}
@@ -0,0 +1,133 @@
+package com.diagnoai.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+import com.diagnoai.entity.UserRole;
+import com.diagnoai.repository.UserRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ReportFeedTest {
+
+    @Mock
+    private FamilyGraph familyGraph;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final ReportFeedProperties properties = new ReportFeedProperties();
+
+    @Test
+    void publishSaved_OwnerAndFamily_EveryoneWhoReadsTheReportGetsIt() {
+        // Given - user 1 added relative 2; user 3 is a stranger
+        ReportFeed reportFeed = new ReportFeed(familyGraph, userRepository, properties, Runnable::run);
+        when(familyGraph.find(1L)).thenReturn(Optional.of(
+                new FamilyGraph.Links(UserRole.USER, new long[] {2}, new long[0])));
+        when(familyGraph.find(2L)).thenReturn(Optional.of(
+                new FamilyGraph.Links(UserRole.RELATIVE, new long[0], new long[] {1})));
+        reportFeed.subscribe(1L);
+        reportFeed.subscribe(2L);
+        reportFeed.subscribe(3L);
+
+        // When
+        reportFeed.publishSaved(owner(), List.of(report(10L)));
+
+        // Then
+        assertEquals(1L, reportFeed.getStats().get("published"));
+        assertEquals(2L, reportFeed.getStats().get("delivered"));
+    }
+
+    @Test
+    void publishSaved_ConsumerNotKeepingUp_Evicted() {
+        // Given - nothing is ever written, so the buffer only fills
+        List<Runnable> pendingWrites = new ArrayList<>();
+        properties.setBufferSize(2);
+        ReportFeed reportFeed = new ReportFeed(familyGraph, userRepository, properties, pendingWrites::add);
+        when(familyGraph.find(1L)).thenReturn(Optional.of(
+                new FamilyGraph.Links(UserRole.USER, new long[0], new long[0])));
+        reportFeed.subscribe(1L);
+
+        // When - the opening heartbeat and one report fit, the second does not
+        reportFeed.publishSaved(owner(), List.of(report(10L), report(11L)));
+
+        // Then
+        assertEquals(1L, reportFeed.getStats().get("evicted"));
+        assertEquals(0, reportFeed.getStats().get("subscribers"));
+        assertEquals(1, pendingWrites.size());
+    }
+
+    @Test
+    void subscribe_OverLimits_OldestClosedOrRefused() {
+        // Given
+        properties.setMaxSubscribersPerUser(1);
+        properties.setMaxSubscribers(2);
+        ReportFeed reportFeed = new ReportFeed(familyGraph, userRepository, properties, Runnable::run);
+
+        // When
+        reportFeed.subscribe(1L);
+        reportFeed.subscribe(1L);
+        reportFeed.subscribe(2L);
+
+        // Then
+        assertEquals(2, reportFeed.getStats().get("subscribers"));
+        assertTrue(reportFeed.subscribe(3L).isEmpty());
+        assertEquals(1L, reportFeed.getStats().get("refused"));
+    }
+
+    @Test
+    void subscribe_SameUserConcurrently_OneStreamKept() throws Exception {
+        // Given
+        properties.setMaxSubscribersPerUser(1);
+        properties.setMaxSubscribers(Integer.MAX_VALUE);
+        ReportFeed reportFeed = new ReportFeed(familyGraph, userRepository, properties, Runnable::run);
+        when(familyGraph.find(1L)).thenReturn(Optional.of(
+                new FamilyGraph.Links(UserRole.USER, new long[0], new long[0])));
+
+        // When - every subscribe closes the one before it, racing the others
+        List<Future<?>> subscribing = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                subscribing.add(executor.submit(() -> {
+                    for (int j = 0; j < 20_000; j++) {
+                        reportFeed.subscribe(1L);
+                    }
+                }));
+            }
+        }
+        for (Future<?> future : subscribing) {
+            future.get();
+        }
+        reportFeed.publishSaved(owner(), List.of(report(10L)));
+
+        // Then - the stream left open is the one still registered
+        assertEquals(1, reportFeed.getStats().get("subscribers"));
+        assertEquals(1L, reportFeed.getStats().get("delivered"));
+    }
+
+    private static User owner() {
+        User owner = new User("owner", "Owner", "owner@example.com", "secret");
+        owner.setId(1L);
+        return owner;
+    }
+
+    private static TestReport report(Long id) {
+        TestReport report = new TestReport(owner(), DiseaseType.DIABETES, 1, 0.8, null, "High risk");
+        report.setId(id);
+        return report;
+    }
+}
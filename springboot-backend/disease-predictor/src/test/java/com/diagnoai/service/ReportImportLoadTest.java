@@ -0,0 +1,143 @@
+package com.diagnoai.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.diagnoai.entity.User;
+import com.diagnoai.prediction.BulkRowReader;
+import com.diagnoai.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares importing reports with IDENTITY ids, which Hibernate inserts one
+ * statement at a time to read each key back, against ids from blocks, which
+ * it sends as JDBC batches. Both run the same importer, each on a schema of
+ * its own; the baseline maps report ids back to IDENTITY with
+ * identity-ids-orm.xml. Run with {@code mvn test -Ploadtest}.
+ * <p>
+ * The in-memory database has no network round trip to save, so the gain on
+ * MySQL, where every unbatched statement waits on one, is larger.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+class ReportImportLoadTest {
+
+    private static final int ROWS = 50_000;
+
+    private static final Map<String, ReportImporter.Result> RESULTS = new LinkedHashMap<>();
+
+    @AfterAll
+    @SuppressWarnings("unused")
+    static void printResults() {
+        System.out.printf("%n%d reports, imported a chunk per transaction%n", ROWS);
+        RESULTS.forEach((ids, result) -> System.out.printf("  %-16s %,8.0f rows/s%n", ids + ":",
+                result.rowsPerSecond()));
+        System.out.println();
+    }
+
+    @Nested
+    @Order(1)
+    @DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:importidentity;MODE=MySQL",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "spring.jpa.mapping-resources=identity-ids-orm.xml"
+    })
+    @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Import({ReportImporter.class, ReportImportProperties.class, ReportCounters.class,
+        ReportCounterProperties.class, ReportTrends.class, ReportTrendProperties.class, ReportVersions.class,
+        ReportArchive.class, ReportArchiveProperties.class})
+    class IdentityIds {
+
+        @Autowired
+        private ReportImporter reportImporter;
+
+        @Autowired
+        private UserRepository userRepository;
+
+        @Test
+        void importReports() throws IOException {
+            RESULTS.put("IDENTITY ids", run(reportImporter, userRepository));
+        }
+    }
+
+    @Nested
+    @Order(2)
+    @DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:importblocks;MODE=MySQL",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true"
+    })
+    @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Import({ReportImporter.class, ReportImportProperties.class, ReportCounters.class,
+        ReportCounterProperties.class, ReportTrends.class, ReportTrendProperties.class, ReportVersions.class,
+        ReportArchive.class, ReportArchiveProperties.class})
+    class IdBlocks {
+
+        @Autowired
+        private ReportImporter reportImporter;
+
+        @Autowired
+        private UserRepository userRepository;
+
+        @Test
+        void importReports() throws IOException {
+            RESULTS.put("Id blocks", run(reportImporter, userRepository));
+        }
+    }
+
+    private static ReportImporter.Result run(ReportImporter reportImporter, UserRepository userRepository)
+            throws IOException {
+        Long userId = userRepository.save(new User("load", "Load", "load@example.com", "secret")).getId();
+
+        // Warm up the JIT so the measured run does not pay for it
+        importReports(reportImporter, userId, ROWS / 10);
+
+        ReportImporter.Result result = importReports(reportImporter, userId, ROWS);
+        assertEquals(ROWS, result.imported());
+        return result;
+    }
+
+    private static ReportImporter.Result importReports(ReportImporter reportImporter, Long userId, int rows)
+            throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            ndjson.append("{\"diseaseType\":\"STROKE\",\"predictionResult\":").append(i % 2)
+                    .append(",\"probability\":0.").append(i % 10)
+                    .append(",\"inputData\":\"{\\\"age\\\":").append(i)
+                    .append("}\",\"createdAt\":\"2023-01-01T00:00\"}\n");
+        }
+        try (BulkRowReader reader = BulkRowReader.ndjson(new ObjectMapper(),
+                new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)))) {
+            return reportImporter.importReports(userId, reader);
+        }
+    }
+}
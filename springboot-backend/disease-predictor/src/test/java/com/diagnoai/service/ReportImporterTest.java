@@ -0,0 +1,168 @@
+package com.diagnoai.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+import com.diagnoai.prediction.BulkRowReader;
+import com.diagnoai.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Importing and id blocks against a real schema. Transactions commit, so
+ * every test works on its own user.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:import;MODE=MySQL",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "app.reports.import.chunk-size=20"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TestReportService.class, ReportCounters.class, ReportCounterProperties.class, ReportTrends.class,
+    ReportTrendProperties.class, FamilyGraph.class, ReportArchive.class, ReportArchiveProperties.class,
+    ReportVersions.class, ReportFeed.class, ReportFeedProperties.class,
+    IdAllocator.class, ReportImporter.class, ReportImportProperties.class})
+class ReportImporterTest {
+
+    @Autowired
+    private ReportImporter reportImporter;
+
+    @Autowired
+    private IdAllocator idAllocator;
+
+    @Autowired
+    private TestReportService testReportService;
+
+    @Autowired
+    private ReportCounters reportCounters;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void importReports_Csv_SavedWithTheirDatesAndBadRowsRejected() throws IOException {
+        // Given - the export's columns, one row with an unknown disease
+        Long userId = user("csv");
+        String csv = """
+                id,userName,userEmail,diseaseType,predictionResult,probability,predictionMessage,inputData,createdAt
+                7,csv,csv@example.com,DIABETES,1,0.8,High risk,"{""glucose"":148}",2023-04-01T09:30
+                8,csv,csv@example.com,HEART,0,,,,2023-05-02
+                9,csv,csv@example.com,FLU,1,0.5,,,2023-06-03T10:00
+                """;
+
+        // When
+        ReportImporter.Result result = importReports(userId, "text/csv", csv);
+
+        // Then
+        assertEquals(2, result.imported());
+        assertEquals(1, result.rejected());
+        assertTrue(result.errors().get(0).startsWith("Row 3: "));
+        List<TestReport> saved = testReportService.getUserTestReports(userId).stream()
+                .sorted((a, b) -> a.getCreatedAt().compareTo(b.getCreatedAt())).toList();
+        assertEquals(LocalDateTime.of(2023, 4, 1, 9, 30), saved.get(0).getCreatedAt());
+        assertEquals("{\"glucose\":148}", saved.get(0).getInputData());
+        assertEquals(LocalDateTime.of(2023, 5, 2, 0, 0), saved.get(1).getCreatedAt());
+        assertEquals(1, reportCounters.tally(List.of(userId)).positive(DiseaseType.DIABETES));
+    }
+
+    @Test
+    void importReports_NdjsonOverSeveralChunks_AllSavedWithDistinctIds() throws IOException {
+        // Given
+        Long userId = user("ndjson");
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 45; i++) {
+            ndjson.append("{\"diseaseType\":\"STROKE\",\"predictionResult\":").append(i % 2)
+                    .append(",\"probability\":0.").append(i % 10).append(",\"inputData\":{\"age\":").append(i)
+                    .append("}}\n");
+        }
+
+        // When
+        ReportImporter.Result result = importReports(userId, "application/x-ndjson", ndjson.toString());
+
+        // Then
+        assertEquals(45, result.imported());
+        assertEquals(0, result.rejected());
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM test_reports WHERE user_id = ?", Long.class,
+                userId);
+        assertEquals(45, new HashSet<>(ids).size());
+    }
+
+    @Test
+    void align_RowsInsertedPastTheBlocks_LaterIdsAboveThem() {
+        // Given - rows written with ids of their own, as AUTO_INCREMENT left them
+        Long userId = user("legacy");
+        long legacyId = 5_000_000;
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update("INSERT INTO test_reports (id, user_id, disease_type, prediction_result, "
+                    + "prediction_message, created_at) VALUES (?, ?, 'HEART', 0, 'legacy', CURRENT_TIMESTAMP)",
+                    legacyId + i, userId);
+        }
+
+        // When - more than a block's worth, through Hibernate and outside it
+        idAllocator.align();
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 60; i++) {
+            ids.add(testReportService.saveTestReport(userId, DiseaseType.HEART, 1, 0.7, "{}", "new").getId());
+        }
+        for (long id : idAllocator.next(TestReport.class, 60)) {
+            ids.add(id);
+        }
+
+        // Then
+        assertEquals(120, ids.size());
+        assertTrue(ids.stream().allMatch(id -> id > legacyId + 2));
+    }
+
+    @Test
+    void next_BlockTableUnreadable_DataAccessException() {
+        // Given - more ids than the block in hand, so the table must be read
+        jdbcTemplate.execute("ALTER TABLE id_blocks RENAME TO id_blocks_moved");
+        try {
+            // When / Then
+            assertThrows(DataAccessException.class, () -> idAllocator.next(TestReport.class, 60));
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE id_blocks_moved RENAME TO id_blocks");
+        }
+    }
+
+    private ReportImporter.Result importReports(Long userId, String contentType, String body) throws IOException {
+        try (BulkRowReader reader = BulkRowReader.open(objectMapper, contentType,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)))) {
+            return reportImporter.importReports(userId, reader);
+        }
+    }
+
+    private Long user(String name) {
+        return userRepository.save(new User(name, name, name + "@example.com", "secret")).getId();
+    }
+}
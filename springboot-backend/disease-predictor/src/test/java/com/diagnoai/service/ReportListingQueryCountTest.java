@@ -0,0 +1,149 @@
+package com.diagnoai.service;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+import com.diagnoai.entity.User;
+import com.diagnoai.entity.UserRole;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Pins every report listing to a fixed number of SQL statements, however many
+ * relatives and reports are involved.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.show-sql=false"
+})
+@Import({TestReportService.class, ReportCounters.class, ReportCounterProperties.class, ReportTrends.class,
+    ReportTrendProperties.class, FamilyGraph.class, ReportArchive.class, ReportArchiveProperties.class,
+    ReportVersions.class, ReportFeed.class, ReportFeedProperties.class})
+class ReportListingQueryCountTest {
+
+    // The page itself; whose reports are visible comes from the family graph
+    private static final long ACCESSIBLE_LISTING_STATEMENTS = 1;
+
+    // Role and both link directions, read once per user on first use
+    private static final long GRAPH_LOAD_STATEMENTS = 3;
+
+    // The page only; the owner is the requester
+    private static final long OWN_LISTING_STATEMENTS = 1;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestReportService testReportService;
+
+    @Test
+    void accessibleReports_MainUser_ConstantStatementsAsRelativesGrow() {
+        // Given
+        User small = family("small", 1, 2);
+        User large = family("large", 6, 20);
+
+        // When / Then - the first listing also loads the requester's links
+        ReportQuery query = ReportQuery.firstPage(100);
+        for (User requester : List.of(small, large)) {
+            assertEquals(GRAPH_LOAD_STATEMENTS + ACCESSIBLE_LISTING_STATEMENTS,
+                    statements(() -> testReportService.getAccessibleTestReports(requester.getId(), query)));
+            assertEquals(ACCESSIBLE_LISTING_STATEMENTS,
+                    statements(() -> testReportService.getAccessibleTestReports(requester.getId(), query)));
+        }
+    }
+
+    @Test
+    void accessibleReports_Relative_ConstantStatements() {
+        // Given
+        User main = family("rel", 3, 5);
+        Long relativeId = entityManager.getEntityManager()
+                .createQuery("SELECT r.id FROM User u JOIN u.relatives r WHERE u.id = :id", Long.class)
+                .setParameter("id", main.getId())
+                .setMaxResults(1)
+                .getSingleResult();
+        entityManager.clear();
+
+        // When
+        long count = statements(() -> testReportService.getAccessibleTestReports(relativeId,
+                ReportQuery.firstPage(100)));
+
+        // Then
+        assertEquals(GRAPH_LOAD_STATEMENTS + ACCESSIBLE_LISTING_STATEMENTS, count);
+    }
+
+    @Test
+    void pagedListing_NextPage_SameStatementsAsFirstPage() {
+        // Given
+        User main = family("paged", 4, 10);
+        ReportPage first = testReportService.getAccessibleTestReports(main.getId(), ReportQuery.firstPage(7));
+        entityManager.clear();
+
+        // When / Then
+        ReportQuery next = new ReportQuery(null, null, null, ReportCursor.decode(first.nextCursor()), 7);
+        assertEquals(ACCESSIBLE_LISTING_STATEMENTS,
+                statements(() -> testReportService.getAccessibleTestReports(main.getId(), next)));
+    }
+
+    @Test
+    void reportsByDisease_OwnReports_SingleStatement() {
+        // Given
+        User main = family("disease", 2, 15);
+
+        // When / Then
+        assertEquals(OWN_LISTING_STATEMENTS, statements(() -> testReportService.getUserTestReports(main.getId(),
+                new ReportQuery(DiseaseType.HEART, null, null, null, 100))));
+    }
+
+    /**
+     * A main user with the given number of relatives, each member holding the
+     * given number of reports. The persistence context is cleared afterwards so
+     * nothing is served from it.
+     */
+    private User family(String name, int relatives, int reportsEach) {
+        User main = user(name, UserRole.USER);
+        for (int i = 0; i < relatives; i++) {
+            main.addRelative(user(name + "-relative" + i, UserRole.RELATIVE));
+        }
+        for (User member : main.getRelatives()) {
+            reports(member, reportsEach);
+        }
+        reports(main, reportsEach);
+        entityManager.flush();
+        entityManager.clear();
+        return main;
+    }
+
+    private User user(String username, UserRole role) {
+        User user = new User(username, username + " Name", username + "@example.com", "secret");
+        user.setRole(role);
+        return entityManager.persist(user);
+    }
+
+    private void reports(User owner, int count) {
+        for (int i = 0; i < count; i++) {
+            DiseaseType disease = i % 2 == 0 ? DiseaseType.HEART : DiseaseType.DIABETES;
+            entityManager.persist(new TestReport(owner, disease, i % 2, 0.5, "{}", "ok"));
+        }
+    }
+
+    private long statements(Supplier<ReportPage> listing) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        listing.get();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,132 @@
+package com.diagnoai.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.User;
+import com.diagnoai.repository.UserRepository;
+
+/**
+ * Trend buckets against a real schema. Transactions commit, so every test
+ * works on its own user.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:trends;MODE=MySQL",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TestReportService.class, ReportCounters.class, ReportCounterProperties.class, ReportTrends.class,
+    ReportTrendProperties.class, FamilyGraph.class, ReportArchive.class, ReportArchiveProperties.class,
+    ReportVersions.class, ReportFeed.class, ReportFeedProperties.class})
+class ReportTrendsTest {
+
+    @Autowired
+    private TestReportService testReportService;
+
+    @Autowired
+    private ReportTrends reportTrends;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void saveTestReport_SameDay_AddedToOneBucketPerResolution() {
+        // Given
+        Long userId = user("daily");
+        LocalDate today = LocalDate.now();
+
+        // When
+        testReportService.saveTestReport(userId, DiseaseType.HEART, 1, 0.8, "{}", "ok");
+        testReportService.saveTestReport(userId, DiseaseType.HEART, 0, 0.2, "{}", "ok");
+        testReportService.saveTestReport(userId, DiseaseType.STROKE, 0, null, "{}", "ok");
+
+        // Then
+        Map<DiseaseType, TrendSeries> series = testReportService.getReportTrends(
+                userId, userId, ReportTrends.Resolution.DAY, null, null, null);
+        TrendSeries heart = series.get(DiseaseType.HEART);
+        assertArrayEquals(new String[] {today.toString()}, heart.bucketStart());
+        assertArrayEquals(new long[] {2}, heart.count());
+        assertArrayEquals(new long[] {1}, heart.positive());
+        assertEquals(0.5, heart.meanProbability()[0], 1e-9);
+        assertNull(series.get(DiseaseType.STROKE).meanProbability()[0]);
+        assertEquals(3L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM report_trends WHERE user_id = ? AND disease_type = 'HEART'", Long.class, userId));
+    }
+
+    @Test
+    void rebuild_BackdatedReports_RegroupedByWeek() {
+        // Given - two reports moved into an earlier week behind the buckets' back
+        Long userId = user("weekly");
+        testReportService.saveTestReport(userId, DiseaseType.DIABETES, 1, 0.6, "{}", "ok");
+        testReportService.saveTestReport(userId, DiseaseType.DIABETES, 0, 0.4, "{}", "ok");
+        testReportService.saveTestReport(userId, DiseaseType.DIABETES, 1, 0.9, "{}", "ok");
+        jdbcTemplate.update("UPDATE test_reports SET created_at = '2026-03-04 10:00:00' "
+                + "WHERE user_id = ? AND probability < 0.7", userId);
+
+        // When
+        reportTrends.rebuild();
+
+        // Then - 2026-03-04 is a Wednesday, its week starts on Monday the 2nd
+        TrendSeries diabetes = reportTrends.series(userId, ReportTrends.Resolution.WEEK, DiseaseType.DIABETES,
+                LocalDate.of(2026, 1, 1), LocalDate.now()).get(DiseaseType.DIABETES);
+        assertEquals("2026-03-02", diabetes.bucketStart()[0]);
+        assertArrayEquals(new long[] {2, 1}, diabetes.count());
+        assertArrayEquals(new long[] {1, 1}, diabetes.positive());
+        assertEquals(0.5, diabetes.meanProbability()[0], 1e-9);
+    }
+
+    @Test
+    void rebuild_NullProbability_LeftOutOfMean() {
+        // Given
+        Long userId = user("unscored");
+        testReportService.saveTestReport(userId, DiseaseType.STROKE, 1, null, "{}", "ok");
+        testReportService.saveTestReport(userId, DiseaseType.HEART, 1, 0.8, "{}", "ok");
+        testReportService.saveTestReport(userId, DiseaseType.HEART, 0, null, "{}", "ok");
+
+        // When
+        reportTrends.rebuild();
+
+        // Then - a missing probability is not counted as 0
+        Map<DiseaseType, TrendSeries> series = testReportService.getReportTrends(
+                userId, userId, ReportTrends.Resolution.DAY, null, null, null);
+        assertNull(series.get(DiseaseType.STROKE).meanProbability()[0]);
+        assertArrayEquals(new long[] {2}, series.get(DiseaseType.HEART).count());
+        assertEquals(0.8, series.get(DiseaseType.HEART).meanProbability()[0], 1e-9);
+    }
+
+    @Test
+    void getReportTrends_UnrelatedUser_Denied() {
+        // Given
+        Long owner = user("owner");
+        Long stranger = user("stranger");
+
+        // When / Then
+        assertThrows(RuntimeException.class, () -> testReportService.getReportTrends(
+                stranger, owner, ReportTrends.Resolution.MONTH, null, null, null));
+    }
+
+    private Long user(String name) {
+        return userRepository.save(new User(name, name, name + "@example.com", "secret")).getId();
+    }
+}
@@ -0,0 +1,289 @@
+package com.diagnoai.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.TestReport;
+
+@ExtendWith(MockitoExtension.class)
+class ReportWriteBehindTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ReportCounters reportCounters;
+
+    @Mock
+    private ReportTrends reportTrends;
+
+    @Mock
+    private ReportVersions reportVersions;
+
+    @Mock
+    private ReportFeed reportFeed;
+
+    @Mock
+    private IdAllocator idAllocator;
+
+    @TempDir
+    private Path spillDirectory;
+
+    private final ReportWriteBehindProperties properties = new ReportWriteBehindProperties();
+
+    // Lets a batch held by stallFirstBatch finish
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ReportWriteBehind writeBehind;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setSpillDirectory(spillDirectory.toString());
+        properties.setFlushInterval(Duration.ofMillis(10));
+        lenient().when(idAllocator.next(eq(TestReport.class), anyInt()))
+                .thenAnswer(invocation -> new long[invocation.<Integer>getArgument(1)]);
+    }
+
+    @AfterEach
+    @SuppressWarnings("unused")
+    void tearDown() {
+        release.countDown();
+        if (writeBehind != null) {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    void submit_QueueFullUnderShed_ReportShed() throws Exception {
+        // Given
+        fillQueue(ReportWriteBehindProperties.Backpressure.SHED);
+
+        // When / Then
+        assertFalse(writeBehind.submit(report(3L)));
+        assertEquals(1L, writeBehind.getStats().get("shed"));
+        assertEquals(0, spillLines());
+    }
+
+    @Test
+    void submit_QueueFullUnderBlock_ShedAfterTimeout() throws Exception {
+        // Given
+        properties.setBlockTimeout(Duration.ofMillis(50));
+        fillQueue(ReportWriteBehindProperties.Backpressure.BLOCK);
+
+        // When
+        long start = System.nanoTime();
+        boolean accepted = writeBehind.submit(report(3L));
+
+        // Then
+        assertFalse(accepted);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1L, writeBehind.getStats().get("shed"));
+    }
+
+    @Test
+    void submit_QueueFullUnderSpill_ReportSpilled() throws Exception {
+        // Given
+        fillQueue(ReportWriteBehindProperties.Backpressure.SPILL);
+
+        // When / Then
+        assertTrue(writeBehind.submit(report(3L)));
+        assertEquals(0L, writeBehind.getStats().get("shed"));
+        assertEquals(1L, writeBehind.getStats().get("spilled"));
+        assertEquals(1, spillLines());
+    }
+
+    @Test
+    void write_BatchFails_SpilledThenReplayedOnce() throws Exception {
+        // Given - the database is down for the first write only
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenReturn(new int[] {1});
+        writeBehind = newWriteBehind();
+        assertTrue(writeBehind.submit(report(1L)));
+        assertEquals(1L, writeBehind.getStats().get("spilled"));
+        assertEquals(1L, writeBehind.getStats().get("failedBatches"));
+        assertEquals(1, spillLines());
+
+        // When - the idle writer replays the spill file
+        writeBehind.start();
+        awaitStat("replayed", 1L);
+        Thread.sleep(properties.getFlushInterval().toMillis() * 10);
+
+        // Then - written once, and the file is gone so nothing replays it again
+        assertEquals(1L, writeBehind.getStats().get("replayed"));
+        assertEquals(1L, writeBehind.getStats().get("written"));
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+        verify(reportCounters, times(1)).recordSaved(any());
+        assertEquals(0, spillLines());
+    }
+
+    @Test
+    void write_IdBlockUnreadable_BatchSpilled() throws Exception {
+        // Given
+        when(idAllocator.next(TestReport.class, 1))
+                .thenThrow(new DataAccessResourceFailureException("Unable to acquire JDBC Connection"));
+        writeBehind = newWriteBehind();
+
+        // When
+        assertTrue(writeBehind.submit(report(1L)));
+
+        // Then
+        assertEquals(1L, writeBehind.getStats().get("failedBatches"));
+        assertEquals(1L, writeBehind.getStats().get("spilled"));
+        assertEquals(1, spillLines());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    void write_OneRowViolatesConstraint_OnlyThatRowDropped() throws Exception {
+        // Given - the second batch holds two rows; the row-by-row retry fails on the second
+        CountDownLatch inBatch = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            switch (calls.incrementAndGet()) {
+                case 1 -> {
+                    inBatch.countDown();
+                    release.await();
+                }
+                case 2, 4 -> throw new DataIntegrityViolationException("user does not exist");
+                default -> {
+                }
+            }
+            return new int[0];
+        });
+        properties.setCapacity(10);
+        writeBehind = newWriteBehind();
+        writeBehind.start();
+        writeBehind.submit(report(1L));
+        assertTrue(inBatch.await(5, TimeUnit.SECONDS));
+        writeBehind.submit(report(2L));
+        writeBehind.submit(report(99L));
+
+        // When
+        release.countDown();
+
+        // Then
+        awaitStat("dropped", 1L);
+        assertEquals(2L, writeBehind.getStats().get("written"));
+        assertEquals(0L, writeBehind.getStats().get("spilled"));
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void stop_WriterNotDoneInTime_QueuedReportsSpilled() throws Exception {
+        // Given
+        properties.setCapacity(10);
+        properties.setStopTimeout(Duration.ofMillis(50));
+        writeBehind = newWriteBehind();
+        CountDownLatch inBatch = stallFirstBatch();
+        writeBehind.start();
+        writeBehind.submit(report(1L));
+        assertTrue(inBatch.await(5, TimeUnit.SECONDS));
+        writeBehind.submit(report(2L));
+        writeBehind.submit(report(3L));
+
+        // When
+        writeBehind.stop();
+
+        // Then
+        assertEquals(2L, writeBehind.getStats().get("spilled"));
+        assertEquals(0, writeBehind.getStats().get("queueDepth"));
+        assertEquals(2, spillLines());
+    }
+
+    // A started writer stuck on its first report, with the one-slot queue full behind it
+    private void fillQueue(ReportWriteBehindProperties.Backpressure backpressure) throws InterruptedException {
+        properties.setCapacity(1);
+        properties.setBackpressure(backpressure);
+        writeBehind = newWriteBehind();
+        CountDownLatch inBatch = stallFirstBatch();
+        writeBehind.start();
+        assertTrue(writeBehind.submit(report(1L)));
+        assertTrue(inBatch.await(5, TimeUnit.SECONDS));
+        assertTrue(writeBehind.submit(report(2L)));
+    }
+
+    private CountDownLatch stallFirstBatch() {
+        CountDownLatch inBatch = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            if (inBatch.getCount() > 0) {
+                inBatch.countDown();
+                release.await();
+            }
+            return new int[0];
+        });
+        return inBatch;
+    }
+
+    private ReportWriteBehind newWriteBehind() {
+        return new ReportWriteBehind(jdbcTemplate, transactionManager, properties, reportCounters, reportTrends,
+                reportVersions, reportFeed, idAllocator);
+    }
+
+    private void awaitStat(String name, long expected) {
+        await(() -> writeBehind.getStats().get(name).equals(expected));
+        assertEquals(expected, writeBehind.getStats().get(name), () -> writeBehind.getStats().toString());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private long spillLines() throws IOException {
+        long lines = 0;
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            for (Path file : files.toList()) {
+                lines += Files.readAllLines(file).stream().filter(line -> !line.isBlank()).count();
+            }
+        }
+        return lines;
+    }
+
+    private static PendingReport report(Long userId) {
+        return new PendingReport(userId, DiseaseType.DIABETES, 1, 0.8, "{\"glucose\":148}", "High risk",
+                LocalDateTime.now());
+    }
+}
@@ -0,0 +1,121 @@
+package com.diagnoai.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import com.diagnoai.dto.ReportSummary;
+import com.diagnoai.entity.DiseaseType;
+import com.diagnoai.entity.UserRole;
+import com.diagnoai.repository.TestReportRepository;
+import com.diagnoai.repository.UserRepository;
+
+@ExtendWith(MockitoExtension.class)
+class TestReportServiceTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Mock
+    private TestReportRepository testReportRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private FamilyGraph familyGraph;
+
+    @Mock
+    private ReportArchive reportArchive;
+
+    @Mock
+    private ReportVersions reportVersions;
+
+    @Mock
+    private ReportFeed reportFeed;
+
+    @InjectMocks
+    private TestReportService testReportService;
+
+    @Test
+    void getAccessibleTestReports_FullPage_ReturnsCursorOfLastReport() {
+        // Given - one row more than the page size comes back
+        when(familyGraph.links(1L)).thenReturn(new FamilyGraph.Links(UserRole.USER, new long[] {2L}, new long[0]));
+        List<ReportSummary> rows = new ArrayList<>();
+        for (long id = 10; id > 7; id--) {
+            rows.add(report(id, NOON));
+        }
+        when(testReportRepository.findSummaryPageByUserIds(eq(Set.of(1L, 2L)), eq(DiseaseType.HEART), any(), any(),
+                any(), eq(Limit.of(3)))).thenReturn(rows);
+
+        // When
+        ReportPage page = testReportService.getAccessibleTestReports(1L,
+                new ReportQuery(DiseaseType.HEART, null, null, null, 2));
+
+        // Then
+        assertEquals(2, page.reports().size());
+        assertTrue(page.hasMore());
+        assertEquals(new ReportCursor(NOON, 9L), ReportCursor.decode(page.nextCursor()));
+    }
+
+    @Test
+    void getUserTestReports_CursorAndDateRange_ContinueStrictlyAfterCursor() {
+        // Given
+        LocalDateTime to = NOON.plusDays(1);
+        when(testReportRepository.findSummaryPageByUserIds(List.of(1L), null, NOON.minusDays(7), NOON, 9L, Limit.of(51)))
+                .thenReturn(List.of(report(8L, NOON)));
+
+        // When
+        ReportPage page = testReportService.getUserTestReports(1L,
+                new ReportQuery(null, NOON.minusDays(7), to, new ReportCursor(NOON, 9L), 50));
+
+        // Then
+        assertEquals(1, page.reports().size());
+        assertFalse(page.hasMore());
+        assertNull(page.nextCursor());
+        verify(testReportRepository).findSummaryPageByUserIds(List.of(1L), null, NOON.minusDays(7), NOON, 9L,
+                Limit.of(51));
+    }
+
+    @Test
+    void hasAccessToReport_RelativesReport_AnsweredFromGraph() {
+        // Given - user 2 is a relative of user 1
+        when(testReportRepository.findOwnerIdById(10L)).thenReturn(Optional.of(2L));
+        when(testReportRepository.findOwnerIdById(11L)).thenReturn(Optional.of(1L));
+        when(familyGraph.links(1L)).thenReturn(new FamilyGraph.Links(UserRole.USER, new long[] {2L}, new long[0]));
+        when(familyGraph.links(2L)).thenReturn(new FamilyGraph.Links(UserRole.RELATIVE, new long[0], new long[] {1L}));
+
+        // When / Then
+        assertTrue(testReportService.hasAccessToReport(1L, 10L));
+        assertFalse(testReportService.hasAccessToReport(2L, 11L));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void decode_TamperedCursor_Rejected() {
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> ReportCursor.decode("not-a-cursor"));
+    }
+
+    private ReportSummary report(Long id, LocalDateTime createdAt) {
+        return new ReportSummary(id, DiseaseType.HEART, 0, null, "ok", createdAt, "Main User", "main@example.com");
+    }
+}
@@ -0,0 +1,119 @@
+package com.diagnoai.service;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.diagnoai.config.UserCacheConfig;
+import com.diagnoai.config.UserCacheProperties;
+import com.diagnoai.entity.User;
+import com.diagnoai.repository.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * The user cache against a real schema. Transactions commit, so every test
+ * works on its own users.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:usercache;MODE=MySQL",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserService.class, FamilyGraph.class, UserCache.class, UserCacheConfig.class, UserCacheProperties.class,
+    UserNameIndex.class, UserSearchProperties.class, BCryptPasswordEncoder.class, ReportVersions.class})
+class UserCacheTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void loadUserByUsername_Repeated_ServedWithoutStatements() {
+        // Given
+        userService.createUser("cached", "Cached User", "cached@example.com", "secret");
+        userService.loadUserByUsername("cached");
+        Statistics statistics = statistics();
+
+        // When
+        long before = statistics.getPrepareStatementCount();
+        userService.loadUserByUsername("cached");
+        userService.loadUserByUsername("cached");
+
+        // Then
+        assertEquals(before, statistics.getPrepareStatementCount());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> queries = (Map<String, Object>) userCache.getStats()
+                .get(UserCacheConfig.USER_QUERIES_REGION);
+        assertTrue((long) queries.get("hits") >= 2);
+    }
+
+    @Test
+    void createRelativeUser_LinkInsertedWithSql_CachedCollectionsEvicted() {
+        // Given - the main user's relatives are cached empty
+        User main = userService.createUser("main", "Main", "main@example.com", "secret");
+        assertEquals(0, relativesCount(main.getId()));
+        assertEquals(0, userService.getRelatives(main.getId()).size());
+
+        // When
+        Long relativeId = userService.createRelativeUser("relative", "Relative", "relative@example.com", "secret",
+                main).getId();
+
+        // Then
+        assertEquals(1, relativesCount(main.getId()));
+        assertEquals(relativeId, userService.getRelatives(main.getId()).get(0).getId());
+    }
+
+    @Test
+    void updateUser_CachedLookup_SeesNewName() {
+        // Given
+        User user = userService.createUser("renamed", "Old Name", "renamed@example.com", "secret");
+        assertEquals("Old Name", userService.findByUsername("renamed").orElseThrow().getFullName());
+
+        // When
+        user.setFullName("New Name");
+        userService.updateUser(user);
+
+        // Then
+        assertEquals("New Name", userService.findByUsername("renamed").orElseThrow().getFullName());
+        assertEquals("New Name", userService.findById(user.getId()).orElseThrow().getFullName());
+    }
+
+    private int relativesCount(Long userId) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                userRepository.findById(userId).orElseThrow().getRelatives().size());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
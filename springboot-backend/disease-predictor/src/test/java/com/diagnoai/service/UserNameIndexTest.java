@@ -0,0 +1,133 @@
+package com.diagnoai.service;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.diagnoai.entity.User;
+
+@ExtendWith(MockitoExtension.class)
+class UserNameIndexTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private UserNameIndex userNameIndex;
+
+    private long nextId;
+
+    @BeforeEach
+    @SuppressWarnings("unused")
+    void setUp() {
+        userNameIndex = new UserNameIndex(jdbcTemplate, new UserSearchProperties());
+        // Loads the (empty) table, so updates apply from here on
+        userNameIndex.rebuild();
+    }
+
+    @Test
+    void search_ExactPrefixAndTypo_RankedInThatOrder() {
+        // Given
+        add("Johnson Miller");
+        add("John Smith");
+        add("Jonh Doe");
+        add("Mary Jones");
+
+        // When
+        UserNameIndex.Page page = userNameIndex.search("john", 0, null);
+
+        // Then
+        assertEquals(List.of("John Smith", "Johnson Miller", "Jonh Doe"), names(page));
+        assertEquals(3, page.total());
+    }
+
+    @Test
+    void search_TypoSharingNoTrigram_StillFound() {
+        // Given
+        add("John Smith");
+        add("Mary Jones");
+
+        // When
+        UserNameIndex.Page page = userNameIndex.search("jhon", 0, null);
+
+        // Then
+        assertEquals(List.of("John Smith"), names(page));
+        assertEquals(1L, userNameIndex.getStats().get("widenedSearches"));
+    }
+
+    @Test
+    void search_AccentsAndCase_Ignored() {
+        // Given
+        add("José Álvarez");
+
+        // When / Then
+        assertEquals(List.of("José Álvarez"), names(userNameIndex.search("JOSE alva", 0, null)));
+        assertEquals(List.of("José Álvarez"), names(userNameIndex.search("a", 0, null)));
+        assertTrue(userNameIndex.search("maria", 0, null).users().isEmpty());
+    }
+
+    @Test
+    void search_ManyMatches_Paginated() {
+        // Given
+        for (int i = 0; i < 25; i++) {
+            add("Anna Patient" + i);
+        }
+
+        // When
+        UserNameIndex.Page first = userNameIndex.search("anna", 0, 10);
+        UserNameIndex.Page last = userNameIndex.search("anna", 2, 10);
+
+        // Then
+        assertEquals(10, first.users().size());
+        assertTrue(first.hasMore());
+        assertEquals(5, last.users().size());
+        assertFalse(last.hasMore());
+        assertEquals(25, last.total());
+    }
+
+    @Test
+    void update_RenamedAndDeactivated_IndexFollows() {
+        // Given
+        User user = add("Peter Parker");
+
+        // When
+        user.setFullName("Peter Quill");
+        userNameIndex.update(user);
+
+        // Then
+        assertTrue(userNameIndex.search("parker", 0, null).users().isEmpty());
+        assertEquals(List.of("Peter Quill"), names(userNameIndex.search("quill", 0, null)));
+
+        // When
+        user.setIsActive(false);
+        userNameIndex.update(user);
+
+        // Then
+        assertTrue(userNameIndex.search("peter", 0, null).users().isEmpty());
+    }
+
+    @Test
+    void distance_SwapCountsAsOneEdit() {
+        assertEquals(1, UserNameIndex.distance("jonh", "john", 2));
+        assertEquals(2, UserNameIndex.distance("jhon", "joan", 2));
+        assertEquals(3, UserNameIndex.distance("anna", "peter", 2));
+    }
+
+    private User add(String fullName) {
+        User user = new User("user" + nextId, fullName, "user" + nextId + "@example.com", "secret");
+        user.setId(++nextId);
+        userNameIndex.update(user);
+        return user;
+    }
+
+    private static List<String> names(UserNameIndex.Page page) {
+        return page.users().stream().map(UserNameIndex.Entry::fullName).toList();
+    }
+}
@@ -33,6 +33,18 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private FamilyGraph familyGraph;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private UserNameIndex userNameIndex;
+
+    @Mock
+    private ReportVersions reportVersions;
+
     @InjectMocks
     private UserService userService;
 